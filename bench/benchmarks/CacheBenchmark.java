@@ -0,0 +1,345 @@
+package benchmarks;
+
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Measures the caches under load. Every combination of target, workload, key distribution,
+ * capacity and thread count is run on a fresh cache, first for a warmup period and then for a
+ * measurement period. For each run, the throughput, the latency percentiles of a sample of the
+ * operations and the number of bytes allocated per operation are reported.
+ *
+ * Usage: CacheBenchmark [--targets LRU,FIFO,...] [--workloads GET,PUT,MIXED]
+ * [--distributions UNIFORM,ZIPF] [--capacities 1024,65536] [--threads 1,4]
+ * [--warmup millis] [--time millis] [--csv file]
+ */
+public final class CacheBenchmark {
+
+    private static final int KEYS_PER_THREAD = 1 << 18;
+    private static final int SAMPLES_PER_THREAD = 1 << 20;
+    /* Twice as many keys as entries, so that the gets also miss and the puts also evict */
+    private static final int KEY_SPACE_FACTOR = 2;
+    private static final String HEADER = "target,workload,distribution,capacity,threads,"
+            + "ops_per_second,p50_ns,p99_ns,p999_ns,bytes_per_op";
+
+    private CacheBenchmark() {
+
+    }
+
+    public static void main(String[] args) throws InterruptedException, FileNotFoundException {
+        Options options = Options.parse(args);
+        PrintStream csv = options.csvFile != null ? new PrintStream(options.csvFile) : null;
+
+        System.out.println(String.format(Locale.ROOT,
+                "%-14s %-7s %-8s %9s %7s %14s %8s %8s %9s %9s",
+                "target", "workload", "keys", "capacity", "threads",
+                "ops/s", "p50 ns", "p99 ns", "p99.9 ns", "bytes/op"));
+        if (csv != null) {
+            csv.println(HEADER);
+        }
+
+        for (Target target : options.targets) {
+            for (Workload workload : options.workloads) {
+                for (KeyDistribution distribution : options.distributions) {
+                    for (int capacity : options.capacities) {
+                        for (int threads : options.threads) {
+                            Result result = run(target, workload, distribution, capacity,
+                                    threads, options);
+                            System.out.println(result.format());
+                            if (csv != null) {
+                                csv.println(result.toCsv());
+                                csv.flush();
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        if (csv != null) {
+            csv.close();
+        }
+    }
+
+    private static Result run(Target target, Workload workload, KeyDistribution distribution,
+            int capacity, int threads, Options options) throws InterruptedException {
+        int keySpace = capacity * KEY_SPACE_FACTOR;
+        Target.Instance cache = target.create(capacity, keySpace, threads);
+        try {
+            for (int key = 0; key < capacity; key++) {
+                cache.put(key);
+            }
+
+            List<int[]> keys = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                keys.add(distribution.generate(KEYS_PER_THREAD, keySpace, 31L * i + capacity));
+            }
+
+            runPhase(cache, workload, keys, options.warmupMillis, false);
+            List<Worker> workers = runPhase(cache, workload, keys, options.measureMillis, true);
+
+            Result result = new Result(target, workload, distribution, capacity, threads);
+            List<LatencyRecorder> recorders = new ArrayList<>();
+            long operations = 0;
+            long allocatedBytes = 0;
+            for (Worker worker : workers) {
+                result.throughput += worker.operations * 1e9 / worker.elapsedNanos;
+                operations += worker.operations;
+                allocatedBytes = worker.allocatedBytes < 0 || allocatedBytes < 0
+                        ? -1 : allocatedBytes + worker.allocatedBytes;
+                recorders.add(worker.recorder);
+            }
+
+            result.latencies = LatencyRecorder.merge(recorders);
+            result.bytesPerOperation =
+                    allocatedBytes < 0 ? -1 : (double) allocatedBytes / operations;
+            return result;
+        } finally {
+            cache.close();
+        }
+    }
+
+    /**
+     * Run the workers on the cache for a given time.
+     */
+    private static List<Worker> runPhase(Target.Instance cache, Workload workload,
+            List<int[]> keys, long millis, boolean record) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Worker> workers = new ArrayList<>();
+        for (int[] threadKeys : keys) {
+            Worker worker = new Worker(cache, workload, threadKeys, start,
+                    record ? new LatencyRecorder(SAMPLES_PER_THREAD) : null);
+            workers.add(worker);
+            worker.start();
+        }
+
+        start.countDown();
+        Thread.sleep(millis);
+        for (Worker worker : workers) {
+            worker.running = false;
+        }
+        for (Worker worker : workers) {
+            worker.join();
+        }
+        for (Worker worker : workers) {
+            if (worker.failure != null) {
+                throw new IllegalStateException("Benchmark failed", worker.failure);
+            }
+        }
+        return workers;
+    }
+
+    private static final class Worker extends Thread {
+        private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+        private final Target.Instance cache;
+        private final Workload workload;
+        private final int[] keys;
+        private final CountDownLatch start;
+        private final LatencyRecorder recorder;
+
+        private volatile boolean running = true;
+        private long operations;
+        private long elapsedNanos;
+        private long allocatedBytes;
+        private RuntimeException failure;
+
+        Worker(Target.Instance cache, Workload workload, int[] keys, CountDownLatch start,
+                LatencyRecorder recorder) {
+            this.cache = cache;
+            this.workload = workload;
+            this.keys = keys;
+            this.start = start;
+            this.recorder = recorder;
+        }
+
+        @Override
+        public void run() {
+            try {
+                start.await();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            int mask = keys.length - 1;
+            long allocatedBefore = allocatedBytes();
+            long startNanos = System.nanoTime();
+            long operation = 0;
+
+            try {
+                while (running) {
+                    if (recorder != null && recorder.shouldSample(operation)) {
+                        long before = System.nanoTime();
+                        execute(operation, mask);
+                        recorder.record(System.nanoTime() - before);
+                    } else {
+                        execute(operation, mask);
+                    }
+                    operation++;
+                }
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+
+            elapsedNanos = System.nanoTime() - startNanos;
+            long allocatedAfter = allocatedBytes();
+            allocatedBytes = allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore;
+            operations = operation;
+        }
+
+        private void execute(long operation, int mask) {
+            int key = keys[(int) (operation & mask)];
+            if (workload.isPut(operation)) {
+                cache.put(key);
+            } else {
+                cache.get(key);
+            }
+        }
+
+        /**
+         * Get the number of bytes allocated by this thread so far, or -1 if the JVM cannot tell.
+         */
+        private long allocatedBytes() {
+            if (THREADS instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) THREADS;
+                if (threads.isThreadAllocatedMemorySupported()) {
+                    return threads.getThreadAllocatedBytes(getId());
+                }
+            }
+            return -1;
+        }
+    }
+
+    private static final class Result {
+        private final Target target;
+        private final Workload workload;
+        private final KeyDistribution distribution;
+        private final int capacity;
+        private final int threads;
+        private double throughput;
+        private long[] latencies;
+        private double bytesPerOperation;
+
+        Result(Target target, Workload workload, KeyDistribution distribution, int capacity,
+                int threads) {
+            this.target = target;
+            this.workload = workload;
+            this.distribution = distribution;
+            this.capacity = capacity;
+            this.threads = threads;
+        }
+
+        String format() {
+            return String.format(Locale.ROOT, "%-14s %-7s %-8s %9d %7d %14.0f %8d %8d %9d %9s",
+                    target, workload, distribution, capacity, threads, throughput,
+                    LatencyRecorder.percentile(latencies, 50),
+                    LatencyRecorder.percentile(latencies, 99),
+                    LatencyRecorder.percentile(latencies, 99.9),
+                    bytesPerOperation < 0
+                            ? "n/a" : String.format(Locale.ROOT, "%.1f", bytesPerOperation));
+        }
+
+        String toCsv() {
+            return String.format(Locale.ROOT, "%s,%s,%s,%d,%d,%.0f,%d,%d,%d,%.1f",
+                    target, workload, distribution, capacity, threads, throughput,
+                    LatencyRecorder.percentile(latencies, 50),
+                    LatencyRecorder.percentile(latencies, 99),
+                    LatencyRecorder.percentile(latencies, 99.9),
+                    bytesPerOperation);
+        }
+    }
+
+    private static final class Options {
+        private List<Target> targets = new ArrayList<>();
+        private List<Workload> workloads = new ArrayList<>();
+        private List<KeyDistribution> distributions = new ArrayList<>();
+        private List<Integer> capacities = new ArrayList<>();
+        private List<Integer> threads = new ArrayList<>();
+        private long warmupMillis = 1000;
+        private long measureMillis = 2000;
+        private String csvFile;
+
+        static Options parse(String[] args) {
+            Options options = new Options();
+            for (int i = 0; i < args.length; i += 2) {
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value for " + args[i]);
+                }
+                String value = args[i + 1];
+
+                switch (args[i]) {
+                    case "--targets":
+                        for (String name : value.split(",")) {
+                            options.targets.add(Target.valueOf(name));
+                        }
+                        break;
+                    case "--workloads":
+                        for (String name : value.split(",")) {
+                            options.workloads.add(Workload.valueOf(name));
+                        }
+                        break;
+                    case "--distributions":
+                        for (String name : value.split(",")) {
+                            options.distributions.add(KeyDistribution.valueOf(name));
+                        }
+                        break;
+                    case "--capacities":
+                        for (String number : value.split(",")) {
+                            options.capacities.add(Integer.parseInt(number));
+                        }
+                        break;
+                    case "--threads":
+                        for (String number : value.split(",")) {
+                            options.threads.add(Integer.parseInt(number));
+                        }
+                        break;
+                    case "--warmup":
+                        options.warmupMillis = Long.parseLong(value);
+                        break;
+                    case "--time":
+                        options.measureMillis = Long.parseLong(value);
+                        break;
+                    case "--csv":
+                        options.csvFile = value;
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                }
+            }
+
+            if (options.targets.isEmpty()) {
+                for (Target target : Target.values()) {
+                    options.targets.add(target);
+                }
+            }
+            if (options.workloads.isEmpty()) {
+                for (Workload workload : Workload.values()) {
+                    options.workloads.add(workload);
+                }
+            }
+            if (options.distributions.isEmpty()) {
+                for (KeyDistribution distribution : KeyDistribution.values()) {
+                    options.distributions.add(distribution);
+                }
+            }
+            if (options.capacities.isEmpty()) {
+                options.capacities.add(1024);
+                options.capacities.add(65536);
+            }
+            if (options.threads.isEmpty()) {
+                options.threads.add(1);
+                int processors = Runtime.getRuntime().availableProcessors();
+                if (processors > 1) {
+                    options.threads.add(processors);
+                }
+            }
+            return options;
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures the heap retained by the caches. Each target is created and filled up to its capacity,
+ * and the used heap after a garbage collection is compared with the used heap before creating it.
+ * The boxed keys of the benchmark, about 20 bytes per entry, are counted for every target, since a
+ * cache storing boxed keys retains them as well.
+ *
+ * Usage: FootprintBenchmark [--targets LRU,INT_KEY_LRU,...] [--capacities 65536,1048576]
+ */
+public final class FootprintBenchmark {
+
+    private static final int GC_ROUNDS = 5;
+
+    private FootprintBenchmark() {
+
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        List<Target> targets = new ArrayList<>();
+        List<Integer> capacities = new ArrayList<>();
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + args[i]);
+            }
+            String value = args[i + 1];
+
+            switch (args[i]) {
+                case "--targets":
+                    for (String name : value.split(",")) {
+                        targets.add(Target.valueOf(name));
+                    }
+                    break;
+                case "--capacities":
+                    for (String number : value.split(",")) {
+                        capacities.add(Integer.parseInt(number));
+                    }
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        if (targets.isEmpty()) {
+            for (Target target : Target.values()) {
+                if (target != Target.FILE_CACHE) {
+                    targets.add(target);
+                }
+            }
+        }
+        if (capacities.isEmpty()) {
+            capacities.add(65536);
+            capacities.add(1 << 20);
+        }
+
+        System.out.println(String.format(Locale.ROOT, "%-14s %9s %15s %15s",
+                "target", "capacity", "retained bytes", "bytes/entry"));
+        for (Target target : targets) {
+            for (int capacity : capacities) {
+                long before = usedHeap();
+                Target.Instance cache = target.create(capacity, capacity, 1);
+                for (int key = 0; key < capacity; key++) {
+                    cache.put(key);
+                }
+                long retained = usedHeap() - before;
+
+                System.out.println(String.format(Locale.ROOT, "%-14s %9d %15d %15.1f",
+                        target, capacity, retained, (double) retained / capacity));
+                cache.close();
+            }
+        }
+    }
+
+    /**
+     * Get the used heap after collecting the garbage a few times, until it stops decreasing.
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < GC_ROUNDS; i++) {
+            System.gc();
+            Thread.sleep(50);
+            long current = runtime.totalMemory() - runtime.freeMemory();
+            if (current >= used) {
+                break;
+            }
+            used = current;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.util.Random;
+
+/**
+ * The distributions used to pick the keys of a benchmark. The keys are generated before the
+ * measurement starts, so that generating them is not part of the measured operations.
+ */
+public enum KeyDistribution {
+    /**
+     * Every key is equally likely.
+     */
+    UNIFORM {
+        @Override
+        public int[] generate(int count, int keySpace, long seed) {
+            Random random = new Random(seed);
+            int[] keys = new int[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = random.nextInt(keySpace);
+            }
+            return keys;
+        }
+    },
+    /**
+     * The probability of the key of rank i is proportional to 1 / i^0.99, as in the YCSB
+     * workloads. A few keys get most of the accesses.
+     */
+    ZIPF {
+        @Override
+        public int[] generate(int count, int keySpace, long seed) {
+            double[] cumulative = new double[keySpace];
+            double sum = 0;
+            for (int i = 0; i < keySpace; i++) {
+                sum += 1.0 / Math.pow(i + 1, ZIPF_EXPONENT);
+                cumulative[i] = sum;
+            }
+
+            Random random = new Random(seed);
+            int[] keys = new int[count];
+            for (int i = 0; i < count; i++) {
+                keys[i] = rankOf(cumulative, random.nextDouble() * sum);
+            }
+            return keys;
+        }
+    };
+
+    private static final double ZIPF_EXPONENT = 0.99;
+
+    /**
+     * Generate a sequence of keys.
+     *
+     * @param count the number of keys to generate
+     * @param keySpace the keys are taken from 0 to keySpace - 1
+     * @param seed the seed of the random generator
+     * @return the keys
+     */
+    public abstract int[] generate(int count, int keySpace, long seed);
+
+    private static int rankOf(double[] cumulative, double value) {
+        int low = 0;
+        int high = cumulative.length - 1;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cumulative[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,72 @@
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Records the latency of a sample of the operations of one thread. The samples are stored in an
+ * array allocated up front, so that recording them does not allocate during the measurement.
+ */
+public final class LatencyRecorder {
+
+    /* Timing every operation would mostly measure System.nanoTime */
+    private static final int SAMPLE_MASK = 7;
+
+    private final long[] samples;
+    private int count;
+
+    public LatencyRecorder(int maximumSamples) {
+        samples = new long[maximumSamples];
+    }
+
+    /**
+     * Tells whether the operation of a given index should be timed.
+     *
+     * @param operation the index of the operation
+     * @return true if the operation is part of the sample
+     */
+    public boolean shouldSample(long operation) {
+        return (operation & SAMPLE_MASK) == 0 && count < samples.length;
+    }
+
+    public void record(long nanos) {
+        samples[count++] = nanos;
+    }
+
+    /**
+     * Merge the samples of several threads and sort them.
+     *
+     * @param recorders the recorders of the threads
+     * @return the sorted latencies, in nanoseconds
+     */
+    public static long[] merge(List<LatencyRecorder> recorders) {
+        int total = 0;
+        for (LatencyRecorder recorder : recorders) {
+            total += recorder.count;
+        }
+
+        long[] merged = new long[total];
+        int offset = 0;
+        for (LatencyRecorder recorder : recorders) {
+            System.arraycopy(recorder.samples, 0, merged, offset, recorder.count);
+            offset += recorder.count;
+        }
+        Arrays.sort(merged);
+        return merged;
+    }
+
+    /**
+     * Get a percentile of sorted latencies.
+     *
+     * @param sorted the sorted latencies
+     * @param percentile the percentile, between 0 and 100
+     * @return the latency, or 0 if there are no latencies
+     */
+    public static long percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+    }
+}
@@ -0,0 +1,246 @@
+package benchmarks;
+
+import cachingSystem.FileCache;
+import cachingSystem.classes.ARCCache;
+import cachingSystem.classes.ArrayLRUCache;
+import cachingSystem.classes.BufferedLRUCache;
+import cachingSystem.classes.ClockProCache;
+import cachingSystem.classes.ConcurrentLRUCache;
+import cachingSystem.classes.IntKeyLRUCache;
+import cachingSystem.classes.LRUCache;
+import cachingSystem.classes.ObservableCache;
+import cachingSystem.classes.ObservableFIFOCache;
+import cachingSystem.classes.SynchronizedCache;
+import cachingSystem.classes.TimeAwareCache;
+import cachingSystem.classes.TinyLFUCache;
+import cachingSystem.interfaces.CacheStalePolicy;
+import dataStructures.classes.Pair;
+import observerPattern.interfaces.CacheListener;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The caches that can be benchmarked. Each target is a cache bounded by a number of entries, with
+ * the keys of the benchmark already boxed, so that the measured operations only allocate what the
+ * cache itself allocates.
+ */
+public enum Target {
+    FIFO(false),
+    LRU(false),
+    TIME_AWARE(false),
+    CONCURRENT_LRU(true),
+    BUFFERED_LRU(true),
+    TINY_LFU(false),
+    ARRAY_LRU(false),
+    ARC(false),
+    CLOCK_PRO(true),
+    /**
+     * An IntKeyLRUCache, used through its unboxed methods and without a cache listener when it is
+     * not wrapped, so that the keys are only boxed on evictions.
+     */
+    INT_KEY_LRU(false),
+    /**
+     * A FileCache with the LRU strategy, reading small files from a temporary directory on misses.
+     */
+    FILE_CACHE(true);
+
+    private static final long EXPIRATION_MILLIS = 60_000;
+
+    private final boolean threadSafe;
+
+    Target(boolean threadSafe) {
+        this.threadSafe = threadSafe;
+    }
+
+    /**
+     * Create a fresh cache for a benchmark run.
+     *
+     * @param capacity the maximum number of entries
+     * @param keySpace the number of distinct keys used by the run
+     * @param threads the number of threads using the cache; the caches that are not thread-safe
+     *                are wrapped in a SynchronizedCache when there are several
+     * @return the cache, ready to be used with the keys from 0 to keySpace - 1
+     */
+    public Instance create(int capacity, int keySpace, int threads) {
+        if (this == FILE_CACHE) {
+            return new FileCacheInstance(capacity, keySpace);
+        }
+
+        ObservableCache<Integer, Integer> cache = createCache(capacity);
+        if (threads > 1 && !threadSafe) {
+            cache = new SynchronizedCache<>(cache);
+        } else if (this == INT_KEY_LRU) {
+            return new IntKeyInstance((IntKeyLRUCache<Integer>) cache, capacity, keySpace);
+        }
+        return new CacheInstance(cache, capacity, keySpace);
+    }
+
+    private ObservableCache<Integer, Integer> createCache(int capacity) {
+        switch (this) {
+            case FIFO:
+                return new ObservableFIFOCache<>();
+            case LRU:
+                return new LRUCache<>();
+            case TIME_AWARE:
+                TimeAwareCache<Integer, Integer> cache = new TimeAwareCache<>();
+                cache.setExpirePolicy(EXPIRATION_MILLIS);
+                return cache;
+            case CONCURRENT_LRU:
+                return new ConcurrentLRUCache<>();
+            case BUFFERED_LRU:
+                return new BufferedLRUCache<>();
+            case TINY_LFU:
+                return new TinyLFUCache<>(capacity);
+            case ARRAY_LRU:
+                return new ArrayLRUCache<>(capacity);
+            case ARC:
+                return new ARCCache<>(capacity);
+            case CLOCK_PRO:
+                return new ClockProCache<>(capacity);
+            case INT_KEY_LRU:
+                return new IntKeyLRUCache<>(capacity);
+            default:
+                throw new IllegalArgumentException("Not a data cache: " + this);
+        }
+    }
+
+    /**
+     * A cache created for one benchmark run. The keys are given by their index.
+     */
+    public interface Instance {
+        void get(int key);
+
+        void put(int key);
+
+        /**
+         * Free the resources of the cache once the run is over.
+         */
+        void close();
+    }
+
+    private static class CacheInstance implements Instance {
+        private final ObservableCache<Integer, Integer> cache;
+        final Integer[] keys;
+
+        CacheInstance(ObservableCache<Integer, Integer> cache, int capacity, int keySpace) {
+            this.cache = cache;
+            this.keys = new Integer[keySpace];
+            for (int i = 0; i < keySpace; i++) {
+                keys[i] = i;
+            }
+
+            cache.setCacheListener(new CacheListener<Integer, Integer>() {
+                @Override
+                public void onHit(Integer key) {
+
+                }
+
+                @Override
+                public void onMiss(Integer key) {
+
+                }
+
+                @Override
+                public void onPut(Integer key, Integer value) {
+
+                }
+            });
+            cache.setStalePolicy(new CacheStalePolicy<Integer, Integer>() {
+                @Override
+                public boolean shouldRemoveEldestEntry(Pair<Integer, Integer> entry) {
+                    return cache.size() > capacity;
+                }
+            });
+        }
+
+        @Override
+        public void get(int key) {
+            cache.get(keys[key]);
+        }
+
+        @Override
+        public void put(int key) {
+            cache.put(keys[key], keys[key]);
+        }
+
+        @Override
+        public void close() {
+            cache.clearAll();
+        }
+    }
+
+    /**
+     * Uses the int methods of the cache; the boxed keys are only used as values.
+     */
+    private static final class IntKeyInstance extends CacheInstance {
+        private final IntKeyLRUCache<Integer> cache;
+
+        IntKeyInstance(IntKeyLRUCache<Integer> cache, int capacity, int keySpace) {
+            super(cache, capacity, keySpace);
+            this.cache = cache;
+            cache.setCacheListener(null);
+        }
+
+        @Override
+        public void get(int key) {
+            cache.getInt(key);
+        }
+
+        @Override
+        public void put(int key) {
+            cache.putInt(key, keys[key]);
+        }
+    }
+
+    private static final class FileCacheInstance implements Instance {
+        private static final String CONTENTS = "benchmark file contents";
+
+        private final FileCache cache;
+        private final String[] paths;
+        private final Path directory;
+
+        FileCacheInstance(int capacity, int keySpace) {
+            cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, capacity);
+            paths = new String[keySpace];
+            try {
+                directory = Files.createTempDirectory("cache-benchmark");
+                byte[] bytes = CONTENTS.getBytes(StandardCharsets.UTF_8);
+                for (int i = 0; i < keySpace; i++) {
+                    Path file = directory.resolve(i + ".txt");
+                    Files.write(file, bytes);
+                    paths[i] = file.toString();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public void get(int key) {
+            cache.getFileContents(paths[key]);
+        }
+
+        @Override
+        public void put(int key) {
+            cache.putFileContents(paths[key], CONTENTS);
+        }
+
+        @Override
+        public void close() {
+            cache.close();
+            try {
+                for (String path : paths) {
+                    Files.deleteIfExists(Paths.get(path));
+                }
+                Files.deleteIfExists(directory);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package benchmarks;
+
+/**
+ * The mix of operations run by each benchmark thread.
+ */
+public enum Workload {
+    /**
+     * Only gets.
+     */
+    GET(0),
+    /**
+     * Only puts.
+     */
+    PUT(100),
+    /**
+     * 90% gets and 10% puts.
+     */
+    MIXED(10);
+
+    private final int putPercentage;
+
+    Workload(int putPercentage) {
+        this.putPercentage = putPercentage;
+    }
+
+    /**
+     * Tells whether the operation of a given index is a put. The puts are spread evenly over the
+     * sequence of operations.
+     *
+     * @param operation the index of the operation
+     * @return true for a put, false for a get
+     */
+    public boolean isPut(long operation) {
+        return operation * putPercentage % 100 < putPercentage;
+    }
+}
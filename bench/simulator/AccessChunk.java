@@ -0,0 +1,45 @@
+package simulator;
+
+/**
+ * A chunk of consecutive accesses read from a trace. Traces are replayed chunk by chunk, so that
+ * they never have to fit in memory.
+ */
+public final class AccessChunk {
+
+    private final Object[] keys;
+    private final boolean[] puts;
+    private int size;
+
+    public AccessChunk(int capacity) {
+        keys = new Object[capacity];
+        puts = new boolean[capacity];
+    }
+
+    /**
+     * Add an access at the end of the chunk.
+     *
+     * @param key the accessed key
+     * @param put true for a put, false for a get
+     */
+    public void add(Object key, boolean put) {
+        keys[size] = key;
+        puts[size] = put;
+        size++;
+    }
+
+    public boolean isFull() {
+        return size == keys.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Object getKey(int index) {
+        return keys[index];
+    }
+
+    public boolean isPut(int index) {
+        return puts[index];
+    }
+}
@@ -0,0 +1,116 @@
+package simulator;
+
+import cachingSystem.FileCache;
+import cachingSystem.classes.ObservableCache;
+import cachingSystem.interfaces.CacheStalePolicy;
+import dataStructures.classes.Pair;
+import observerPattern.interfaces.CacheListener;
+
+/**
+ * Replays a trace against the cache of one strategy and capacity. A get that misses is followed
+ * by a put of the key, as FileCache does when it loads a file. The values are the keys themselves,
+ * so that the replay does not need the real contents.
+ */
+public final class Simulation {
+
+    private final FileCache.Strategy strategy;
+    private final int capacity;
+    private final ObservableCache<Object, Object> cache;
+
+    private long hits;
+    private long misses;
+    private long puts;
+    private long elapsedNanos;
+
+    public Simulation(FileCache.Strategy strategy, int capacity) {
+        this.strategy = strategy;
+        this.capacity = capacity;
+        this.cache = FileCache.createDataCache(strategy, capacity);
+
+        cache.setCacheListener(new CacheListener<Object, Object>() {
+            @Override
+            public void onHit(Object key) {
+
+            }
+
+            @Override
+            public void onMiss(Object key) {
+
+            }
+
+            @Override
+            public void onPut(Object key, Object value) {
+
+            }
+        });
+        cache.setStalePolicy(new CacheStalePolicy<Object, Object>() {
+            @Override
+            public boolean shouldRemoveEldestEntry(Pair<Object, Object> entry) {
+                return cache.size() > capacity;
+            }
+        });
+    }
+
+    /**
+     * Replay a chunk of accesses. The chunks of a trace must be replayed in order, by one thread at
+     * a time.
+     *
+     * @param chunk the accesses
+     */
+    public void replay(AccessChunk chunk) {
+        long start = System.nanoTime();
+        for (int i = 0; i < chunk.size(); i++) {
+            Object key = chunk.getKey(i);
+            if (chunk.isPut(i)) {
+                cache.put(key, key);
+                puts++;
+            } else if (cache.get(key) != null) {
+                hits++;
+            } else {
+                misses++;
+                cache.put(key, key);
+            }
+        }
+        elapsedNanos += System.nanoTime() - start;
+    }
+
+    public FileCache.Strategy getStrategy() {
+        return strategy;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getPuts() {
+        return puts;
+    }
+
+    /**
+     * Get the fraction of the gets that were hits.
+     *
+     * @return the hit ratio, or 0 if there were no gets
+     */
+    public double getHitRatio() {
+        long gets = hits + misses;
+        return gets == 0 ? 0 : (double) hits / gets;
+    }
+
+    /**
+     * Get the number of accesses replayed per second, not counting the time spent reading the
+     * trace.
+     *
+     * @return the throughput
+     */
+    public double getOperationsPerSecond() {
+        return elapsedNanos == 0 ? 0 : (hits + misses + puts) * 1e9 / elapsedNanos;
+    }
+}
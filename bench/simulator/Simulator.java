@@ -0,0 +1,141 @@
+package simulator;
+
+import cachingSystem.FileCache;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Replays a trace against every combination of strategy and capacity, and reports the hit ratio
+ * and the throughput of each one as CSV. The trace is read once, in chunks; while the simulations
+ * replay a chunk in parallel, the next chunk is being read.
+ *
+ * Usage: Simulator [--format MAIN|KEYS|ARC|SPC] [--strategies FIFO,LRU,...]
+ * [--capacities 100,1000,10000] [--csv file] trace
+ */
+public final class Simulator {
+
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final String HEADER =
+            "trace,strategy,capacity,gets,hits,misses,puts,hit_ratio,ops_per_second";
+
+    private Simulator() {
+
+    }
+
+    public static void main(String[] args)
+            throws IOException, InterruptedException, ExecutionException {
+        TraceFormat format = TraceFormat.MAIN;
+        List<FileCache.Strategy> strategies = new ArrayList<>();
+        List<Integer> capacities = new ArrayList<>();
+        String csvFile = null;
+        String trace = null;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--format":
+                    format = TraceFormat.valueOf(args[++i]);
+                    break;
+                case "--strategies":
+                    for (String name : args[++i].split(",")) {
+                        strategies.add(FileCache.Strategy.valueOf(name));
+                    }
+                    break;
+                case "--capacities":
+                    for (String number : args[++i].split(",")) {
+                        capacities.add(Integer.parseInt(number));
+                    }
+                    break;
+                case "--csv":
+                    csvFile = args[++i];
+                    break;
+                default:
+                    trace = args[i];
+                    break;
+            }
+        }
+
+        if (trace == null) {
+            throw new IllegalArgumentException("Missing path to trace file.");
+        }
+        if (strategies.isEmpty()) {
+            for (FileCache.Strategy strategy : FileCache.Strategy.values()) {
+                strategies.add(strategy);
+            }
+        }
+        if (capacities.isEmpty()) {
+            capacities.add(100);
+            capacities.add(1000);
+            capacities.add(10000);
+        }
+
+        List<Simulation> simulations = new ArrayList<>();
+        for (FileCache.Strategy strategy : strategies) {
+            for (int capacity : capacities) {
+                simulations.add(new Simulation(strategy, capacity));
+            }
+        }
+
+        Path tracePath = Paths.get(trace);
+        replay(tracePath, format, simulations);
+
+        PrintStream out = csvFile != null ? new PrintStream(csvFile) : System.out;
+        out.println(HEADER);
+        for (Simulation simulation : simulations) {
+            out.println(String.format(Locale.ROOT, "%s,%s,%d,%d,%d,%d,%d,%.4f,%.0f",
+                    tracePath.getFileName(), simulation.getStrategy(), simulation.getCapacity(),
+                    simulation.getHits() + simulation.getMisses(), simulation.getHits(),
+                    simulation.getMisses(), simulation.getPuts(), simulation.getHitRatio(),
+                    simulation.getOperationsPerSecond()));
+        }
+        if (out != System.out) {
+            out.close();
+        }
+    }
+
+    /**
+     * Replay a trace against all the simulations, one chunk at a time.
+     */
+    private static void replay(Path trace, TraceFormat format, List<Simulation> simulations)
+            throws IOException, InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(
+                Math.min(simulations.size(), Runtime.getRuntime().availableProcessors()));
+
+        try (TraceReader reader = new TraceReader(trace, format, CHUNK_SIZE)) {
+            AccessChunk chunk = reader.next();
+            while (chunk != null) {
+                List<Future<Void>> replays = new ArrayList<>();
+                for (Simulation simulation : simulations) {
+                    replays.add(executor.submit(createReplay(simulation, chunk)));
+                }
+
+                chunk = reader.next();
+                for (Future<Void> replay : replays) {
+                    replay.get();
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static Callable<Void> createReplay(Simulation simulation, AccessChunk chunk) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() {
+                simulation.replay(chunk);
+                return null;
+            }
+        };
+    }
+}
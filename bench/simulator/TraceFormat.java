@@ -0,0 +1,96 @@
+package simulator;
+
+/**
+ * The formats of the traces that can be replayed. A trace is read line by line, and each line
+ * gives zero or more accesses.
+ */
+public enum TraceFormat {
+    /**
+     * The command files of Main: "get key" and "put key contents" are replayed, the other commands
+     * (the cache type on the first line, delays and stats queries) are skipped.
+     */
+    MAIN {
+        @Override
+        public void parse(String line, AccessSink sink) {
+            String[] tokens = line.trim().split(" ");
+            if (tokens.length < 2) {
+                return;
+            }
+            if (tokens[0].equals("get")) {
+                sink.access(tokens[1], false);
+            } else if (tokens[0].equals("put")) {
+                sink.access(tokens[1], true);
+            }
+        }
+    },
+    /**
+     * One key per line; every line is a get. This is also the format of the LIRS traces.
+     */
+    KEYS {
+        @Override
+        public void parse(String line, AccessSink sink) {
+            String key = line.trim();
+            if (!key.isEmpty() && !key.startsWith("#")) {
+                sink.access(key, false);
+            }
+        }
+    },
+    /**
+     * The ARC traces: "start_block block_count ignored request_number". Each block of the range
+     * is a get.
+     */
+    ARC {
+        @Override
+        public void parse(String line, AccessSink sink) {
+            String[] tokens = line.trim().split("\\s+");
+            if (tokens.length < 2) {
+                return;
+            }
+            long start = Long.parseLong(tokens[0]);
+            int count = Integer.parseInt(tokens[1]);
+            for (int i = 0; i < count; i++) {
+                sink.access(start + i, false);
+            }
+        }
+    },
+    /**
+     * The SPC / UMass storage traces: "asu,lba,size_in_bytes,opcode,timestamp". Each 512-byte
+     * block of a request is a get for a read ("r") and a put for a write ("w").
+     */
+    SPC {
+        @Override
+        public void parse(String line, AccessSink sink) {
+            String[] tokens = line.trim().split(",");
+            if (tokens.length < 4) {
+                return;
+            }
+            long asu = Long.parseLong(tokens[0].trim());
+            long block = Long.parseLong(tokens[1].trim());
+            long bytes = Long.parseLong(tokens[2].trim());
+            boolean put = tokens[3].trim().equalsIgnoreCase("w");
+
+            long blocks = Math.max(1, (bytes + SPC_BLOCK_SIZE - 1) / SPC_BLOCK_SIZE);
+            for (long i = 0; i < blocks; i++) {
+                /* Blocks of different units are different keys */
+                sink.access((asu << 48) | (block + i), put);
+            }
+        }
+    };
+
+    private static final long SPC_BLOCK_SIZE = 512;
+
+    /**
+     * Parse one line of a trace.
+     *
+     * @param line the line
+     * @param sink receives the accesses of the line, in order
+     */
+    public abstract void parse(String line, AccessSink sink);
+
+    /**
+     * Receives the accesses parsed from a trace.
+     */
+    public interface AccessSink {
+        void access(Object key, boolean put);
+    }
+}
@@ -0,0 +1,83 @@
+package simulator;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Reads a trace as a sequence of chunks of accesses. Traces ending in ".gz" are decompressed on the
+ * fly.
+ */
+public final class TraceReader implements TraceFormat.AccessSink, Closeable {
+
+    private final BufferedReader reader;
+    private final TraceFormat format;
+    private final int chunkSize;
+    private final ArrayDeque<AccessChunk> ready = new ArrayDeque<>();
+    private AccessChunk current;
+    private long lineNumber;
+
+    public TraceReader(Path trace, TraceFormat format, int chunkSize) throws IOException {
+        InputStream input = Files.newInputStream(trace);
+        if (trace.getFileName().toString().endsWith(".gz")) {
+            input = new GZIPInputStream(input);
+        }
+
+        this.reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+        this.format = format;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Read the next chunk of accesses. Every chunk is full, except maybe the last one.
+     *
+     * @return the chunk, or null at the end of the trace
+     * @throws IOException if the trace cannot be read
+     */
+    public AccessChunk next() throws IOException {
+        while (ready.isEmpty()) {
+            String line = reader.readLine();
+            if (line == null) {
+                if (current != null) {
+                    ready.add(current);
+                    current = null;
+                }
+                break;
+            }
+
+            lineNumber++;
+            try {
+                format.parse(line, this);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException(
+                        "Invalid " + format + " trace line " + lineNumber + ": " + line, e);
+            }
+        }
+        return ready.poll();
+    }
+
+    @Override
+    public void access(Object key, boolean put) {
+        if (current == null) {
+            current = new AccessChunk(chunkSize);
+        }
+
+        current.add(key, put);
+        if (current.isFull()) {
+            ready.add(current);
+            current = null;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
@@ -1,119 +1,1122 @@
 package cachingSystem;
 
+import cachingSystem.classes.ARCCache;
+import cachingSystem.classes.ArrayLRUCache;
+import cachingSystem.classes.BufferedLRUCache;
+import cachingSystem.classes.CacheLoadException;
+import cachingSystem.classes.CacheSnapshot;
+import cachingSystem.classes.ClockProCache;
+import cachingSystem.classes.CompressedFileContents;
+import cachingSystem.classes.CompressionStats;
+import cachingSystem.classes.ConcurrentLRUCache;
+import cachingSystem.classes.ContentCompressor;
+import cachingSystem.classes.DiskTier;
+import cachingSystem.classes.FileChangeWatcher;
+import cachingSystem.classes.HeapFileContents;
 import cachingSystem.classes.ObservableCache;
 import cachingSystem.classes.ObservableFIFOCache;
 import cachingSystem.classes.LRUCache;
+import cachingSystem.classes.LoadingCache;
+import cachingSystem.classes.MappedFileContents;
+import cachingSystem.classes.OffHeapFileContents;
+import cachingSystem.classes.SynchronizedCache;
 import cachingSystem.classes.TimeAwareCache;
+import cachingSystem.classes.TinyLFUCache;
+import cachingSystem.interfaces.CacheLoader;
 import cachingSystem.interfaces.CacheStalePolicy;
+import cachingSystem.interfaces.Expiry;
+import cachingSystem.interfaces.FileContents;
+import cachingSystem.interfaces.RemovalListener;
+import cachingSystem.interfaces.Weigher;
 import dataStructures.classes.Pair;
+import dataStructures.classes.SlabAllocator;
+import observerPattern.classes.AsyncBroadcastListener;
 import observerPattern.classes.BroadcastListener;
 import observerPattern.interfaces.CacheListener;
 
 import java.io.IOException;
-import java.nio.charset.Charset;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
 
 public final class FileCache {
 
     public enum Strategy {
         FIFO,
         LRU,
+        CONCURRENT_LRU,
+        BUFFERED_LRU,
+        TINY_LFU,
+        ARRAY_LRU,
+        ARC,
+        CLOCK_PRO,
     }
 
-    public static FileCache createCacheWithCapacity(
-            Strategy strategy, int capacity) {
-        ObservableCache<String, String> dataCache;
+    /**
+     * Where the contents of the cached files are kept.
+     */
+    public enum Storage {
+        /**
+         * On the heap, as strings.
+         */
+        HEAP,
+        /**
+         * In native memory slabs; only small handles are kept on the heap.
+         */
+        OFF_HEAP,
+        /**
+         * As read-only memory mappings of the files. Contents put directly in the cache are kept
+         * on the heap.
+         */
+        MAPPED,
+        /**
+         * On the heap, deflated when larger than a threshold and decompressed on read. The most
+         * recently read files are also kept decompressed, in a small set of limited size.
+         */
+        COMPRESSED,
+    }
 
-        switch (strategy) {
+    /**
+     * The contents of a file as bytes, read from the cached memory without copying it. The memory
+     * is kept until the buffer is closed, even if the file is evicted meanwhile.
+     */
+    public static final class FileBuffer implements AutoCloseable {
+
+        private final ByteBuffer buffer;
+        private final FileContents contents;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private FileBuffer(ByteBuffer buffer, FileContents contents) {
+            this.buffer = buffer;
+            this.contents = contents;
+        }
+
+        /**
+         * Get a read-only view of the contents. The view must not be used after the buffer was
+         * closed.
+         *
+         * @return the contents, from position 0 to the limit
+         */
+        public ByteBuffer getBuffer() {
+            return buffer;
+        }
+
+        /**
+         * Drop the reference to the cached memory. Closing twice has no effect.
+         */
+        @Override
+        public void close() {
+            if (contents != null && closed.compareAndSet(false, true)) {
+                contents.release();
+            }
+        }
+    }
+
+    /* Used to size the strategies that need an entry count when the capacity is a weight */
+    private static final int ESTIMATED_ENTRY_WEIGHT = 4096;
+    /* Keeps the mapped storage well below the default per-process limit of the kernel (65530) */
+    private static final int MAXIMUM_MAPPINGS = 16384;
+    private static final int DEFAULT_COMPRESSION_THRESHOLD = 1024;
+    private static final long DEFAULT_HOT_SET_BYTES = 8 << 20;
+    /* Past this number of evicted files waiting for the disk tier, the next ones are dropped */
+    private static final int MAXIMUM_PENDING_SPILLS = 1024;
 
+    /**
+     * Create the cache for a strategy, without any stale policy. The strategies that are not
+     * thread-safe are wrapped in a SynchronizedCache, since files may be loaded by other threads.
+     *
+     * @param strategy the eviction strategy
+     * @param capacity the expected maximum number of entries
+     * @return the cache
+     */
+    public static <K, V> ObservableCache<K, V> createDataCache(Strategy strategy, int capacity) {
+        switch (strategy) {
             case FIFO:
-                dataCache = new ObservableFIFOCache<>();
-                break;
+                return new SynchronizedCache<>(new ObservableFIFOCache<>());
             case LRU:
-                dataCache = new LRUCache<>();
-                break;
+                return new SynchronizedCache<>(new LRUCache<>());
+            case CONCURRENT_LRU:
+                return new ConcurrentLRUCache<>();
+            case BUFFERED_LRU:
+                return new BufferedLRUCache<>();
+            case TINY_LFU:
+                return new SynchronizedCache<>(new TinyLFUCache<>(capacity));
+            case ARRAY_LRU:
+                return new SynchronizedCache<>(new ArrayLRUCache<>(capacity));
+            case ARC:
+                return new SynchronizedCache<>(new ARCCache<>(capacity));
+            case CLOCK_PRO:
+                return new ClockProCache<>(capacity);
             default:
                 throw new IllegalArgumentException("Unsupported cache strategy: " + strategy);
         }
+    }
 
-        dataCache.setStalePolicy(new CacheStalePolicy<String, String>() {
+    public static FileCache createCacheWithCapacity(
+            Strategy strategy, int capacity) {
+        return createCacheWithCapacity(strategy, capacity, Storage.HEAP);
+    }
+
+    /**
+     * Create a cache holding at most a given number of files.
+     *
+     * @param strategy the eviction strategy
+     * @param capacity the maximum number of files
+     * @param storage where the contents are kept
+     * @return the cache
+     */
+    public static FileCache createCacheWithCapacity(
+            Strategy strategy, int capacity, Storage storage) {
+        ObservableCache<String, FileContents> dataCache = createDataCache(strategy, capacity);
+
+        dataCache.setStalePolicy(new CacheStalePolicy<String, FileContents>() {
             @Override
-            public boolean shouldRemoveEldestEntry(Pair<String, String> entry) {
+            public boolean shouldRemoveEldestEntry(Pair<String, FileContents> entry) {
                 return dataCache.size() > capacity;
             }
         });
 
-        return new FileCache(dataCache);
+        return new FileCache(dataCache, storage);
+    }
+
+    /**
+     * Create a cache bounded by the total size of the file contents, in UTF-8 bytes.
+     *
+     * @param strategy the eviction strategy
+     * @param maximumWeight the maximum number of bytes held by the cache
+     * @return the cache
+     */
+    public static FileCache createCacheWithMaximumWeight(Strategy strategy, long maximumWeight) {
+        return createCacheWithMaximumWeight(strategy, maximumWeight, Storage.HEAP);
+    }
+
+    /**
+     * Create a cache bounded by the total size of the file contents, in UTF-8 bytes. With
+     * compressed storage, the compressed contents count for their compressed size.
+     *
+     * @param strategy the eviction strategy
+     * @param maximumWeight the maximum number of bytes held by the cache
+     * @param storage where the contents are kept
+     * @return the cache
+     */
+    public static FileCache createCacheWithMaximumWeight(
+            Strategy strategy, long maximumWeight, Storage storage) {
+        return createCacheWithMaximumWeight(
+                strategy, maximumWeight, storage, createContentWeigher());
+    }
+
+    /**
+     * Create a cache bounded by the total weight of its entries.
+     *
+     * @param strategy the eviction strategy
+     * @param maximumWeight the maximum total weight
+     * @param storage where the contents are kept
+     * @param weigher computes the weight of each entry
+     * @return the cache
+     */
+    public static FileCache createCacheWithMaximumWeight(Strategy strategy, long maximumWeight,
+            Storage storage, Weigher<String, FileContents> weigher) {
+        int estimatedCapacity = (int) Math.min(
+                Math.max(maximumWeight / ESTIMATED_ENTRY_WEIGHT, 16), 1 << 24);
+        ObservableCache<String, FileContents> dataCache =
+                createDataCache(strategy, estimatedCapacity);
+
+        dataCache.setWeigher(weigher);
+        dataCache.setStalePolicy(new CacheStalePolicy<String, FileContents>() {
+            @Override
+            public boolean shouldRemoveEldestEntry(Pair<String, FileContents> entry) {
+                return dataCache.getTotalWeight() > maximumWeight;
+            }
+        });
+
+        return new FileCache(dataCache, storage);
     }
 
     public static FileCache createCacheWithExpiration(long millisToExpire) {
-        TimeAwareCache<String, String> dataCache = new TimeAwareCache<>();
+        TimeAwareCache<String, FileContents> dataCache = new TimeAwareCache<>();
+        dataCache.setExpirePolicy(millisToExpire);
+
+        return new FileCache(new SynchronizedCache<>(dataCache), Storage.HEAP);
+    }
+
+    /**
+     * Create a cache whose entries expire after a given time, and which is also bounded by the
+     * total size of the file contents, in UTF-8 bytes.
+     *
+     * @param millisToExpire the expiration time, in milliseconds
+     * @param maximumWeight the maximum number of bytes held by the cache
+     * @return the cache
+     */
+    public static FileCache createCacheWithExpiration(long millisToExpire, long maximumWeight) {
+        TimeAwareCache<String, FileContents> dataCache = new TimeAwareCache<>();
+        dataCache.setExpirePolicy(millisToExpire);
+        dataCache.setWeigher(createContentWeigher());
+        dataCache.setStalePolicy(new CacheStalePolicy<String, FileContents>() {
+            @Override
+            public boolean shouldRemoveEldestEntry(Pair<String, FileContents> entry) {
+                return dataCache.getTotalWeight() > maximumWeight;
+            }
+        });
+
+        return new FileCache(new SynchronizedCache<>(dataCache), Storage.HEAP);
+    }
+
+    /**
+     * Create a cache whose entries expire after a given time, and are read again in the background
+     * when they are accessed after the refresh time. A file read often is thus reloaded before it
+     * expires, and its readers keep getting the cached contents meanwhile.
+     *
+     * @param millisToExpire the expiration time, in milliseconds
+     * @param millisToRefresh the refresh time, in milliseconds
+     * @return the cache
+     */
+    public static FileCache createCacheWithRefresh(long millisToExpire, long millisToRefresh) {
+        TimeAwareCache<String, FileContents> dataCache = new TimeAwareCache<>();
         dataCache.setExpirePolicy(millisToExpire);
 
-        return new FileCache(dataCache);
+        FileCache fileCache = new FileCache(new SynchronizedCache<>(dataCache), Storage.HEAP);
+        dataCache.setRefreshPolicy(millisToRefresh, fileCache.createFileLoader(), new Executor() {
+            @Override
+            public void execute(Runnable task) {
+                fileCache.loadingCache.getExecutor().execute(task);
+            }
+        });
+        return fileCache;
     }
 
-    private FileCache(ObservableCache<String, String> dataCache) {
+    /**
+     * Create a cache whose entries expire after a time computed for each file, for example from
+     * its path, so that files changing often can share a cache with files that never change.
+     *
+     * @param expiry the expiry computing the lifetime of each file
+     * @return the cache
+     */
+    public static FileCache createCacheWithExpiry(Expiry<String, FileContents> expiry) {
+        TimeAwareCache<String, FileContents> dataCache = new TimeAwareCache<>();
+        dataCache.setExpiry(expiry);
+
+        return new FileCache(new SynchronizedCache<>(dataCache), Storage.HEAP);
+    }
+
+    /**
+     * Weigh the contents by their size, or by their compressed size when they are compressed.
+     */
+    private static Weigher<String, FileContents> createContentWeigher() {
+        return new Weigher<String, FileContents>() {
+            @Override
+            public int weigh(String key, FileContents value) {
+                if (value instanceof CompressedFileContents) {
+                    return ((CompressedFileContents) value).getCompressedLength();
+                }
+                return value.getLength();
+            }
+        };
+    }
+
+    private FileCache(ObservableCache<String, FileContents> dataCache, Storage storage) {
         this.dataCache = dataCache;
+        this.storage = storage;
+        this.slabAllocator = storage == Storage.OFF_HEAP ? new SlabAllocator() : null;
+        this.compressor = storage == Storage.COMPRESSED
+                ? new ContentCompressor(DEFAULT_COMPRESSION_THRESHOLD, DEFAULT_HOT_SET_BYTES)
+                : null;
         this.broadcastListener = new BroadcastListener<>();
 
-        this.dataCache.setCacheListener(broadcastListener);
+        this.dataCache.setCacheListener(createForwardingListener());
+        this.dataCache.setRemovalListener(new RemovalListener<String, FileContents>() {
+            @Override
+            public void onRemoval(String key, FileContents value, RemovalCause cause) {
+                if (diskTier != null && cause == RemovalCause.EVICTED) {
+                    queueSpill(key, value);
+                } else {
+                    value.release();
+                }
+                FileChangeWatcher watcher = changeWatcher;
+                if (watcher != null && cause != RemovalCause.REPLACED) {
+                    watcher.unwatch(key);
+                }
+            }
+        });
+
+        if (storage == Storage.MAPPED) {
+            CacheStalePolicy<String, FileContents> stalePolicy = dataCache.getCacheStalePolicy();
+            this.dataCache.setStalePolicy(new CacheStalePolicy<String, FileContents>() {
+                @Override
+                public boolean shouldRemoveEldestEntry(Pair<String, FileContents> entry) {
+                    return dataCache.size() > MAXIMUM_MAPPINGS || (stalePolicy != null
+                            && stalePolicy.shouldRemoveEldestEntry(entry));
+                }
+            });
+        }
 
-        broadcastListener.addListener(createCacheListener());
+        this.loadingCache = new LoadingCache<>(this.dataCache, createFileLoader());
     }
 
-    private static String readFileContent(String path, Charset encoding) throws IOException {
+    private FileContents readFileContent(String path) throws IOException {
+        if (storage == Storage.OFF_HEAP) {
+            return OffHeapFileContents.fromFile(slabAllocator, Paths.get(path));
+        }
+        if (storage == Storage.MAPPED) {
+            return MappedFileContents.map(Paths.get(path));
+        }
+
         byte[] encoded = Files.readAllBytes(Paths.get(path));
 
+        if (storage == Storage.COMPRESSED) {
+            return compressor.compress(encoded);
+        }
+        return new HeapFileContents(new String(encoded, StandardCharsets.UTF_8), encoded.length);
+    }
+
+    private FileContents createFileContents(String contents) {
+        if (storage == Storage.OFF_HEAP) {
+            return OffHeapFileContents.fromString(slabAllocator, contents);
+        }
+        if (storage == Storage.COMPRESSED) {
+            return compressor.compress(contents.getBytes(StandardCharsets.UTF_8));
+        }
+        return new HeapFileContents(contents);
+    }
 
-        return new String(encoded, encoding);
+    private FileContents createFileContents(ByteBuffer encoded) {
+        if (storage == Storage.OFF_HEAP) {
+            return OffHeapFileContents.fromBuffer(slabAllocator, encoded);
+        }
+        if (storage == Storage.COMPRESSED) {
+            byte[] bytes = new byte[encoded.remaining()];
+            encoded.duplicate().get(bytes);
+            return compressor.compress(bytes);
+        }
+        return new HeapFileContents(
+                StandardCharsets.UTF_8.decode(encoded.duplicate()).toString(), encoded.remaining());
     }
 
-    private CacheListener<String, String> createCacheListener() {
-        return new CacheListener<String, String>() {
+    /**
+     * The data cache reports its events to this listener, which passes them to the listeners of
+     * the file cache. The contents are decoded only if one of the listeners reads them.
+     */
+    private CacheListener<String, FileContents> createForwardingListener() {
+        return new CacheListener<String, FileContents>() {
             @Override
             public void onHit(String key) {
+                broadcastListener.onHit(key);
+            }
 
+            @Override
+            public void onMiss(String key) {
+                broadcastListener.onMiss(key);
             }
 
             @Override
-            public void onMiss(String key)  {
-                String path = key;
-                try {
-                    String contents = readFileContent(key, StandardCharsets.UTF_8);
-                    putFileContents(path, contents);
-                } catch (IOException e) {
-                    e.printStackTrace();
+            public void onPut(String key, FileContents value) {
+                BroadcastListener<String, String> listener = broadcastListener;
+                listener.onPut(key, listener.usesValues() ? decodeForListeners(value) : null);
+            }
+
+            @Override
+            public void onHits(Collection<String> keys) {
+                broadcastListener.onHits(keys);
+            }
+
+            @Override
+            public void onMisses(Collection<String> keys) {
+                broadcastListener.onMisses(keys);
+            }
+
+            @Override
+            public void onPuts(Map<String, FileContents> entries) {
+                BroadcastListener<String, String> listener = broadcastListener;
+                boolean decode = listener.usesValues();
+                Map<String, String> contents = new LinkedHashMap<>();
+                for (Map.Entry<String, FileContents> entry : entries.entrySet()) {
+                    contents.put(entry.getKey(),
+                            decode ? decodeForListeners(entry.getValue()) : null);
                 }
+                listener.onPuts(contents);
             }
 
             @Override
-            public void onPut(String key, String value) {
+            public void onEviction(String key) {
+                broadcastListener.onEviction(key);
+            }
+
+            @Override
+            public void onLoadSuccess(String key, long loadNanos) {
+                broadcastListener.onLoadSuccess(key, loadNanos);
+            }
+
+            @Override
+            public void onLoadFailure(String key, long loadNanos) {
+                broadcastListener.onLoadFailure(key, loadNanos);
+            }
 
+            @Override
+            public void onGetLatency(String key, boolean hit, long nanos) {
+                broadcastListener.onGetLatency(key, hit, nanos);
             }
+        };
+    }
+
+    /**
+     * Decode contents that were just put, for the listeners. Contents already evicted and freed by
+     * another thread are reported without their value.
+     */
+    private static String decodeForListeners(FileContents contents) {
+        if (!contents.retain()) {
+            return null;
+        }
+        try {
+            return contents.getString();
+        } finally {
+            contents.release();
+        }
+    }
+
+    private CacheLoader<String, FileContents> createFileLoader() {
+        return new CacheLoader<String, FileContents>() {
+            @Override
+            public FileContents load(String path) throws IOException {
+                FileChangeWatcher watcher = changeWatcher;
+                if (watcher != null) {
+                    watcher.watch(path);
+                }
 
+                FileContents pending = pendingSpills.remove(path);
+                if (pending != null) {
+                    if (putPaths.contains(path)) {
+                        /* Put, evicted a moment ago and not written yet */
+                        if (watcher != null) {
+                            watcher.unwatch(path);
+                        }
+                        return pending;
+                    }
+                    /* The file may have changed or disappeared since it was evicted */
+                    pending.release();
+                }
+                DiskTier tier = diskTier;
+                if (tier != null) {
+                    FileContents contents = loadFromDiskTier(tier, path);
+                    if (contents != null) {
+                        return contents;
+                    }
+                }
+                putPaths.remove(path);
+                return readFileContent(path);
+            }
         };
     }
 
+    /**
+     * Hand an evicted file to the spill thread, along with the reference of the cache to its
+     * contents. The eviction runs with the lock of the cache held, so it does no I/O; when too many
+     * files wait to be written, the file is dropped instead.
+     */
+    private void queueSpill(String path, FileContents contents) {
+        FileContents previous = pendingSpills.put(path, contents);
+        if (previous != null) {
+            previous.release();
+        }
+        if (!spillQueue.offer(path) && pendingSpills.remove(path, contents)) {
+            contents.release();
+        }
+    }
+
+    private void writeSpills(DiskTier tier) {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                spill(tier, spillQueue.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Write an evicted file to the disk tier. The tier only saves reads, so a file that cannot be
+     * written to it is simply dropped. A file loaded again or removed while it is written was
+     * taken out of the pending files, and its record is removed again.
+     */
+    private void spill(DiskTier tier, String path) {
+        FileContents contents = pendingSpills.get(path);
+        if (contents == null || !contents.retain()) {
+            return;
+        }
+
+        try {
+            CacheSnapshot.Entry entry = describeEntry(path, contents, true);
+            if (entry != null) {
+                tier.put(entry);
+            }
+        } catch (IOException e) {
+            /* Read again from the file on its next access */
+        } finally {
+            if (pendingSpills.remove(path, contents)) {
+                contents.release();
+            } else {
+                tier.remove(path);
+            }
+            contents.release();
+        }
+    }
+
+    /**
+     * Drop a file from the disk tier, and from the evicted files waiting to be written to it.
+     */
+    private void removeFromDiskTier(String path) {
+        DiskTier tier = diskTier;
+        if (tier == null) {
+            return;
+        }
+        FileContents pending = pendingSpills.remove(path);
+        if (pending != null) {
+            pending.release();
+        }
+        tier.remove(path);
+    }
+
+    /**
+     * Take a file out of the disk tier, or return null if it is not there or if it changed since
+     * it was evicted.
+     */
+    private FileContents loadFromDiskTier(DiskTier tier, String path) throws IOException {
+        CacheSnapshot.Entry entry = tier.take(path);
+        if (entry == null) {
+            return null;
+        }
+
+        if (entry.getModifiedMillis() == CacheSnapshot.NOT_A_FILE) {
+            FileChangeWatcher watcher = changeWatcher;
+            if (watcher != null) {
+                watcher.unwatch(path);
+            }
+            return createFileContents(entry.getContents());
+        }
+        if (!isUnchanged(entry)) {
+            return null;
+        }
+        putPaths.remove(path);
+        return createFileContents(entry.getContents());
+    }
+
+    /**
+     * Get the contents of a file as a string. On a miss, the file is read once, however many
+     * threads ask for it at the same time.
+     *
+     * @param path the file
+     * @return the contents
+     * @throws CacheLoadException if the file cannot be read
+     */
     public String getFileContents(String path) {
-        String fileContents;
+        validate(path);
+        return decode(path, loadingCache.get(path));
+    }
+
+    /**
+     * Decode the cached contents of a file. The contents are retained while they are decoded, so
+     * that another thread evicting the file does not free their memory meanwhile.
+     */
+    private String decode(String path, FileContents contents) {
+        if (!contents.retain()) {
+            return new String(readUncached(path), StandardCharsets.UTF_8);
+        }
+        try {
+            return contents.getString();
+        } finally {
+            contents.release();
+        }
+    }
+
+    /**
+     * Read a file whose cached contents were freed by an eviction since they were looked up,
+     * possibly the one that followed their own load. The file is read again, without going
+     * through the cache.
+     */
+    private static byte[] readUncached(String path) {
+        try {
+            return Files.readAllBytes(Paths.get(path));
+        } catch (IOException e) {
+            throw new CacheLoadException("Failed to load key " + path, e);
+        }
+    }
+
+    /**
+     * Get the contents of several files. The cached files are looked up in one batch, and the
+     * missing ones are read in parallel and put in the cache in one batch.
+     *
+     * @param paths the files
+     * @return the contents of each file, in the order of the paths
+     * @throws CacheLoadException if any of the files cannot be read
+     */
+    public Map<String, String> getAllFileContents(Collection<String> paths) {
+        for (String path : paths) {
+            validate(path);
+        }
+
+        Map<String, String> contents = new LinkedHashMap<>();
+        for (Map.Entry<String, FileContents> entry : loadingCache.getAll(paths).entrySet()) {
+            contents.put(entry.getKey(), decode(entry.getKey(), entry.getValue()));
+        }
+        return contents;
+    }
+
+    /**
+     * Get the contents of a file without blocking. A hit completes the future right away, in the
+     * calling thread. On a miss, the file is read on the load executor; callers asking for the same
+     * file, asynchronously or not, share the same read.
+     *
+     * @param path the file
+     * @return a future completed with the contents, or with a CacheLoadException
+     */
+    public CompletableFuture<String> getFileContentsAsync(String path) {
+        validate(path);
+        return loadingCache.getAsync(path).thenApply(new Function<FileContents, String>() {
+            @Override
+            public String apply(FileContents contents) {
+                return decode(path, contents);
+            }
+        });
+    }
+
+    /**
+     * Get the contents of several files without blocking. The missing files are read in parallel
+     * on the load executor.
+     *
+     * @param paths the files
+     * @return a future completed with the contents of each file, or with a CacheLoadException if
+     * any of them cannot be read
+     */
+    public CompletableFuture<Map<String, String>> getAllFileContentsAsync(
+            Collection<String> paths) {
+        Map<String, CompletableFuture<String>> futures = new LinkedHashMap<>();
+        for (String path : paths) {
+            futures.put(path, getFileContentsAsync(path));
+        }
+
+        CompletableFuture<?>[] all = futures.values().toArray(new CompletableFuture<?>[0]);
+        return CompletableFuture.allOf(all).thenApply(new Function<Void, Map<String, String>>() {
+            @Override
+            public Map<String, String> apply(Void ignored) {
+                Map<String, String> contents = new LinkedHashMap<>();
+                for (Map.Entry<String, CompletableFuture<String>> entry : futures.entrySet()) {
+                    contents.put(entry.getKey(), entry.getValue().join());
+                }
+                return contents;
+            }
+        });
+    }
+
+    /**
+     * Set the executor used to read files for the asynchronous gets. By default, virtual threads
+     * are used when the JVM supports them.
+     *
+     * @param executor the executor
+     */
+    public void setLoadExecutor(Executor executor) {
+        loadingCache.setExecutor(executor);
+    }
 
-        do {
-            fileContents = dataCache.get(path);
-        } while (fileContents == null);
-        return fileContents;
+    /**
+     * Get the contents of a file as bytes, without copying them. With off-heap or mapped storage,
+     * the buffer is a view of the cached memory, which is only freed or unmapped once the buffer is
+     * closed, so it must be closed after use.
+     *
+     * @param path the file
+     * @return the contents, to close once read
+     * @throws CacheLoadException if the file cannot be read
+     */
+    public FileBuffer getFileBuffer(String path) {
+        validate(path);
+        FileContents contents = loadingCache.get(path);
+        if (!contents.retain()) {
+            return new FileBuffer(ByteBuffer.wrap(readUncached(path)).asReadOnlyBuffer(), null);
+        }
+        return new FileBuffer(contents.getByteBuffer(), contents);
     }
 
+    /**
+     * Put the contents of a file in the cache. The contents no longer depend on the file, so they
+     * are not invalidated when it changes.
+     *
+     * @param path the file
+     * @param contents the contents
+     */
     public void putFileContents(String path, String contents) {
-        dataCache.put(path, contents);
+        FileChangeWatcher watcher = changeWatcher;
+        if (watcher != null) {
+            watcher.unwatch(path);
+        }
+        removeFromDiskTier(path);
+        putPaths.add(path);
+        dataCache.put(path, createFileContents(contents));
+    }
+
+    /**
+     * Remove a file from the cache and free its contents.
+     *
+     * @param path the file
+     */
+    public void removeFileContents(String path) {
+        FileChangeWatcher watcher = changeWatcher;
+        if (watcher != null) {
+            watcher.unwatch(path);
+        }
+        invalidate(path);
+    }
+
+    /**
+     * Invalidate the cached files when they change on the disk, instead of relying on an
+     * expiration time. The directories of the files read from now on are watched, and a changed
+     * file is removed from the cache as soon as the change is reported; it is read again on its
+     * next access. When the changes of a directory cannot be watched or were lost, its files are
+     * checked on access by comparing their modification time and size. This should be called
+     * before the cache is used.
+     *
+     * @throws IOException if the file system does not support watching
+     */
+    public void invalidateOnChange() throws IOException {
+        if (changeWatcher != null) {
+            return;
+        }
+
+        changeWatcher = new FileChangeWatcher(new Consumer<String>() {
+            @Override
+            public void accept(String path) {
+                invalidate(path);
+            }
+        });
+    }
+
+    /**
+     * Change the compression of the cache, with compressed storage only. This should be called
+     * before the cache is used.
+     *
+     * @param minimumSize the size from which contents are compressed, in bytes
+     * @param hotSetBytes the maximum size of the contents kept decompressed, in bytes
+     */
+    public void setCompression(int minimumSize, long hotSetBytes) {
+        if (storage != Storage.COMPRESSED) {
+            throw new IllegalStateException("The cache does not use compressed storage");
+        }
+        compressor = new ContentCompressor(minimumSize, hotSetBytes);
+    }
+
+    /**
+     * Get the compression ratio of the cached contents and the time spent decompressing them.
+     *
+     * @return the stats, or null if the cache does not use compressed storage
+     */
+    public CompressionStats getCompressionStats() {
+        return compressor == null ? null : compressor.snapshot();
+    }
+
+    /**
+     * Keep the files evicted from the cache in a second tier on the local disk, such as an SSD,
+     * instead of dropping them. A miss looks for the file in the tier before reading it, and a file
+     * found there is moved back to the cache if it did not change since it was evicted. The tier
+     * is an append-only log of segment files in its own directory, which is emptied when the tier
+     * starts. The evicted files are written by a background thread; contents put directly in the
+     * cache and loaded again before they were written are taken back from its queue. Not
+     * available with mapped storage, whose contents are the files themselves. This should be
+     * called before the cache is used.
+     *
+     * @param directory the directory of the tier
+     * @param maximumBytes the maximum size of the tier on the disk
+     * @throws IOException if the directory cannot be prepared
+     */
+    public void enableDiskTier(String directory, long maximumBytes) throws IOException {
+        if (storage == Storage.MAPPED) {
+            throw new IllegalStateException("The disk tier cannot be used with mapped storage");
+        }
+        if (diskTier != null) {
+            return;
+        }
+
+        DiskTier tier = new DiskTier(Paths.get(directory), maximumBytes);
+        spillWriter = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeSpills(tier);
+            }
+        }, "disk-tier-spill");
+        spillWriter.setDaemon(true);
+        spillWriter.start();
+        diskTier = tier;
+    }
+
+    /**
+     * Drop the cached contents of a file if the change watcher reports them as outdated.
+     */
+    private void validate(String path) {
+        FileChangeWatcher watcher = changeWatcher;
+        if (watcher != null && !watcher.isValid(path)) {
+            invalidate(path);
+        }
+    }
+
+    private void invalidate(String path) {
+        removeFromDiskTier(path);
+        putPaths.remove(path);
+        FileContents contents = dataCache.remove(path);
+        if (contents != null) {
+            contents.release();
+        }
+    }
+
+    /**
+     * Save the cached files to a snapshot, from the eldest to the newest, so that a new cache can
+     * start with them. Each file is saved with its contents, its modification time and its size;
+     * with mapped storage, the contents are left out since the file is mapped again on load. The
+     * contents put directly in the cache are saved as well. The files the change watcher reports
+     * as changed, and the files deleted or no longer readable, are left out. The contents are
+     * retained until they are written, so the files evicted meanwhile by other threads are still
+     * saved.
+     *
+     * @param snapshotPath the snapshot file, replaced if it exists
+     * @return the number of files saved
+     * @throws IOException if the snapshot cannot be written
+     */
+    public int saveSnapshot(String snapshotPath) throws IOException {
+        List<CacheSnapshot.Entry> entries = new ArrayList<>();
+        List<FileContents> retained = new ArrayList<>();
+        try {
+            for (Pair<String, FileContents> entry : dataCache.getEntries()) {
+                FileContents contents = entry.getValue();
+                if (!contents.retain()) {
+                    continue;
+                }
+                retained.add(contents);
+
+                CacheSnapshot.Entry saved = describeEntry(
+                        entry.getKey(), contents, storage != Storage.MAPPED);
+                if (saved != null) {
+                    entries.add(saved);
+                }
+            }
+
+            CacheSnapshot.write(Paths.get(snapshotPath), entries);
+            return entries.size();
+        } finally {
+            for (FileContents contents : retained) {
+                contents.release();
+            }
+        }
+    }
+
+    /**
+     * Restore the files of a snapshot, in their previous order, into a cache that was just
+     * created. The snapshot is mapped in memory and its entries are restored in parallel: each file
+     * is checked against the modification time and the size it had when the snapshot was saved,
+     * and is left out if it changed. The files themselves are not read. The restored files count as
+     * puts for the listeners. If the snapshot holds more files than the cache, the eldest ones are
+     * evicted.
+     *
+     * @param snapshotPath the snapshot file
+     * @return the number of files restored
+     * @throws IOException if the snapshot cannot be read, or is not a valid snapshot
+     */
+    public int loadSnapshot(String snapshotPath) throws IOException {
+        List<CacheSnapshot.Entry> entries = CacheSnapshot.map(Paths.get(snapshotPath)).getEntries();
+        FileContents[] restored = new FileContents[entries.size()];
+
+        IntStream.range(0, entries.size()).parallel().forEach(new IntConsumer() {
+            @Override
+            public void accept(int i) {
+                restored[i] = restoreEntry(entries.get(i));
+            }
+        });
+
+        Map<String, FileContents> contents = new LinkedHashMap<>();
+        for (int i = 0; i < restored.length; i++) {
+            if (restored[i] != null) {
+                contents.put(entries.get(i).getKey(), restored[i]);
+            }
+        }
+        dataCache.putAll(contents);
+        return contents.size();
+    }
+
+    /**
+     * Create the contents of a snapshot entry, or return null if its file changed. The file is
+     * watched before it is checked, as it is before being read.
+     */
+    private FileContents restoreEntry(CacheSnapshot.Entry entry) {
+        String path = entry.getKey();
+        if (entry.getModifiedMillis() == CacheSnapshot.NOT_A_FILE) {
+            putPaths.add(path);
+            return createFileContents(entry.getContents());
+        }
+
+        FileChangeWatcher watcher = changeWatcher;
+        if (watcher != null) {
+            watcher.watch(path);
+        }
+
+        try {
+            if (isUnchanged(entry)) {
+                putPaths.remove(path);
+                if (entry.getContents() == null) {
+                    return readFileContent(path);
+                }
+                return createFileContents(entry.getContents());
+            }
+        } catch (IOException e) {
+            /* Left out, like a changed file; the next access reads it and reports the error */
+        }
+
+        if (watcher != null) {
+            watcher.unwatch(path);
+        }
+        return null;
+    }
+
+    /**
+     * Describe the cached contents of a file for a snapshot or the disk tier, with the modification
+     * time and the size of the file. The contents put directly in the cache are described as not
+     * coming from a file, and always keep their contents. Returns null if the change watcher
+     * reports the file as changed, or if the file was deleted or cannot be read.
+     */
+    private CacheSnapshot.Entry describeEntry(
+            String path, FileContents contents, boolean withContents) {
+        if (putPaths.contains(path)) {
+            return new CacheSnapshot.Entry(
+                    path, CacheSnapshot.NOT_A_FILE, 0, contents.getByteBuffer());
+        }
+
+        FileChangeWatcher watcher = changeWatcher;
+        if (watcher != null && !watcher.isValid(path)) {
+            return null;
+        }
+        BasicFileAttributes attributes = readAttributes(path);
+        if (attributes == null) {
+            return null;
+        }
+        return new CacheSnapshot.Entry(path, attributes.lastModifiedTime().toMillis(),
+                attributes.size(), withContents ? contents.getByteBuffer() : null);
+    }
+
+    /**
+     * Tell whether the file of an entry still has the modification time and the size recorded
+     * with its contents.
+     */
+    private static boolean isUnchanged(CacheSnapshot.Entry entry) {
+        BasicFileAttributes attributes = readAttributes(entry.getKey());
+        return attributes != null
+                && attributes.lastModifiedTime().toMillis() == entry.getModifiedMillis()
+                && attributes.size() == entry.getSize();
+    }
+
+    private static BasicFileAttributes readAttributes(String path) {
+        try {
+            return Files.readAttributes(Paths.get(path), BasicFileAttributes.class);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Remove all the files from the cache and free the memory used for their contents. The
+     * asynchronous dispatch of events, the change watcher and the disk tier, if any, are stopped.
+     */
+    public void close() {
+        if (changeWatcher != null) {
+            changeWatcher.close();
+        }
+        DiskTier tier = diskTier;
+        if (tier != null) {
+            diskTier = null;
+            spillWriter.interrupt();
+            try {
+                spillWriter.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            spillQueue.clear();
+            for (String path : pendingSpills.keySet()) {
+                FileContents pending = pendingSpills.remove(path);
+                if (pending != null) {
+                    pending.release();
+                }
+            }
+            tier.close();
+        }
+        dataCache.clearAll();
+        if (slabAllocator != null) {
+            slabAllocator.close();
+        }
+        if (broadcastListener instanceof AsyncBroadcastListener) {
+            ((AsyncBroadcastListener<String, String>) broadcastListener).close();
+        }
     }
 
     public void addListener(CacheListener<String, String> listener) {
         broadcastListener.addListener(listener);
     }
 
-    private ObservableCache<String, String> dataCache;
-    private BroadcastListener<String, String> broadcastListener;
+    /**
+     * Pass the events to the listeners from a background thread, through a bounded buffer, so that
+     * slow listeners do not slow down the cache. The listeners added so far are kept. This should be
+     * called before the cache is used.
+     *
+     * @param bufferSize the maximum number of pending events
+     * @param policy what to do with an event when the buffer is full
+     */
+    public void setAsyncListenerDispatch(
+            int bufferSize, AsyncBroadcastListener.OverflowPolicy policy) {
+        AsyncBroadcastListener<String, String> asyncListener =
+                new AsyncBroadcastListener<>(bufferSize, policy);
+        for (CacheListener<String, String> listener : broadcastListener.getListeners()) {
+            asyncListener.addListener(listener);
+        }
+
+        BroadcastListener<String, String> previousListener = broadcastListener;
+        broadcastListener = asyncListener;
+        if (previousListener instanceof AsyncBroadcastListener) {
+            ((AsyncBroadcastListener<String, String>) previousListener).close();
+        }
+    }
+
+    /**
+     * Wait until the listeners received the events reported so far. Only needed with the
+     * asynchronous dispatch.
+     */
+    public void flushListeners() {
+        if (broadcastListener instanceof AsyncBroadcastListener) {
+            ((AsyncBroadcastListener<String, String>) broadcastListener).flush();
+        }
+    }
+
+    private ObservableCache<String, FileContents> dataCache;
+    private final LoadingCache<String, FileContents> loadingCache;
+    private volatile BroadcastListener<String, String> broadcastListener;
+    private volatile FileChangeWatcher changeWatcher;
+    private volatile DiskTier diskTier;
+    /* The paths whose cached contents were put directly instead of read from the file */
+    private final Set<String> putPaths = ConcurrentHashMap.newKeySet();
+    private Thread spillWriter;
+    /* The evicted files waiting to be written to the disk tier, with the references to them */
+    private final ConcurrentHashMap<String, FileContents> pendingSpills =
+            new ConcurrentHashMap<>();
+    private final BlockingQueue<String> spillQueue =
+            new ArrayBlockingQueue<>(MAXIMUM_PENDING_SPILLS);
+    private final Storage storage;
+    private final SlabAllocator slabAllocator;
+    private volatile ContentCompressor compressor;
 }
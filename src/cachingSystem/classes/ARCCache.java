@@ -0,0 +1,351 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.RemovalListener.RemovalCause;
+import dataStructures.classes.DoubleLinkedList;
+import dataStructures.classes.Node;
+import dataStructures.classes.Pair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Cache using the Adaptive Replacement Cache policy. The entries seen once recently are kept in
+ * the T1 list, and the entries seen at least twice in the T2 list. The keys evicted from T1 and T2
+ * are remembered, without their values, in the ghost lists B1 and B2. A miss on a B1 key means T1
+ * was too small, so the target size of T1 grows; a miss on a B2 key makes it shrink. The eldest
+ * entry is taken from T1 when T1 exceeds its target, and from T2 otherwise, so the cache moves
+ * between recency and frequency as the workload changes.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class ARCCache<K, V> extends ObservableCache<K, V> {
+
+    private static final int T1 = 0;
+    private static final int T2 = 1;
+    private static final int B1 = 2;
+    private static final int B2 = 3;
+
+    /* The resident entries and the ghost keys */
+    private final HashMap<K, Entry<K, V>> entries = new HashMap<>();
+    private final int capacity;
+
+    private DoubleLinkedList<K, V> recent = new DoubleLinkedList<>();
+    private DoubleLinkedList<K, V> frequent = new DoubleLinkedList<>();
+    private DoubleLinkedList<K, V> recentGhosts = new DoubleLinkedList<>();
+    private DoubleLinkedList<K, V> frequentGhosts = new DoubleLinkedList<>();
+    private int recentSize;
+    private int frequentSize;
+    private int recentGhostSize;
+    private int frequentGhostSize;
+    /* The target size of T1 */
+    private int recentTarget;
+    /* The entry being inserted, which is not counted when choosing the list to evict from */
+    private Entry<K, V> inserted;
+    /* Set while a key coming back from B2 is inserted, which favours evicting from T1 */
+    private boolean frequentGhostHit;
+    /* The entry returned by the last getEldestEntry, which becomes a ghost if it is evicted */
+    private Entry<K, V> victim;
+    /* Set while clearStaleEntries runs, so that only its removals are taken as evictions */
+    private boolean evicting;
+
+    /**
+     * Create a cache sized for a given capacity. The capacity itself is still enforced by the stale
+     * policy; it is only used to bound the target size of T1 and the number of ghost keys.
+     *
+     * @param capacity the expected maximum number of entries
+     */
+    public ARCCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Get the value associated with a key, or null if the key does not exist in the cache. A hit
+     * moves the entry to the head of T2.
+     *
+     * @param key the key too lookup
+     * @return the associated value, or null
+     */
+    @Override
+    public V get(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null || entry.queue >= B1) {
+            getListener().onMiss(key);
+            return null;
+        }
+
+        onAccess(entry);
+        getListener().onHit(key);
+        return entry.getValue();
+    }
+
+    /**
+     * Insert a key value pair in the cache. A new key enters T1, unless it is found in a ghost
+     * list: then the target size of T1 is adapted and the key enters T2.
+     *
+     * @param key
+     * @param value
+     */
+    @Override
+    public void put(K key, V value) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry != null && entry.queue < B1) {
+            V oldValue = entry.getValue();
+            subtractWeight(key, oldValue);
+            entry.setValue(value);
+            addWeight(key, value);
+            if (oldValue != value) {
+                notifyRemoval(key, oldValue, RemovalCause.REPLACED);
+            }
+            onAccess(entry);
+            if (getWeigher() != null) {
+                clearStaleEntries();
+            }
+        } else {
+            if (entry == null) {
+                entry = new Entry<>(key, value);
+                entries.put(key, entry);
+                entry.queue = T1;
+                recent.addFirst(entry);
+                recentSize++;
+            } else {
+                reviveGhost(entry, value);
+            }
+            addWeight(key, value);
+
+            inserted = entry;
+            clearStaleEntries();
+            inserted = null;
+            frequentGhostHit = false;
+            trimGhosts();
+        }
+
+        getListener().onPut(key, value);
+    }
+
+    /**
+     * Remove a key if it exists in the cache. While clearStaleEntries runs, the entry chosen by the
+     * last getEldestEntry is kept as a ghost key, since it is being evicted.
+     *
+     * @param key the key to be removed
+     * @return the value associated with the key, or null if the key was not in the cache
+     */
+    @Override
+    public V remove(K key) {
+        Entry<K, V> entry = entries.get(key);
+        if (entry == null || entry.queue >= B1) {
+            return null;
+        }
+
+        V value = entry.getValue();
+        unlink(entry);
+        subtractWeight(key, value);
+        if (entry == victim && evicting) {
+            entry.setValue(null);
+            if (entry.queue == T1) {
+                entry.queue = B1;
+                recentGhosts.addFirst(entry);
+                recentGhostSize++;
+            } else {
+                entry.queue = B2;
+                frequentGhosts.addFirst(entry);
+                frequentGhostSize++;
+            }
+        } else {
+            entries.remove(key);
+        }
+        if (entry == victim) {
+            victim = null;
+        }
+        return value;
+    }
+
+    /**
+     * Evict the entries the stale policy asks for. Only these become ghost keys: a key the caller
+     * removes is forgotten, even if getEldestEntry returned it.
+     */
+    @Override
+    public void clearStaleEntries() {
+        boolean wasEvicting = evicting;
+        evicting = true;
+        try {
+            super.clearStaleEntries();
+        } finally {
+            evicting = wasEvicting;
+            victim = null;
+        }
+    }
+
+    @Override
+    public int size() {
+        return recentSize + frequentSize;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Clear all the elements from the cache, along with the ghost keys and the adapted target.
+     */
+    @Override
+    public void clearAll() {
+        entries.clear();
+        recent = new DoubleLinkedList<>();
+        frequent = new DoubleLinkedList<>();
+        recentGhosts = new DoubleLinkedList<>();
+        frequentGhosts = new DoubleLinkedList<>();
+        recentSize = 0;
+        frequentSize = 0;
+        recentGhostSize = 0;
+        frequentGhostSize = 0;
+        recentTarget = 0;
+        victim = null;
+        inserted = null;
+        resetWeight();
+    }
+
+    /**
+     * Return the entry that should be evicted next: the least recently used entry of T1 if T1 is
+     * larger than its target (or as large, when the key being inserted came from B2), and the least
+     * recently used entry of T2 otherwise. As in ARC, where the replacement happens before the new
+     * entry is added, the entry being inserted is only returned if it is the only one.
+     *
+     * @return the eldest entry
+     */
+    @Override
+    public Pair<K, V> getEldestEntry() {
+        if (isEmpty()) {
+            return null;
+        }
+
+        int recentCount = recentSize;
+        int frequentCount = frequentSize;
+        if (inserted != null && inserted.queue == T1) {
+            recentCount--;
+        } else if (inserted != null && inserted.queue == T2) {
+            frequentCount--;
+        }
+
+        if (recentCount > 0 && (recentCount > recentTarget || frequentCount == 0
+                || (frequentGhostHit && recentCount == recentTarget))) {
+            victim = tail(recent);
+        } else if (frequentCount > 0) {
+            victim = tail(frequent);
+        } else {
+            victim = inserted;
+        }
+        return new Pair<>(victim.getKey(), victim.getValue());
+    }
+
+    /**
+     * Get the entries of the cache: T1, then T2, each from the least to the most recently used.
+     * The ghost keys are not included.
+     *
+     * @return the entries, eldest first
+     */
+    @Override
+    public List<Pair<K, V>> getEntries() {
+        List<Pair<K, V>> entries = new ArrayList<>(size());
+        recent.addEntriesTo(entries);
+        frequent.addEntriesTo(entries);
+        return entries;
+    }
+
+    /**
+     * Get the current target size of T1, the part of the cache given to the entries seen once.
+     *
+     * @return the target size
+     */
+    public int getRecentTarget() {
+        return recentTarget;
+    }
+
+    /**
+     * Bring back a key from a ghost list into T2, adapting the target size of T1 by the ratio of
+     * the ghost list sizes.
+     */
+    private void reviveGhost(Entry<K, V> entry, V value) {
+        if (entry.queue == B1) {
+            int delta = Math.max(1, frequentGhostSize / recentGhostSize);
+            recentTarget = Math.min(capacity, recentTarget + delta);
+            recentGhosts.remove(entry);
+            recentGhostSize--;
+        } else {
+            int delta = Math.max(1, recentGhostSize / frequentGhostSize);
+            recentTarget = Math.max(0, recentTarget - delta);
+            frequentGhosts.remove(entry);
+            frequentGhostSize--;
+            frequentGhostHit = true;
+        }
+
+        entry.setValue(value);
+        entry.queue = T2;
+        frequent.addFirst(entry);
+        frequentSize++;
+    }
+
+    /**
+     * Drop the eldest ghost keys, so that T1 and B1 together stay within the capacity, and all the
+     * lists together within twice the capacity.
+     */
+    private void trimGhosts() {
+        while (recentGhostSize > 0 && recentSize + recentGhostSize > capacity) {
+            dropGhost(recentGhosts);
+            recentGhostSize--;
+        }
+        while (frequentGhostSize > 0
+                && size() + recentGhostSize + frequentGhostSize > 2 * capacity) {
+            dropGhost(frequentGhosts);
+            frequentGhostSize--;
+        }
+    }
+
+    private void dropGhost(DoubleLinkedList<K, V> ghosts) {
+        Entry<K, V> ghost = tail(ghosts);
+        ghosts.remove(ghost);
+        entries.remove(ghost.getKey());
+    }
+
+    /**
+     * Move an entry to the head of T2 after an access.
+     */
+    private void onAccess(Entry<K, V> entry) {
+        if (entry.queue == T1) {
+            recent.remove(entry);
+            recentSize--;
+            entry.queue = T2;
+            frequentSize++;
+        } else {
+            frequent.remove(entry);
+        }
+        frequent.addFirst(entry);
+    }
+
+    private void unlink(Entry<K, V> entry) {
+        if (entry.queue == T1) {
+            recent.remove(entry);
+            recentSize--;
+        } else {
+            frequent.remove(entry);
+            frequentSize--;
+        }
+    }
+
+    private Entry<K, V> tail(DoubleLinkedList<K, V> list) {
+        return (Entry<K, V>) list.getTail();
+    }
+
+    /**
+     * A list node that also remembers the list it belongs to.
+     */
+    private static final class Entry<K, V> extends Node<K, V> {
+        private int queue;
+
+        Entry(K key, V value) {
+            super(key, value);
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.CacheStalePolicy;
+import cachingSystem.interfaces.RemovalListener.RemovalCause;
+import dataStructures.classes.LinkedHashTable;
+import dataStructures.classes.Pair;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An LRU cache with the same behavior as the LRUCache, storing its entries in the parallel arrays
+ * of a LinkedHashTable instead of one map node and one list node per entry. The slots of the
+ * removed entries are recycled, and the stale entries are checked through a reused pair, so once
+ * the cache is full a put, a get or an eviction allocates nothing.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class ArrayLRUCache<K, V> extends ObservableCache<K, V> {
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    private final LinkedHashTable<K, V> table;
+    /* Given to the stale policy by clearStaleEntries, which only reads it during the call */
+    private final Pair<K, V> staleCandidate = new Pair<>(null, null);
+
+    public ArrayLRUCache() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Create a cache sized for a given number of entries. It grows as needed.
+     *
+     * @param initialCapacity the expected number of entries
+     */
+    public ArrayLRUCache(int initialCapacity) {
+        table = new LinkedHashTable<>(initialCapacity);
+    }
+
+    /**
+     * Get the value associated with a key, or null if the key does not exist in the cache.
+     *
+     * @param key the key too lookup
+     * @return the associated value, or null
+     */
+    @Override
+    public V get(K key) {
+        int entry = table.find(key);
+        if (entry < 0) {
+            getListener().onMiss(key);
+            return null;
+        }
+
+        table.moveToFront(entry);
+        getListener().onHit(key);
+        return table.valueAt(entry);
+    }
+
+    /**
+     * Get the values associated with several keys. The listener is notified once for all the hits
+     * and once for all the misses.
+     *
+     * @param keys the keys to lookup
+     * @return the values found, by key, in the order of the keys
+     */
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        Map<K, V> values = new LinkedHashMap<>();
+        List<K> hits = new ArrayList<>();
+        List<K> misses = new ArrayList<>();
+
+        for (K key : keys) {
+            int entry = table.find(key);
+            if (entry < 0) {
+                misses.add(key);
+                continue;
+            }
+            table.moveToFront(entry);
+            values.put(key, table.valueAt(entry));
+            hits.add(key);
+        }
+
+        if (!hits.isEmpty()) {
+            getListener().onHits(hits);
+        }
+        if (!misses.isEmpty()) {
+            getListener().onMisses(misses);
+        }
+        return values;
+    }
+
+    /**
+     * Insert a key value pair in the cache.
+     *
+     * @param key
+     * @param value
+     */
+    @Override
+    public void put(K key, V value) {
+        if (putEntry(key, value) || getWeigher() != null) {
+            clearStaleEntries();
+        }
+
+        getListener().onPut(key, value);
+    }
+
+    /**
+     * Insert several key value pairs in the cache. The stale entries are cleared once, after all
+     * the pairs were inserted, and the listener is notified once for the whole batch.
+     *
+     * @param entries the pairs to insert
+     */
+    @Override
+    public void putAll(Map<K, V> entries) {
+        boolean inserted = false;
+        for (Map.Entry<K, V> entry : entries.entrySet()) {
+            inserted |= putEntry(entry.getKey(), entry.getValue());
+        }
+
+        /* Notify before the sweep, which may drop pairs of the batch if it exceeds the capacity */
+        getListener().onPuts(entries);
+        if (inserted || getWeigher() != null) {
+            clearStaleEntries();
+        }
+    }
+
+    /**
+     * Insert or update a pair, without clearing the stale entries.
+     *
+     * @return true if a new entry was added, false if an existing one was updated
+     */
+    private boolean putEntry(K key, V value) {
+        int entry = table.find(key);
+        if (entry >= 0) {
+            V oldValue = table.valueAt(entry);
+            subtractWeight(key, oldValue);
+            table.setValueAt(entry, value);
+            addWeight(key, value);
+            if (oldValue != value) {
+                notifyRemoval(key, oldValue, RemovalCause.REPLACED);
+            }
+            table.moveToFront(entry);
+            return false;
+        }
+
+        table.insert(key, value);
+        addWeight(key, value);
+        return true;
+    }
+
+    /**
+     * Remove a key if it exists in the cache.
+     *
+     * @param key the key to be removed
+     * @return the value associated with the key, or null if the key was not in the cache
+     */
+    @Override
+    public V remove(K key) {
+        int entry = table.find(key);
+        if (entry < 0) {
+            return null;
+        }
+
+        V value = table.valueAt(entry);
+        table.remove(key);
+        subtractWeight(key, value);
+        return value;
+    }
+
+    /**
+     * Clear the stale elements from the cache, like the ObservableCache does, but giving the
+     * eldest entries to the stale policy in a reused pair.
+     */
+    @Override
+    public void clearStaleEntries() {
+        CacheStalePolicy<K, V> stalePolicy = getCacheStalePolicy();
+        if (stalePolicy == null) {
+            return;
+        }
+
+        int eldest = table.eldest();
+        while (eldest >= 0) {
+            K key = table.keyAt(eldest);
+            V value = table.valueAt(eldest);
+            staleCandidate.setKey(key);
+            staleCandidate.setValue(value);
+            boolean stale = stalePolicy.shouldRemoveEldestEntry(staleCandidate);
+            staleCandidate.setKey(null);
+            staleCandidate.setValue(null);
+            if (!stale) {
+                return;
+            }
+
+            remove(key);
+            if (value != null) {
+                notifyRemoval(key, value, RemovalCause.EVICTED);
+            }
+            eldest = table.eldest();
+        }
+    }
+
+    @Override
+    public int size() {
+        return table.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return table.size() == 0;
+    }
+
+    @Override
+    public void clearAll() {
+        table.clear();
+        resetWeight();
+    }
+
+    /**
+     * Return the least recently used entry.
+     *
+     * @return the eldest entry
+     */
+    @Override
+    public Pair<K, V> getEldestEntry() {
+        int entry = table.eldest();
+        if (entry < 0) {
+            return null;
+        }
+        return new Pair<>(table.keyAt(entry), table.valueAt(entry));
+    }
+
+    /**
+     * Get the entries of the cache, from the least to the most recently used.
+     *
+     * @return the entries, eldest first
+     */
+    @Override
+    public List<Pair<K, V>> getEntries() {
+        List<Pair<K, V>> entries = new ArrayList<>(table.size());
+        for (int entry = table.eldest(); entry >= 0; entry = table.newer(entry)) {
+            entries.add(new Pair<>(table.keyAt(entry), table.valueAt(entry)));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,207 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.RemovalListener.RemovalCause;
+import dataStructures.classes.DoubleLinkedList;
+import dataStructures.classes.Node;
+import dataStructures.classes.Pair;
+import dataStructures.classes.StripedReadBuffer;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * Thread-safe LRU cache whose reads never block. A get only looks the key up in a concurrent map
+ * and records the access in a lossy read buffer. The recorded accesses are applied to the recency
+ * list in batches, by whichever thread manages to take the eviction lock. Writes take the lock and
+ * apply the pending accesses before changing the list, so the eviction order stays close to a
+ * strict LRU.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class BufferedLRUCache<K, V> extends ObservableCache<K, V> {
+
+    private final ConcurrentHashMap<K, Node<K, V>> data = new ConcurrentHashMap<>();
+    private final StripedReadBuffer<Node<K, V>> readBuffer = new StripedReadBuffer<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private DoubleLinkedList<K, V> accessOrder = new DoubleLinkedList<>();
+
+    /* Nodes are never updated in place, so a node is still in the list only if it is still mapped */
+    private final Consumer<Node<K, V>> applyAccess = new Consumer<Node<K, V>>() {
+        @Override
+        public void accept(Node<K, V> node) {
+            if (data.get(node.getKey()) == node) {
+                accessOrder.remove(node);
+                accessOrder.addFirst(node);
+            }
+        }
+    };
+
+    /**
+     * Get the value associated with a key, or null if the key does not exist in the cache. The
+     * access is recorded in the read buffer, and the buffer is drained only if the eviction lock is
+     * free.
+     *
+     * @param key the key too lookup
+     * @return the associated value, or null
+     */
+    @Override
+    public V get(K key) {
+        Node<K, V> node = data.get(key);
+        if (node == null) {
+            getListener().onMiss(key);
+            return null;
+        }
+
+        if (readBuffer.offer(node)) {
+            tryToDrainBuffers();
+        }
+
+        getListener().onHit(key);
+        return node.getValue();
+    }
+
+    /**
+     * Insert a key value pair in the cache. An update replaces the node of the key, so that readers
+     * never see a node whose value is being changed.
+     *
+     * @param key
+     * @param value
+     */
+    @Override
+    public void put(K key, V value) {
+        evictionLock.lock();
+        try {
+            drainBuffers();
+
+            Node<K, V> newNode = new Node<>(key, value);
+            Node<K, V> oldNode = data.put(key, newNode);
+            if (oldNode != null) {
+                accessOrder.remove(oldNode);
+                subtractWeight(key, oldNode.getValue());
+                if (oldNode.getValue() != value) {
+                    notifyRemoval(key, oldNode.getValue(), RemovalCause.REPLACED);
+                }
+            }
+            accessOrder.addFirst(newNode);
+            addWeight(key, value);
+
+            if (oldNode == null || getWeigher() != null) {
+                clearStaleEntries();
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+
+        getListener().onPut(key, value);
+    }
+
+    /**
+     * Remove a key if it exists in the cache.
+     *
+     * @param key the key to be removed
+     * @return the value associated with the key, or null if the key was not in the cache
+     */
+    @Override
+    public V remove(K key) {
+        evictionLock.lock();
+        try {
+            Node<K, V> node = data.remove(key);
+            if (node == null) {
+                return null;
+            }
+            accessOrder.remove(node);
+            subtractWeight(key, node.getValue());
+            return node.getValue();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    /**
+     * Clear all the elements from the cache. The accesses still buffered are discarded when the
+     * buffer is drained, since their nodes are no longer mapped.
+     */
+    @Override
+    public void clearAll() {
+        evictionLock.lock();
+        try {
+            data.clear();
+            accessOrder = new DoubleLinkedList<>();
+            resetWeight();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Return the least recently used entry, after applying the buffered accesses.
+     *
+     * @return the eldest entry
+     */
+    @Override
+    public Pair<K, V> getEldestEntry() {
+        evictionLock.lock();
+        try {
+            drainBuffers();
+
+            Node<K, V> tail = accessOrder.getTail();
+            if (data.isEmpty() || tail == null) {
+                return null;
+            }
+            return new Pair<>(tail.getKey(), tail.getValue());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Get the entries of the cache, from the least to the most recently used, after applying the
+     * buffered accesses.
+     *
+     * @return the entries, eldest first
+     */
+    @Override
+    public List<Pair<K, V>> getEntries() {
+        evictionLock.lock();
+        try {
+            drainBuffers();
+
+            List<Pair<K, V>> entries = new ArrayList<>(data.size());
+            accessOrder.addEntriesTo(entries);
+            return entries;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void tryToDrainBuffers() {
+        if (evictionLock.tryLock()) {
+            try {
+                drainBuffers();
+            } finally {
+                evictionLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Apply the buffered accesses to the recency list. Must be called with the eviction lock held.
+     */
+    private void drainBuffers() {
+        readBuffer.drainTo(applyAccess);
+    }
+}
@@ -0,0 +1,17 @@
+package cachingSystem.classes;
+
+/**
+ * Thrown when the value of a missing key cannot be loaded.
+ */
+public class CacheLoadException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public CacheLoadException(String message) {
+        super(message);
+    }
+
+    public CacheLoadException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
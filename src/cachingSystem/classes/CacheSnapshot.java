@@ -0,0 +1,192 @@
+package cachingSystem.classes;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A binary snapshot of the entries of a file cache, from the eldest to the newest. Each entry holds
+ * the key, the modification time and the size the file had when its contents were cached, and
+ * optionally the contents themselves.
+ *
+ * The snapshot is written to a temporary file which then replaces the previous snapshot, so a
+ * crash while saving leaves the previous one intact. It is read through a memory mapping: only the
+ * headers of the entries are parsed, and their contents are views of the mapping.
+ */
+public final class CacheSnapshot {
+
+    /**
+     * The modification time of the entries whose contents do not come from a file.
+     */
+    public static final long NOT_A_FILE = -1;
+
+    private static final int MAGIC = 0x46435331;
+    private static final int VERSION = 1;
+    private static final int NO_CONTENTS = -1;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private final List<Entry> entries;
+
+    private CacheSnapshot(List<Entry> entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Write a snapshot, replacing the previous one if any.
+     *
+     * @param file the snapshot file
+     * @param entries the entries, eldest first
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(Path file, List<Entry> entries) throws IOException {
+        Path temporaryFile = file.resolveSibling(file.getFileName() + ".tmp");
+        byte[] copyBuffer = new byte[COPY_BUFFER_SIZE];
+
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporaryFile), COPY_BUFFER_SIZE))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+
+            for (Entry entry : entries) {
+                byte[] key = entry.key.getBytes(StandardCharsets.UTF_8);
+                out.writeInt(key.length);
+                out.write(key);
+                out.writeLong(entry.modifiedMillis);
+                out.writeLong(entry.size);
+
+                if (entry.contents == null) {
+                    out.writeInt(NO_CONTENTS);
+                    continue;
+                }
+                ByteBuffer contents = entry.contents.duplicate();
+                out.writeInt(contents.remaining());
+                while (contents.hasRemaining()) {
+                    int length = Math.min(contents.remaining(), copyBuffer.length);
+                    contents.get(copyBuffer, 0, length);
+                    out.write(copyBuffer, 0, length);
+                }
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temporaryFile);
+            throw e;
+        }
+
+        Files.move(temporaryFile, file,
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Map a snapshot in memory and parse the headers of its entries. The mapping stays valid as long
+     * as the contents of the entries are used.
+     *
+     * @param file the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file cannot be mapped, or is not a valid snapshot
+     */
+    public static CacheSnapshot map(Path file) throws IOException {
+        MappedByteBuffer mapping;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + file);
+            }
+            mapping = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+
+        try {
+            if (mapping.getInt() != MAGIC || mapping.getInt() != VERSION) {
+                throw new IOException("Not a cache snapshot: " + file);
+            }
+
+            int count = mapping.getInt();
+            List<Entry> entries = new ArrayList<>(Math.max(0, Math.min(count, 1 << 20)));
+            for (int i = 0; i < count; i++) {
+                byte[] key = new byte[mapping.getInt()];
+                mapping.get(key);
+                long modifiedMillis = mapping.getLong();
+                long fileSize = mapping.getLong();
+
+                ByteBuffer contents = null;
+                int length = mapping.getInt();
+                if (length != NO_CONTENTS) {
+                    contents = mapping.slice();
+                    contents.limit(length);
+                    mapping.position(mapping.position() + length);
+                    contents = contents.asReadOnlyBuffer();
+                }
+                entries.add(new Entry(new String(key, StandardCharsets.UTF_8),
+                        modifiedMillis, fileSize, contents));
+            }
+            return new CacheSnapshot(entries);
+        } catch (BufferUnderflowException | IllegalArgumentException
+                | NegativeArraySizeException e) {
+            throw new IOException("Truncated or corrupted cache snapshot: " + file, e);
+        }
+    }
+
+    /**
+     * Get the entries of the snapshot.
+     *
+     * @return the entries, eldest first
+     */
+    public List<Entry> getEntries() {
+        return Collections.unmodifiableList(entries);
+    }
+
+    /**
+     * An entry of a snapshot. The records of a DiskTier are read back as entries too.
+     */
+    public static final class Entry {
+        private final String key;
+        private final long modifiedMillis;
+        private final long size;
+        private final ByteBuffer contents;
+
+        /**
+         * @param key the cache key
+         * @param modifiedMillis the modification time of the file, or NOT_A_FILE
+         * @param size the size of the file
+         * @param contents the contents, or null if they are not saved
+         */
+        public Entry(String key, long modifiedMillis, long size, ByteBuffer contents) {
+            this.key = key;
+            this.modifiedMillis = modifiedMillis;
+            this.size = size;
+            this.contents = contents;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public long getModifiedMillis() {
+            return modifiedMillis;
+        }
+
+        public long getSize() {
+            return size;
+        }
+
+        /**
+         * Get the contents, from position 0 to the limit.
+         *
+         * @return a read-only buffer, or null if the contents were not saved
+         */
+        public ByteBuffer getContents() {
+            return contents;
+        }
+    }
+}
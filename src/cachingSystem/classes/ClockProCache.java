@@ -0,0 +1,510 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.RemovalListener.RemovalCause;
+import dataStructures.classes.Pair;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe cache using the CLOCK-Pro policy. The entries are hot (accessed again soon after
+ * they were inserted) or cold, and some of the keys of evicted cold entries are kept as
+ * non-resident entries for a test period. All the entries are kept in a ring swept by three
+ * hands:
+ * <ul>
+ * <li>the cold hand looks for the entry to evict, giving a second chance to the referenced cold
+ * entries and promoting the ones in their test period. It only visits the cold entries, which
+ * are also linked in a queue in the order the hand reaches them;</li>
+ * <li>the hot hand demotes the hot entries that were not referenced since its last pass, and ends
+ * the test periods of the cold entries it passes;</li>
+ * <li>the test hand ends test periods when there are too many non-resident entries.</li>
+ * </ul>
+ * The number of cold entries adapts: it grows when a key comes back during its test period, and
+ * shrinks when a test period ends without an access. A one-time scan only goes through the cold
+ * entries, so it does not flush the hot ones.
+ *
+ * A get never blocks and never changes the ring: it looks the key up in a concurrent map and sets
+ * the reference bit of the entry. The writes and the evictions take a lock.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class ClockProCache<K, V> extends ObservableCache<K, V> {
+
+    private static final int HOT = 0;
+    private static final int COLD = 1;
+    private static final int NON_RESIDENT = 2;
+
+    private static final int MINIMUM_COLD_TARGET = 1;
+
+    /* The resident and the non-resident entries */
+    private final ConcurrentHashMap<K, Entry<K, V>> data = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+    private final int capacity;
+
+    private Entry<K, V> hotHand;
+    private Entry<K, V> testHand;
+    /* The resident cold entries; the cold hand is at the eldest one */
+    private Entry<K, V> newestCold;
+    private Entry<K, V> eldestCold;
+    private int hotSize;
+    private int coldSize;
+    private int nonResidentSize;
+    private int coldTarget = MINIMUM_COLD_TARGET;
+    /* The entry being inserted, which is only evicted if it is the only one */
+    private Entry<K, V> inserted;
+    /* The entry returned by the last getEldestEntry, which is reused while it is still evictable */
+    private Entry<K, V> victim;
+    /* Set while clearStaleEntries runs, so that only its removals are taken as evictions */
+    private boolean evicting;
+
+    /**
+     * Create a cache sized for a given capacity. The capacity itself is still enforced by the stale
+     * policy; it is only used to bound the number of hot and non-resident entries.
+     *
+     * @param capacity the expected maximum number of entries
+     */
+    public ClockProCache(int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    /**
+     * Get the value associated with a key, or null if the key does not exist in the cache. A hit
+     * only sets the reference bit of the entry.
+     *
+     * @param key the key too lookup
+     * @return the associated value, or null
+     */
+    @Override
+    public V get(K key) {
+        Entry<K, V> entry = data.get(key);
+        V value = entry == null ? null : entry.value;
+        if (value == null) {
+            getListener().onMiss(key);
+            return null;
+        }
+
+        /* A plain store: a lost or late update only changes which entry the hands pick */
+        entry.referenced = true;
+        getListener().onHit(key);
+        return value;
+    }
+
+    /**
+     * Insert a key value pair in the cache. A new key enters as a cold entry in its test period. A
+     * key that still has a non-resident entry comes back as a hot entry, and the cold target grows.
+     *
+     * @param key
+     * @param value
+     */
+    @Override
+    public void put(K key, V value) {
+        evictionLock.lock();
+        try {
+            Entry<K, V> entry = data.get(key);
+            if (entry != null && entry.status != NON_RESIDENT) {
+                V oldValue = entry.value;
+                subtractWeight(key, oldValue);
+                entry.value = value;
+                addWeight(key, value);
+                if (oldValue != value) {
+                    notifyRemoval(key, oldValue, RemovalCause.REPLACED);
+                }
+                entry.referenced = true;
+                if (getWeigher() != null) {
+                    clearStaleEntries();
+                }
+            } else {
+                if (entry == null) {
+                    entry = new Entry<>(key);
+                    entry.status = COLD;
+                    entry.inTest = true;
+                    coldSize++;
+                    addNewestCold(entry);
+                    data.put(key, entry);
+                } else {
+                    increaseColdTarget();
+                    unlink(entry);
+                    nonResidentSize--;
+                    entry.status = HOT;
+                    entry.inTest = false;
+                    hotSize++;
+                }
+                entry.value = value;
+                linkAtHead(entry);
+                addWeight(key, value);
+
+                inserted = entry;
+                clearStaleEntries();
+                inserted = null;
+
+                while (hotSize > 0 && hotSize > capacity - coldTarget) {
+                    runHotHand();
+                }
+                while (nonResidentSize > capacity) {
+                    runTestHand();
+                }
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+
+        getListener().onPut(key, value);
+    }
+
+    /**
+     * Remove a key if it exists in the cache. While clearStaleEntries runs, the entry chosen by
+     * getEldestEntry is kept as a non-resident entry if it is in its test period, since it is being
+     * evicted.
+     *
+     * @param key the key to be removed
+     * @return the value associated with the key, or null if the key was not in the cache
+     */
+    @Override
+    public V remove(K key) {
+        evictionLock.lock();
+        try {
+            Entry<K, V> entry = data.get(key);
+            if (entry == null || entry.status == NON_RESIDENT) {
+                return null;
+            }
+
+            V value = entry.value;
+            subtractWeight(key, value);
+            if (entry.status == HOT) {
+                hotSize--;
+            } else {
+                coldSize--;
+                unlinkCold(entry);
+            }
+
+            if (entry == victim && evicting && entry.status == COLD && entry.inTest) {
+                entry.status = NON_RESIDENT;
+                entry.value = null;
+                entry.referenced = false;
+                nonResidentSize++;
+            } else {
+                unlink(entry);
+                data.remove(key);
+            }
+            if (entry == victim) {
+                victim = null;
+            }
+            return value;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Evict the entries the stale policy asks for. Only these leave non-resident entries: a key the
+     * caller removes is forgotten, even if getEldestEntry returned it.
+     */
+    @Override
+    public void clearStaleEntries() {
+        evictionLock.lock();
+        boolean wasEvicting = evicting;
+        evicting = true;
+        try {
+            super.clearStaleEntries();
+        } finally {
+            evicting = wasEvicting;
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        evictionLock.lock();
+        try {
+            return hotSize + coldSize;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Clear all the elements from the cache, along with the non-resident entries.
+     */
+    @Override
+    public void clearAll() {
+        evictionLock.lock();
+        try {
+            data.clear();
+            hotHand = null;
+            testHand = null;
+            newestCold = null;
+            eldestCold = null;
+            hotSize = 0;
+            coldSize = 0;
+            nonResidentSize = 0;
+            coldTarget = MINIMUM_COLD_TARGET;
+            inserted = null;
+            victim = null;
+            resetWeight();
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Return the entry that should be evicted next: the first unreferenced cold entry reached by
+     * the cold hand. The hands only move when the previous result is no longer evictable.
+     *
+     * @return the eldest entry
+     */
+    @Override
+    public Pair<K, V> getEldestEntry() {
+        evictionLock.lock();
+        try {
+            if (hotSize + coldSize == 0) {
+                return null;
+            }
+
+            if (victim == null || victim.status != COLD || victim.referenced
+                    || victim == inserted) {
+                victim = findVictim();
+            }
+            return new Pair<>(victim.key, victim.value);
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Get the resident entries of the cache, in the order the hot hand reaches them, which is the
+     * order they were inserted or last moved to the head of the ring. The reference bits and the
+     * non-resident entries are not included.
+     *
+     * @return the entries, eldest first
+     */
+    @Override
+    public List<Pair<K, V>> getEntries() {
+        evictionLock.lock();
+        try {
+            List<Pair<K, V>> entries = new ArrayList<>(hotSize + coldSize);
+            Entry<K, V> entry = hotHand;
+            for (int i = hotSize + coldSize + nonResidentSize; i > 0; i--) {
+                if (entry.status != NON_RESIDENT) {
+                    entries.add(new Pair<>(entry.key, entry.value));
+                }
+                entry = entry.next;
+            }
+            return entries;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Get the current target number of cold entries.
+     *
+     * @return the cold target
+     */
+    public int getColdTarget() {
+        evictionLock.lock();
+        try {
+            return coldTarget;
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Move the cold hand until it reaches an unreferenced cold entry. A referenced cold entry in
+     * its test period is promoted to hot; one out of its test period starts a new one. When there is
+     * no cold entry left, the hot hand runs until it demotes one. The entry being inserted is
+     * skipped, unless it is the only one.
+     */
+    private Entry<K, V> findVictim() {
+        while (true) {
+            int insertedCold = inserted != null && inserted.status == COLD ? 1 : 0;
+            int insertedHot = inserted != null && inserted.status == HOT ? 1 : 0;
+            if (coldSize - insertedCold == 0) {
+                if (hotSize - insertedHot == 0) {
+                    return inserted;
+                }
+                runHotHand();
+                continue;
+            }
+
+            Entry<K, V> entry = eldestCold;
+            if (entry == inserted) {
+                entry = entry.newerCold;
+            }
+            if (!entry.referenced) {
+                return entry;
+            }
+
+            entry.referenced = false;
+            unlinkCold(entry);
+            if (entry.inTest) {
+                increaseColdTarget();
+                entry.status = HOT;
+                entry.inTest = false;
+                coldSize--;
+                hotSize++;
+            } else {
+                entry.inTest = true;
+                addNewestCold(entry);
+            }
+            moveToHead(entry);
+        }
+    }
+
+    /**
+     * Move the hot hand by one entry.
+     */
+    private void runHotHand() {
+        Entry<K, V> entry = hotHand;
+        hotHand = entry.next;
+        if (entry == inserted) {
+            return;
+        }
+
+        if (entry.status == HOT) {
+            if (entry.referenced) {
+                entry.referenced = false;
+            } else {
+                entry.status = COLD;
+                coldSize++;
+                hotSize--;
+                addNewestCold(entry);
+            }
+        } else {
+            endTest(entry);
+        }
+    }
+
+    /**
+     * Move the test hand by one entry.
+     */
+    private void runTestHand() {
+        Entry<K, V> entry = testHand;
+        testHand = entry.next;
+        if (entry.status != HOT && entry != inserted) {
+            endTest(entry);
+        }
+    }
+
+    /**
+     * End the test period of a cold entry, which means its key did not come back soon enough. A
+     * non-resident entry is dropped.
+     */
+    private void endTest(Entry<K, V> entry) {
+        if (!entry.inTest) {
+            return;
+        }
+
+        entry.inTest = false;
+        coldTarget = Math.max(MINIMUM_COLD_TARGET, coldTarget - 1);
+        if (entry.status == NON_RESIDENT) {
+            unlink(entry);
+            data.remove(entry.key);
+            nonResidentSize--;
+        }
+    }
+
+    private void increaseColdTarget() {
+        coldTarget = Math.min(Math.max(MINIMUM_COLD_TARGET, capacity - 1), coldTarget + 1);
+    }
+
+    /**
+     * Add an entry at the head of the ring, right behind the hot hand, so that it is the last entry
+     * the hands reach.
+     */
+    private void linkAtHead(Entry<K, V> entry) {
+        if (hotHand == null) {
+            entry.previous = entry;
+            entry.next = entry;
+            hotHand = entry;
+            testHand = entry;
+            return;
+        }
+
+        entry.next = hotHand;
+        entry.previous = hotHand.previous;
+        hotHand.previous.next = entry;
+        hotHand.previous = entry;
+    }
+
+    private void moveToHead(Entry<K, V> entry) {
+        if (entry.next != entry) {
+            unlink(entry);
+            linkAtHead(entry);
+        }
+    }
+
+    /**
+     * Remove an entry from the ring, moving the hands that point to it to the next entry.
+     */
+    private void unlink(Entry<K, V> entry) {
+        if (entry.next == entry) {
+            hotHand = null;
+            testHand = null;
+            return;
+        }
+
+        if (hotHand == entry) {
+            hotHand = entry.next;
+        }
+        if (testHand == entry) {
+            testHand = entry.next;
+        }
+        entry.previous.next = entry.next;
+        entry.next.previous = entry.previous;
+    }
+
+    private void addNewestCold(Entry<K, V> entry) {
+        entry.olderCold = newestCold;
+        entry.newerCold = null;
+        if (newestCold != null) {
+            newestCold.newerCold = entry;
+        } else {
+            eldestCold = entry;
+        }
+        newestCold = entry;
+    }
+
+    private void unlinkCold(Entry<K, V> entry) {
+        if (entry.newerCold != null) {
+            entry.newerCold.olderCold = entry.olderCold;
+        } else {
+            newestCold = entry.olderCold;
+        }
+        if (entry.olderCold != null) {
+            entry.olderCold.newerCold = entry.newerCold;
+        } else {
+            eldestCold = entry.newerCold;
+        }
+        entry.newerCold = null;
+        entry.olderCold = null;
+    }
+
+    /**
+     * An entry of the ring. The value is null for the non-resident entries.
+     */
+    private static final class Entry<K, V> {
+        private final K key;
+        private volatile V value;
+        /* Set by the readers without the lock, cleared by the hands */
+        private boolean referenced;
+        private int status;
+        private boolean inTest;
+        private Entry<K, V> previous;
+        private Entry<K, V> next;
+        private Entry<K, V> newerCold;
+        private Entry<K, V> olderCold;
+
+        Entry(K key) {
+            this.key = key;
+        }
+    }
+}
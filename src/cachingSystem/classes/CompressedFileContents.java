@@ -0,0 +1,78 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.FileContents;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * File contents stored on the heap as deflated bytes. They are inflated on each read, unless the
+ * ContentCompressor that created them still has them in its set of recently decoded contents. They
+ * leave the stats of the compressor once released by the cache and by every reader.
+ */
+public class CompressedFileContents implements FileContents {
+
+    private final ContentCompressor compressor;
+    private final byte[] compressed;
+    private final int length;
+    /* One reference is held by the cache, one by each reader in progress */
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    CompressedFileContents(ContentCompressor compressor, byte[] compressed, int length) {
+        this.compressor = compressor;
+        this.compressed = compressed;
+        this.length = length;
+    }
+
+    /**
+     * Inflate the contents. Each call creates a new buffer.
+     *
+     * @return a read-only buffer with the UTF-8 bytes of the contents
+     */
+    @Override
+    public ByteBuffer getByteBuffer() {
+        return ByteBuffer.wrap(compressor.inflate(this)).asReadOnlyBuffer();
+    }
+
+    @Override
+    public String getString() {
+        return compressor.decode(this);
+    }
+
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * Get the size of the contents once deflated, which is what they hold on the heap.
+     *
+     * @return the size, in bytes
+     */
+    public int getCompressedLength() {
+        return compressed.length;
+    }
+
+    @Override
+    public boolean retain() {
+        int count;
+        do {
+            count = references.get();
+            if (count <= 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    @Override
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            compressor.release(this);
+        }
+    }
+
+    byte[] getCompressed() {
+        return compressed;
+    }
+}
@@ -0,0 +1,87 @@
+package cachingSystem.classes;
+
+import dataStructures.classes.LatencyHistogram;
+
+/**
+ * The stats of a ContentCompressor at a point in time.
+ */
+public final class CompressionStats {
+
+    private final long compressedEntries;
+    private final long originalBytes;
+    private final long compressedBytes;
+    private final long hotSetHits;
+    private final LatencyHistogram.Snapshot decodeLatencies;
+
+    public CompressionStats(long compressedEntries, long originalBytes, long compressedBytes,
+            long hotSetHits, LatencyHistogram.Snapshot decodeLatencies) {
+        this.compressedEntries = compressedEntries;
+        this.originalBytes = originalBytes;
+        this.compressedBytes = compressedBytes;
+        this.hotSetHits = hotSetHits;
+        this.decodeLatencies = decodeLatencies;
+    }
+
+    /**
+     * Get the number of compressed contents currently stored.
+     *
+     * @return the number of contents
+     */
+    public long getCompressedEntries() {
+        return compressedEntries;
+    }
+
+    /**
+     * Get the size of the compressed contents currently stored, before compression.
+     *
+     * @return the size, in bytes
+     */
+    public long getOriginalBytes() {
+        return originalBytes;
+    }
+
+    /**
+     * Get the size of the compressed contents currently stored.
+     *
+     * @return the size, in bytes
+     */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * Get the ratio between the size of the compressed contents before and after compression.
+     *
+     * @return the compression ratio, or 1 if nothing is compressed
+     */
+    public double getCompressionRatio() {
+        return compressedBytes == 0 ? 1 : (double) originalBytes / compressedBytes;
+    }
+
+    /**
+     * Get the number of reads of compressed contents served by the hot set, without decoding.
+     *
+     * @return the number of hits
+     */
+    public long getHotSetHits() {
+        return hotSetHits;
+    }
+
+    /**
+     * Get the number of times compressed contents were decoded.
+     *
+     * @return the number of decodes
+     */
+    public long getDecodes() {
+        return decodeLatencies.getCount();
+    }
+
+    /**
+     * Get the durations of the decodes.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram.Snapshot getDecodeLatencies() {
+        return decodeLatencies;
+    }
+}
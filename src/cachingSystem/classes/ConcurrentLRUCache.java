@@ -0,0 +1,388 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.CacheStalePolicy;
+import cachingSystem.interfaces.RemovalListener;
+import cachingSystem.interfaces.RemovalListener.RemovalCause;
+import cachingSystem.interfaces.Weigher;
+import dataStructures.classes.Node;
+import dataStructures.classes.Pair;
+import observerPattern.interfaces.CacheListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe LRU cache. The keys are split by hash into independently locked segments, each one
+ * being a regular LRUCache, so threads working on different segments never contend. The stale
+ * policy is applied to the whole cache after each put, evicting the least recently used entries of
+ * the most populated segments; each entry is checked against the policy and removed under the lock
+ * of its segment. Since writers insert and sweep without a global lock, the cache may briefly be
+ * off its capacity by the number of concurrent writers.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class ConcurrentLRUCache<K, V> extends ObservableCache<K, V> {
+
+    private static final int DEFAULT_SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final int segmentMask;
+
+    public ConcurrentLRUCache() {
+        this(DEFAULT_SEGMENTS);
+    }
+
+    /**
+     * Create a cache with a given number of segments. The number is rounded up to a power of two.
+     *
+     * @param concurrencyLevel the expected number of threads using the cache at the same time
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public ConcurrentLRUCache(int concurrencyLevel) {
+        int count = 1;
+        while (count < concurrencyLevel) {
+            count <<= 1;
+        }
+
+        segments = (Segment<K, V>[]) new Segment[count];
+        segmentMask = count - 1;
+
+        RemovalListener<K, V> segmentRemovalListener = new RemovalListener<K, V>() {
+            @Override
+            public void onRemoval(K key, V value, RemovalCause cause) {
+                notifyRemoval(key, value, cause);
+            }
+        };
+
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment<>();
+            segments[i].setRemovalListener(segmentRemovalListener);
+        }
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & segmentMask];
+    }
+
+    /**
+     * Get the value associated with a key, or null if the key does not exist in the cache. The
+     * listener is notified after the segment lock has been released.
+     *
+     * @param key the key too lookup
+     * @return the associated value, or null
+     */
+    @Override
+    public V get(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        V value;
+
+        segment.lock.lock();
+        try {
+            value = segment.get(key);
+        } finally {
+            segment.lock.unlock();
+        }
+
+        if (value == null) {
+            getListener().onMiss(key);
+        } else {
+            getListener().onHit(key);
+        }
+        return value;
+    }
+
+    /**
+     * Insert a key value pair in the cache, then clear the stale entries of the cache once the
+     * segment lock has been released.
+     *
+     * @param key
+     * @param value
+     */
+    @Override
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+
+        segment.lock.lock();
+        try {
+            segment.put(key, value);
+        } finally {
+            segment.lock.unlock();
+        }
+
+        evictStaleEntries(segment);
+        getListener().onPut(key, value);
+    }
+
+    /**
+     * The cache size is the sum of the segment sizes. While other threads are writing, the result
+     * is only an estimate.
+     *
+     * @return the cache size
+     */
+    @Override
+    public int size() {
+        int size = 0;
+        for (Segment<K, V> segment : segments) {
+            size += segment.entryCount;
+        }
+        return size;
+    }
+
+    /**
+     * Evict the least recently used entries of the most populated segments while the policy asks
+     * for it. The eldest entry of a segment is checked and removed under the lock of the segment,
+     * so an entry read or put again meanwhile by another thread is never evicted in its place.
+     */
+    @Override
+    public void clearStaleEntries() {
+        evictStaleEntries(null);
+    }
+
+    /**
+     * Clear the stale entries after a put. The segment just written is passed over while another
+     * one is as populated, since it may hold nothing but the new entry, which would then be
+     * evicted before anyone could read it.
+     *
+     * @param written the segment of the new entry, or null after no put
+     */
+    private void evictStaleEntries(Segment<K, V> written) {
+        CacheStalePolicy<K, V> stalePolicy = getCacheStalePolicy();
+        if (stalePolicy == null) {
+            return;
+        }
+
+        while (true) {
+            Segment<K, V> largest = largestSegment(written);
+            Pair<K, V> evicted;
+
+            largest.lock.lock();
+            try {
+                evicted = largest.removeEldestIfStale(stalePolicy);
+            } finally {
+                largest.lock.unlock();
+            }
+
+            if (evicted == null) {
+                return;
+            }
+            notifyRemoval(evicted.getKey(), evicted.getValue(), RemovalCause.EVICTED);
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Set the weigher of the cache. Every segment keeps the weight of its own entries.
+     *
+     * @param entryWeigher
+     */
+    @Override
+    public void setWeigher(Weigher<K, V> entryWeigher) {
+        super.setWeigher(entryWeigher);
+        for (Segment<K, V> segment : segments) {
+            segment.setWeigher(entryWeigher);
+        }
+    }
+
+    /**
+     * The total weight is the sum of the segment weights. While other threads are writing, the
+     * result is only an estimate.
+     *
+     * @return the total weight
+     */
+    @Override
+    public long getTotalWeight() {
+        long totalWeight = 0;
+        for (Segment<K, V> segment : segments) {
+            totalWeight += segment.entryWeight;
+        }
+        return totalWeight;
+    }
+
+    /**
+     * Remove a key if it exists in the cache.
+     *
+     * @param key the key to be removed
+     * @return the value associated with the key, or null if the key was not in the cache
+     */
+    @Override
+    public V remove(K key) {
+        Segment<K, V> segment = segmentFor(key);
+
+        segment.lock.lock();
+        try {
+            if (!segment.getLRUCache().containsKey(key)) {
+                return null;
+            }
+            return segment.remove(key);
+        } finally {
+            segment.lock.unlock();
+        }
+    }
+
+    /**
+     * Clear all the elements from the cache, one segment at a time.
+     */
+    @Override
+    public void clearAll() {
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                segment.clearAll();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Return the least recently used entry of the most populated segment.
+     *
+     * @return the eldest entry
+     */
+    @Override
+    public Pair<K, V> getEldestEntry() {
+        Segment<K, V> largest = largestSegment(null);
+
+        largest.lock.lock();
+        try {
+            return largest.getEldestEntry();
+        } finally {
+            largest.lock.unlock();
+        }
+    }
+
+    /**
+     * Find the most populated segment, preferring any other one to the segment given on a tie.
+     */
+    private Segment<K, V> largestSegment(Segment<K, V> passedOver) {
+        Segment<K, V> largest = segments[0];
+        for (Segment<K, V> segment : segments) {
+            if (segment.entryCount > largest.entryCount
+                    || segment.entryCount == largest.entryCount && largest == passedOver) {
+                largest = segment;
+            }
+        }
+        return largest;
+    }
+
+    /**
+     * Get the entries of the cache in the order getEldestEntry would return them: each time, the
+     * least recently used entry of the segment with the most entries left. The segments are copied
+     * one at a time, so while other threads are writing, the result mixes their states.
+     *
+     * @return the entries, eldest first
+     */
+    @Override
+    public List<Pair<K, V>> getEntries() {
+        List<List<Pair<K, V>>> segmentEntries = new ArrayList<>(segments.length);
+        int total = 0;
+        for (Segment<K, V> segment : segments) {
+            segment.lock.lock();
+            try {
+                List<Pair<K, V>> entries = segment.getEntries();
+                segmentEntries.add(entries);
+                total += entries.size();
+            } finally {
+                segment.lock.unlock();
+            }
+        }
+
+        List<Pair<K, V>> entries = new ArrayList<>(total);
+        int[] taken = new int[segments.length];
+        for (int i = 0; i < total; i++) {
+            int largest = 0;
+            for (int j = 1; j < segments.length; j++) {
+                if (segmentEntries.get(j).size() - taken[j]
+                        > segmentEntries.get(largest).size() - taken[largest]) {
+                    largest = j;
+                }
+            }
+            entries.add(segmentEntries.get(largest).get(taken[largest]++));
+        }
+        return entries;
+    }
+
+    /**
+     * A segment is a LRUCache guarded by its own lock. The events are reported and the stale
+     * entries are cleared by the enclosing cache, so the segment ignores both. Its size and weight
+     * are also published in volatile fields, so that the cache can add them up without the lock.
+     */
+    private static final class Segment<K, V> extends LRUCache<K, V> {
+        private final ReentrantLock lock = new ReentrantLock();
+        private volatile int entryCount;
+        private volatile long entryWeight;
+
+        Segment() {
+            setCacheListener(new CacheListener<K, V>() {
+                @Override
+                public void onHit(K key) {
+
+                }
+
+                @Override
+                public void onMiss(K key) {
+
+                }
+
+                @Override
+                public void onPut(K key, V value) {
+
+                }
+            });
+            setStalePolicy(new CacheStalePolicy<K, V>() {
+                @Override
+                public boolean shouldRemoveEldestEntry(Pair<K, V> entry) {
+                    return false;
+                }
+            });
+        }
+
+        /**
+         * Remove the least recently used entry if the policy asks for it. Must be called with the
+         * lock held.
+         *
+         * @return the removed entry, or null if nothing was removed
+         */
+        Pair<K, V> removeEldestIfStale(CacheStalePolicy<K, V> stalePolicy) {
+            Pair<K, V> eldest = getEldestEntry();
+            if (eldest == null || !stalePolicy.shouldRemoveEldestEntry(eldest)) {
+                return null;
+            }
+            remove(eldest.getKey());
+            return eldest;
+        }
+
+        @Override
+        protected void afterNodeInsertion(Node<K, V> node) {
+            publishSize();
+        }
+
+        @Override
+        protected void afterNodeUpdate(Node<K, V> node) {
+            publishSize();
+        }
+
+        @Override
+        protected void afterNodeRemoval(Node<K, V> node) {
+            publishSize();
+        }
+
+        @Override
+        public void clearAll() {
+            super.clearAll();
+            publishSize();
+        }
+
+        private void publishSize() {
+            entryCount = size();
+            entryWeight = getTotalWeight();
+        }
+    }
+}
@@ -0,0 +1,185 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.CacheStalePolicy;
+import cachingSystem.interfaces.FileContents;
+import cachingSystem.interfaces.Weigher;
+import dataStructures.classes.LatencyHistogram;
+import dataStructures.classes.Pair;
+import observerPattern.interfaces.CacheListener;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores file contents on the heap, deflating the ones larger than a threshold. The contents that
+ * do not shrink by at least an eighth are kept as they are.
+ *
+ * Since inflating costs much more than a lookup, the strings decoded from the compressed contents
+ * are kept in a small LRU cache, the hot set, bounded by the size of the contents it holds. The
+ * most read files are thus decoded once, and the rest of the cache holds compressed contents only.
+ */
+public class ContentCompressor {
+
+    private static final int MINIMUM_SAVING_SHIFT = 3;
+
+    private final int minimumSize;
+    private final long hotSetBytes;
+    private final ObservableCache<CompressedFileContents, String> hotSet;
+
+    private final LongAdder compressedEntries = new LongAdder();
+    private final LongAdder originalBytes = new LongAdder();
+    private final LongAdder compressedBytes = new LongAdder();
+    private final LongAdder hotSetHits = new LongAdder();
+    private final LatencyHistogram decodeLatencies = new LatencyHistogram();
+
+    /**
+     * Create a compressor.
+     *
+     * @param minimumSize the size from which contents are deflated, in bytes
+     * @param hotSetBytes the maximum size of the decoded contents kept in the hot set, in UTF-8
+     * bytes; 0 disables the hot set
+     */
+    public ContentCompressor(int minimumSize, long hotSetBytes) {
+        this.minimumSize = minimumSize;
+        this.hotSetBytes = hotSetBytes;
+
+        ObservableCache<CompressedFileContents, String> decoded =
+                new SynchronizedCache<>(new ArrayLRUCache<>());
+        decoded.setCacheListener(new CacheListener<CompressedFileContents, String>() {
+            @Override
+            public void onHit(CompressedFileContents key) {
+
+            }
+
+            @Override
+            public void onMiss(CompressedFileContents key) {
+
+            }
+
+            @Override
+            public void onPut(CompressedFileContents key, String value) {
+
+            }
+        });
+        decoded.setWeigher(new Weigher<CompressedFileContents, String>() {
+            @Override
+            public int weigh(CompressedFileContents key, String value) {
+                return key.getLength();
+            }
+        });
+        decoded.setStalePolicy(new CacheStalePolicy<CompressedFileContents, String>() {
+            @Override
+            public boolean shouldRemoveEldestEntry(Pair<CompressedFileContents, String> entry) {
+                return decoded.getTotalWeight() > hotSetBytes;
+            }
+        });
+        this.hotSet = decoded;
+    }
+
+    /**
+     * Store UTF-8 encoded contents, deflated if they are large enough and compress well.
+     *
+     * @param encoded the contents
+     * @return the stored contents
+     */
+    public FileContents compress(byte[] encoded) {
+        if (encoded.length >= minimumSize) {
+            byte[] compressed = deflate(encoded);
+            if (compressed.length <= encoded.length - (encoded.length >> MINIMUM_SAVING_SHIFT)) {
+                compressedEntries.increment();
+                originalBytes.add(encoded.length);
+                compressedBytes.add(compressed.length);
+                return new CompressedFileContents(this, compressed, encoded.length);
+            }
+        }
+        return new HeapFileContents(new String(encoded, StandardCharsets.UTF_8), encoded.length);
+    }
+
+    /**
+     * Copy the stats of the compressor at once, for reporting.
+     *
+     * @return the stats
+     */
+    public CompressionStats snapshot() {
+        return new CompressionStats(compressedEntries.sum(), originalBytes.sum(),
+                compressedBytes.sum(), hotSetHits.sum(), decodeLatencies.snapshot());
+    }
+
+    String decode(CompressedFileContents contents) {
+        String decoded = hotSet.get(contents);
+        if (decoded != null) {
+            hotSetHits.increment();
+            return decoded;
+        }
+
+        long start = System.nanoTime();
+        decoded = new String(inflateBytes(contents), StandardCharsets.UTF_8);
+        decodeLatencies.record(System.nanoTime() - start);
+
+        if (contents.getLength() <= hotSetBytes) {
+            hotSet.put(contents, decoded);
+        }
+        return decoded;
+    }
+
+    byte[] inflate(CompressedFileContents contents) {
+        long start = System.nanoTime();
+        byte[] encoded = inflateBytes(contents);
+        decodeLatencies.record(System.nanoTime() - start);
+        return encoded;
+    }
+
+    void release(CompressedFileContents contents) {
+        hotSet.remove(contents);
+        compressedEntries.decrement();
+        originalBytes.add(-contents.getLength());
+        compressedBytes.add(-contents.getCompressedLength());
+    }
+
+    private static byte[] deflate(byte[] encoded) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(encoded);
+            deflater.finish();
+
+            byte[] compressed = new byte[Math.max(64, encoded.length >> 1)];
+            int length = 0;
+            while (!deflater.finished()) {
+                if (length == compressed.length) {
+                    compressed = Arrays.copyOf(compressed, compressed.length * 2);
+                }
+                length += deflater.deflate(compressed, length, compressed.length - length);
+            }
+            return Arrays.copyOf(compressed, length);
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflateBytes(CompressedFileContents contents) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(contents.getCompressed());
+
+            byte[] encoded = new byte[contents.getLength()];
+            int length = 0;
+            while (length < encoded.length && !inflater.finished()) {
+                int inflated = inflater.inflate(encoded, length, encoded.length - length);
+                if (inflated == 0 && inflater.needsInput()) {
+                    throw new DataFormatException("Truncated compressed contents");
+                }
+                length += inflated;
+            }
+            return encoded;
+        } catch (DataFormatException e) {
+            /* The bytes were deflated by this class and never change */
+            throw new IllegalStateException("Corrupted compressed contents", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
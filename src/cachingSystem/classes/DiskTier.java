@@ -0,0 +1,457 @@
+package cachingSystem.classes;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A second cache tier on the local disk, for the entries evicted from a file cache. The entries
+ * are appended to a log split in segment files, and an in-memory index maps each key to the
+ * position of its latest record. The records are read back with positional reads, so readers
+ * never block each other or the writer.
+ *
+ * A record becomes dead when its key is removed or written again. A background thread compacts the
+ * segments that are mostly dead, copying their live records to the end of the log and deleting
+ * them. When the log exceeds its maximum size, its eldest segment is dropped whole.
+ *
+ * The index is not saved, so the tier starts empty and the segments left by a previous run are
+ * deleted.
+ */
+public class DiskTier {
+
+    private static final String SEGMENT_SUFFIX = ".segment";
+    private static final int HEADER_SIZE = 24;
+    private static final long MINIMUM_SEGMENT_SIZE = 1 << 20;
+    private static final long MAXIMUM_SEGMENT_SIZE = 64 << 20;
+    private static final int SEGMENTS_PER_TIER = 8;
+    /* A segment is compacted once less than this part of it is live */
+    private static final double COMPACTION_THRESHOLD = 0.5;
+
+    private final Path directory;
+    private final long maximumSize;
+    private final long segmentSize;
+    private final ConcurrentHashMap<String, Location> index = new ConcurrentHashMap<>();
+    private final BlockingQueue<Segment> compactionQueue = new LinkedBlockingQueue<>();
+    private final Thread compactor;
+
+    /* Only used with the write lock held, except active which is also read without it */
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+    private volatile Segment active;
+    private long nextSegmentId;
+    private long diskSize;
+
+    /**
+     * Create a tier with segments sized from its maximum size.
+     *
+     * @param directory the directory of the segment files, created if needed
+     * @param maximumSize the maximum size of the segment files together, in bytes
+     * @throws IOException if the directory cannot be prepared
+     */
+    public DiskTier(Path directory, long maximumSize) throws IOException {
+        this(directory, maximumSize, Math.max(MINIMUM_SEGMENT_SIZE,
+                Math.min(MAXIMUM_SEGMENT_SIZE, maximumSize / SEGMENTS_PER_TIER)));
+    }
+
+    /**
+     * Create a tier.
+     *
+     * @param directory the directory of the segment files, created if needed
+     * @param maximumSize the maximum size of the segment files together, in bytes
+     * @param segmentSize the size from which a new segment is started, in bytes
+     * @throws IOException if the directory cannot be prepared
+     */
+    public DiskTier(Path directory, long maximumSize, long segmentSize) throws IOException {
+        this.directory = directory;
+        this.maximumSize = maximumSize;
+        this.segmentSize = segmentSize;
+
+        Files.createDirectories(directory);
+        try (DirectoryStream<Path> previousSegments =
+                Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path segment : previousSegments) {
+                Files.delete(segment);
+            }
+        }
+        active = openSegment();
+
+        compactor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                compactSegments();
+            }
+        }, "disk-tier-compactor");
+        compactor.setDaemon(true);
+        compactor.start();
+    }
+
+    /**
+     * Append an entry to the log, replacing the previous record of its key.
+     *
+     * @param entry the entry, with its contents
+     * @throws IOException if the record cannot be written
+     */
+    public void put(CacheSnapshot.Entry entry) throws IOException {
+        byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer contents = entry.getContents().duplicate();
+        ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + key.length + contents.remaining());
+        record.putInt(key.length);
+        record.putInt(contents.remaining());
+        record.putLong(entry.getModifiedMillis());
+        record.putLong(entry.getSize());
+        record.put(key);
+        record.put(contents);
+        record.flip();
+
+        writeLock.lock();
+        try {
+            Location location = append(record);
+            Location previous = index.put(entry.getKey(), location);
+            if (previous != null) {
+                markDead(previous);
+            }
+            dropEldestSegments();
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Remove an entry from the log and return it. The record becomes dead.
+     *
+     * @param key the key
+     * @return the entry, with its contents on the heap, or null if the key is not in the log
+     * @throws IOException if the record cannot be read
+     */
+    public CacheSnapshot.Entry take(String key) throws IOException {
+        while (true) {
+            Location location = index.get(key);
+            if (location == null) {
+                return null;
+            }
+
+            ByteBuffer record;
+            try {
+                record = read(location);
+            } catch (ClosedChannelException e) {
+                /*
+                 * The segment was compacted or dropped meanwhile, and the key is looked up again,
+                 * or its channel was closed by the interruption of a reading thread
+                 */
+                location.segment.reopenIfClosed();
+                if (e instanceof ClosedByInterruptException) {
+                    throw e;
+                }
+                continue;
+            }
+
+            if (index.remove(key, location)) {
+                markDead(location);
+                return decode(record);
+            }
+        }
+    }
+
+    /**
+     * Remove an entry from the log, if it is there.
+     *
+     * @param key the key
+     */
+    public void remove(String key) {
+        Location location = index.remove(key);
+        if (location != null) {
+            markDead(location);
+        }
+    }
+
+    /**
+     * Get the number of entries in the log.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Get the size of the segment files together, including the dead records.
+     *
+     * @return the size, in bytes
+     */
+    public long getDiskSize() {
+        writeLock.lock();
+        try {
+            return diskSize;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Stop the compaction and delete the segment files.
+     */
+    public void close() {
+        compactor.interrupt();
+        try {
+            compactor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        writeLock.lock();
+        try {
+            index.clear();
+            for (Segment segment : segments) {
+                deleteSegment(segment);
+            }
+            segments.clear();
+            diskSize = 0;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Write a record at the end of the active segment, starting a new segment first if it is full.
+     * Must be called with the write lock held.
+     */
+    private Location append(ByteBuffer record) throws IOException {
+        int length = record.remaining();
+        if (active.writtenBytes > 0 && active.writtenBytes + length > segmentSize) {
+            Segment previous = active;
+            active = openSegment();
+            queueForCompaction(previous);
+        }
+
+        long offset = active.writtenBytes;
+        try {
+            while (record.hasRemaining()) {
+                active.channel.write(record, offset + record.position());
+            }
+        } catch (ClosedChannelException e) {
+            active.reopenIfClosed();
+            throw e;
+        }
+        active.writtenBytes += length;
+        active.liveBytes.addAndGet(length);
+        diskSize += length;
+        return new Location(active, offset, length);
+    }
+
+    private ByteBuffer read(Location location) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate(location.length);
+        while (record.hasRemaining()) {
+            int read = location.segment.channel.read(record, location.offset + record.position());
+            if (read < 0) {
+                throw new IOException("Disk tier segment truncated: " + location.segment.path);
+            }
+        }
+        record.flip();
+        return record;
+    }
+
+    private CacheSnapshot.Entry decode(ByteBuffer record) {
+        byte[] key = new byte[record.getInt()];
+        int contentsLength = record.getInt();
+        long modifiedMillis = record.getLong();
+        long size = record.getLong();
+        record.get(key);
+
+        ByteBuffer contents = record.slice();
+        contents.limit(contentsLength);
+        return new CacheSnapshot.Entry(new String(key, StandardCharsets.UTF_8), modifiedMillis,
+                size, contents.asReadOnlyBuffer());
+    }
+
+    private void markDead(Location location) {
+        location.segment.liveBytes.addAndGet(-location.length);
+        if (location.segment != active) {
+            queueForCompaction(location.segment);
+        }
+    }
+
+    private void queueForCompaction(Segment segment) {
+        if (segment.liveBytes.get() < segment.writtenBytes * COMPACTION_THRESHOLD
+                && !segment.queued) {
+            segment.queued = true;
+            compactionQueue.offer(segment);
+        }
+    }
+
+    /**
+     * Drop the eldest segments while the log is too large, along with the keys of their live
+     * records. The active segment is kept. Must be called with the write lock held.
+     */
+    private void dropEldestSegments() {
+        while (diskSize > maximumSize && segments.size() > 1) {
+            Segment eldest = segments.peekFirst();
+            Iterator<Map.Entry<String, Location>> iterator = index.entrySet().iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next().getValue().segment == eldest) {
+                    iterator.remove();
+                }
+            }
+            removeSegment(eldest);
+        }
+    }
+
+    /**
+     * Take the segments to compact from the queue until the tier is closed.
+     */
+    private void compactSegments() {
+        while (true) {
+            Segment segment;
+            try {
+                segment = compactionQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            try {
+                compact(segment);
+            } catch (ClosedChannelException e) {
+                /* The segment was dropped meanwhile */
+            } catch (IOException e) {
+                /* The segment is left as it is; its records can still be read */
+            }
+        }
+    }
+
+    /**
+     * Copy the live records of a segment to the end of the log, then delete the segment. A record
+     * is live if the index still points to it; if its key is removed or written again while it is
+     * copied, the copy becomes dead instead.
+     */
+    private void compact(Segment segment) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        long offset = 0;
+        while (offset < segment.writtenBytes) {
+            header.clear();
+            while (header.hasRemaining()) {
+                if (segment.channel.read(header, offset + header.position()) < 0) {
+                    throw new IOException("Disk tier segment truncated: " + segment.path);
+                }
+            }
+            header.flip();
+            int keyLength = header.getInt();
+            int contentsLength = header.getInt();
+            int length = HEADER_SIZE + keyLength + contentsLength;
+
+            Location location = new Location(segment, offset, length);
+            ByteBuffer record = read(location);
+            byte[] key = new byte[keyLength];
+            record.position(HEADER_SIZE);
+            record.get(key);
+            record.rewind();
+            String decodedKey = new String(key, StandardCharsets.UTF_8);
+
+            Location current = index.get(decodedKey);
+            if (current != null && current.segment == segment && current.offset == offset) {
+                writeLock.lock();
+                try {
+                    Location copy = append(record);
+                    if (index.replace(decodedKey, current, copy)) {
+                        segment.liveBytes.addAndGet(-length);
+                    } else {
+                        markDead(copy);
+                    }
+                } finally {
+                    writeLock.unlock();
+                }
+            }
+            offset += length;
+        }
+
+        writeLock.lock();
+        try {
+            removeSegment(segment);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Must be called with the write lock held.
+     */
+    private Segment openSegment() throws IOException {
+        Path path = directory.resolve(String.format("%016d%s", nextSegmentId++, SEGMENT_SUFFIX));
+        Segment segment = new Segment(path, FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE));
+        segments.addLast(segment);
+        return segment;
+    }
+
+    /**
+     * Must be called with the write lock held.
+     */
+    private void removeSegment(Segment segment) {
+        if (segments.remove(segment)) {
+            segment.removed = true;
+            diskSize -= segment.writtenBytes;
+            deleteSegment(segment);
+        }
+    }
+
+    private void deleteSegment(Segment segment) {
+        try {
+            segment.channel.close();
+            Files.deleteIfExists(segment.path);
+        } catch (IOException e) {
+            /* Deleted with the other segments on the next start */
+        }
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private volatile FileChannel channel;
+        private final AtomicLong liveBytes = new AtomicLong();
+        /* Only changed with the write lock held, and only while the segment is active */
+        private volatile long writtenBytes;
+        private volatile boolean queued;
+        private volatile boolean removed;
+
+        Segment(Path path, FileChannel channel) {
+            this.path = path;
+            this.channel = channel;
+        }
+
+        /**
+         * Open the file again if its channel was closed because a thread using it was interrupted.
+         */
+        synchronized void reopenIfClosed() throws IOException {
+            if (!removed && !channel.isOpen()) {
+                channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+        }
+    }
+
+    /**
+     * The position of a record in the log.
+     */
+    private static final class Location {
+        private final Segment segment;
+        private final long offset;
+        private final int length;
+
+        Location(Segment segment, long offset, int length) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+        }
+    }
+}
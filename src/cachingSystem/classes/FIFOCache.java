@@ -4,7 +4,9 @@ import cachingSystem.FileCache;
 import cachingSystem.interfaces.Cache;
 import dataStructures.classes.Pair;
 
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 public class FIFOCache<K, V> implements Cache<K, V> {
@@ -56,4 +58,13 @@ public class FIFOCache<K, V> implements Cache<K, V> {
 
         return new Pair<K, V>(eldest.getKey(), eldest.getValue());
     }
+
+    @Override
+    public List<Pair<K, V>> getEntries() {
+        List<Pair<K, V>> entries = new ArrayList<>(cache.size());
+        for (Map.Entry<K, V> entry : cache.entrySet()) {
+            entries.add(new Pair<K, V>(entry.getKey(), entry.getValue()));
+        }
+        return entries;
+    }
 }
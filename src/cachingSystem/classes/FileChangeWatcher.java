@@ -0,0 +1,254 @@
+package cachingSystem.classes;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Watches the files of a cache for changes. The parent directory of every watched file is
+ * registered with a WatchService, and a background thread reports the keys of the files that were
+ * modified, created or deleted, so that their entries are invalidated right away.
+ *
+ * The modification time and the size of each file are recorded when it is watched, before it is
+ * read. A file is checked against them on its next access in the cases where the events may not be
+ * enough: after a change event (the file may have been read while it was changing), after the
+ * events of its directory overflowed, and when its directory cannot be watched at all.
+ */
+public class FileChangeWatcher {
+
+    private final WatchService watchService;
+    private final Consumer<String> invalidator;
+    private final ConcurrentHashMap<String, WatchedFile> files = new ConcurrentHashMap<>();
+    /* Only changed with the lock of the watcher held */
+    private final Map<Path, WatchedDirectory> directories = new HashMap<>();
+    private final Thread poller;
+
+    /**
+     * Start watching for changes.
+     *
+     * @param invalidator called from the background thread with the key of each changed file
+     * @throws IOException if the file system does not support watching
+     */
+    public FileChangeWatcher(Consumer<String> invalidator) throws IOException {
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.invalidator = invalidator;
+
+        poller = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                poll();
+            }
+        }, "file-change-watcher");
+        poller.setDaemon(true);
+        poller.start();
+    }
+
+    /**
+     * Watch a file, or record its current state again if it is already watched. Must be called
+     * before the file is read, so that a change happening during the read is not missed.
+     *
+     * @param key the cache key of the file, which is also its path
+     */
+    public synchronized void watch(String key) {
+        WatchedFile file = files.get(key);
+        if (file == null) {
+            Path path = Paths.get(key).toAbsolutePath().normalize();
+            Path parent = path.getParent();
+            WatchedDirectory directory = directories.get(parent);
+            if (directory == null) {
+                directory = new WatchedDirectory(parent, register(parent));
+                directories.put(parent, directory);
+            }
+
+            file = new WatchedFile(key, path, directory);
+            directory.files.put(key, file);
+            files.put(key, file);
+        }
+
+        file.recordStamp();
+        file.suspect = false;
+    }
+
+    /**
+     * Stop watching a file, once it is no longer cached. The directory is no longer watched once
+     * none of its files is.
+     *
+     * @param key the cache key of the file
+     */
+    public synchronized void unwatch(String key) {
+        WatchedFile file = files.remove(key);
+        if (file == null) {
+            return;
+        }
+
+        WatchedDirectory directory = file.directory;
+        directory.files.remove(key);
+        if (directory.files.isEmpty()) {
+            directories.remove(directory.path);
+            if (directory.watchKey != null) {
+                directory.watchKey.cancel();
+            }
+        }
+    }
+
+    /**
+     * Tell whether the cached contents of a file can still be used. Most of the time this is a map
+     * lookup; the file is only checked on the disk when its events may have been missed.
+     *
+     * @param key the cache key of the file
+     * @return false if the file changed since it was read, true otherwise or if it is not watched
+     */
+    public boolean isValid(String key) {
+        WatchedFile file = files.get(key);
+        if (file == null || (!file.suspect && file.directory.watchKey != null)) {
+            return true;
+        }
+
+        if (!file.hasSameStamp()) {
+            return false;
+        }
+        if (file.directory.watchKey != null) {
+            file.suspect = false;
+        }
+        return true;
+    }
+
+    /**
+     * Stop the background thread and all the watches.
+     */
+    public void close() {
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            /* Nothing left to release */
+        }
+        try {
+            poller.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Register a directory, or return null if it cannot be watched, for example when the limit of
+     * watches of the system is reached. Its files are then checked on every access.
+     */
+    private WatchKey register(Path directory) {
+        try {
+            return directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private void poll() {
+        while (true) {
+            WatchKey watchKey;
+            try {
+                watchKey = watchService.take();
+            } catch (ClosedWatchServiceException | InterruptedException e) {
+                return;
+            }
+
+            WatchedDirectory directory;
+            synchronized (this) {
+                directory = directories.get((Path) watchKey.watchable());
+            }
+            if (directory == null || directory.watchKey != watchKey) {
+                watchKey.reset();
+                continue;
+            }
+
+            for (WatchEvent<?> event : watchKey.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    markAllSuspect(directory);
+                    continue;
+                }
+
+                Path name = (Path) event.context();
+                for (WatchedFile file : directory.files.values()) {
+                    if (file.path.getFileName().equals(name)) {
+                        file.suspect = true;
+                        invalidator.accept(file.key);
+                    }
+                }
+            }
+
+            /* The directory is no longer watched, for example because it was deleted */
+            if (!watchKey.reset()) {
+                directory.watchKey = null;
+                markAllSuspect(directory);
+            }
+        }
+    }
+
+    private void markAllSuspect(WatchedDirectory directory) {
+        for (WatchedFile file : directory.files.values()) {
+            file.suspect = true;
+        }
+    }
+
+    private static final class WatchedDirectory {
+        private final Path path;
+        private final ConcurrentHashMap<String, WatchedFile> files = new ConcurrentHashMap<>();
+        private volatile WatchKey watchKey;
+
+        WatchedDirectory(Path path, WatchKey watchKey) {
+            this.path = path;
+            this.watchKey = watchKey;
+        }
+    }
+
+    private static final class WatchedFile {
+        private final String key;
+        private final Path path;
+        private final WatchedDirectory directory;
+        private volatile long modifiedMillis;
+        private volatile long size;
+        /* Set when the file must be checked on the disk on its next access */
+        private volatile boolean suspect;
+
+        WatchedFile(String key, Path path, WatchedDirectory directory) {
+            this.key = key;
+            this.path = path;
+            this.directory = directory;
+        }
+
+        void recordStamp() {
+            BasicFileAttributes attributes = readAttributes();
+            modifiedMillis = attributes == null ? -1 : attributes.lastModifiedTime().toMillis();
+            size = attributes == null ? -1 : attributes.size();
+        }
+
+        boolean hasSameStamp() {
+            BasicFileAttributes attributes = readAttributes();
+            if (attributes == null) {
+                return modifiedMillis == -1;
+            }
+            return attributes.lastModifiedTime().toMillis() == modifiedMillis
+                    && attributes.size() == size;
+        }
+
+        private BasicFileAttributes readAttributes() {
+            try {
+                return Files.readAttributes(path, BasicFileAttributes.class);
+            } catch (IOException e) {
+                /* Missing or unreadable; the read of the file reports the error */
+                return null;
+            }
+        }
+    }
+}
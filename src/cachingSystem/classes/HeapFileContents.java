@@ -0,0 +1,89 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.FileContents;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * File contents stored on the heap, as a string.
+ */
+public class HeapFileContents implements FileContents {
+
+    private final String contents;
+    private final int length;
+
+    public HeapFileContents(String contents) {
+        this(contents, utf8Length(contents));
+    }
+
+    /**
+     * Wrap a string whose UTF-8 size is already known, e.g. because it was decoded from a file.
+     *
+     * @param contents the contents
+     * @param length the size of the contents, in UTF-8 bytes
+     */
+    public HeapFileContents(String contents, int length) {
+        this.contents = contents;
+        this.length = length;
+    }
+
+    /**
+     * Encode the contents. Each call creates a new buffer.
+     *
+     * @return a read-only buffer with the UTF-8 bytes of the contents
+     */
+    @Override
+    public ByteBuffer getByteBuffer() {
+        return ByteBuffer.wrap(contents.getBytes(StandardCharsets.UTF_8)).asReadOnlyBuffer();
+    }
+
+    @Override
+    public String getString() {
+        return contents;
+    }
+
+    @Override
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * The string is left to the garbage collector, so the references are not counted.
+     */
+    @Override
+    public boolean retain() {
+        return true;
+    }
+
+    @Override
+    public void release() {
+
+    }
+
+    /**
+     * Count the bytes of the UTF-8 encoding of a string, without encoding it.
+     *
+     * @param contents the string
+     * @return the number of bytes
+     */
+    public static int utf8Length(String contents) {
+        int length = 0;
+
+        for (int i = 0; i < contents.length(); i++) {
+            char c = contents.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < contents.length()
+                    && Character.isLowSurrogate(contents.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+}
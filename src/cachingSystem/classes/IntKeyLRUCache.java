@@ -0,0 +1,64 @@
+package cachingSystem.classes;
+
+/**
+ * LRU cache for int keys. Use getInt(int) / putInt(int, V) / removeInt(int) to avoid boxing; the
+ * methods of the Cache interface take boxed keys.
+ *
+ * @param <V> the value type
+ */
+public class IntKeyLRUCache<V> extends PrimitiveKeyLRUCache<Integer, V> {
+
+    public IntKeyLRUCache() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Create a cache sized for a given number of entries. It grows as needed.
+     *
+     * @param initialCapacity the expected number of entries
+     */
+    public IntKeyLRUCache(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    /**
+     * Same as get(Integer), without boxing the key.
+     */
+    public V getInt(int key) {
+        return getUnboxed(key);
+    }
+
+    /**
+     * Same as put(Integer, V), without boxing the key.
+     */
+    public void putInt(int key, V value) {
+        putUnboxed(key, value);
+    }
+
+    /**
+     * Same as remove(Integer), without boxing the key.
+     */
+    public V removeInt(int key) {
+        return removeUnboxed(key);
+    }
+
+    @Override
+    public V get(Integer key) {
+        return getUnboxed(key);
+    }
+
+    @Override
+    public void put(Integer key, V value) {
+        putUnboxed(key, value);
+    }
+
+    @Override
+    public V remove(Integer key) {
+        return removeUnboxed(key);
+    }
+
+    @Override
+    protected Integer box(long key) {
+        return (int) key;
+    }
+}
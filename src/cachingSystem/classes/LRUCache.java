@@ -1,10 +1,16 @@
 package cachingSystem.classes;
 
+import cachingSystem.interfaces.RemovalListener.RemovalCause;
 import dataStructures.classes.DoubleLinkedList;
 import dataStructures.classes.Node;
 import dataStructures.classes.Pair;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * This cache is very similar to the FIFOCache, but guarantees O(1) complexity for the get, put and
@@ -23,6 +29,58 @@ public class LRUCache<K, V> extends ObservableCache<K, V> {
     public HashMap<K, Node<K, V>> getLRUCache() {
         return LRUCache;
     }
+    /**
+     * Create the node storing a new entry. Subclasses can use their own node type.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the node
+     */
+    protected Node<K, V> createNode(K key, V value) {
+        return new Node<>(key, value);
+    }
+    /**
+     * Called after a new node was added to the cache, before the stale entries are cleared.
+     *
+     * @param node the node
+     */
+    protected void afterNodeInsertion(Node<K, V> node) {
+
+    }
+    /**
+     * Called after the value of a node was replaced by a put.
+     *
+     * @param node the node
+     */
+    protected void afterNodeUpdate(Node<K, V> node) {
+
+    }
+    /**
+     * Called after a node was removed from the cache.
+     *
+     * @param node the node
+     */
+    protected void afterNodeRemoval(Node<K, V> node) {
+
+    }
+    /**
+     * Called after a get returned the value of a node.
+     *
+     * @param node the node
+     */
+    protected void afterNodeAccess(Node<K, V> node) {
+
+    }
+    /**
+     * Tells whether a stored node must be treated as missing. Subclasses can use it to hide the
+     * entries that are no longer valid.
+     *
+     * @param node the node
+     * @return true if the node must not be returned, false otherwise
+     */
+    protected boolean isExpired(Node<K, V> node) {
+        return false;
+    }
     /**
      * Remove a key if it exists in the cache.
      *
@@ -31,9 +89,13 @@ public class LRUCache<K, V> extends ObservableCache<K, V> {
      */
     @Override
     public V remove(K key) {
-        Node<K, V> temp = LRUCache.get(key);
-        LRUCache.remove(key);
+        Node<K, V> temp = LRUCache.remove(key);
+        if (temp == null) {
+            return null;
+        }
         doublyLinkedList.remove(temp);
+        subtractWeight(key, temp.getValue());
+        afterNodeRemoval(temp);
         return temp.getValue();
     }
     /**
@@ -44,19 +106,58 @@ public class LRUCache<K, V> extends ObservableCache<K, V> {
      */
     @Override
     public void put(K key, V value) {
-        if(LRUCache.containsKey(key)) {
-            Node<K, V> nodeToUpdate = LRUCache.get(key);
+        if (putEntry(key, value) || getWeigher() != null) {
+            clearStaleEntries();
+        }
+
+        getListener().onPut(key, value);
+    }
+    /**
+     * Insert several key value pairs in the cache. The stale entries are cleared once, after all
+     * the pairs were inserted, and the listener is notified once for the whole batch.
+     *
+     * @param entries the pairs to insert
+     */
+    @Override
+    public void putAll(Map<K, V> entries) {
+        boolean inserted = false;
+        for (Map.Entry<K, V> entry : entries.entrySet()) {
+            inserted |= putEntry(entry.getKey(), entry.getValue());
+        }
+
+        /* Notify before the sweep, which may drop pairs of the batch if it exceeds the capacity */
+        getListener().onPuts(entries);
+        if (inserted || getWeigher() != null) {
+            clearStaleEntries();
+        }
+    }
+    /**
+     * Insert or update a pair, without clearing the stale entries.
+     *
+     * @return true if a new node was added, false if an existing one was updated
+     */
+    private boolean putEntry(K key, V value) {
+        Node<K, V> nodeToUpdate = LRUCache.get(key);
+        if (nodeToUpdate != null) {
+            V oldValue = nodeToUpdate.getValue();
+            subtractWeight(key, oldValue);
             nodeToUpdate.setValue(value);
+            addWeight(key, value);
+            if (oldValue != value) {
+                notifyRemoval(key, oldValue, RemovalCause.REPLACED);
+            }
             doublyLinkedList.remove(nodeToUpdate);
             doublyLinkedList.addFirst(nodeToUpdate);
-        } else {
-            Node<K, V> newNode = new Node<>(key, value);
-            doublyLinkedList.addFirst(newNode);
-            LRUCache.put(key, newNode);
-            clearStaleEntries();
+            afterNodeUpdate(nodeToUpdate);
+            return false;
         }
 
-        getListener().onPut(key, value);
+        Node<K, V> newNode = createNode(key, value);
+        doublyLinkedList.addFirst(newNode);
+        LRUCache.put(key, newNode);
+        addWeight(key, value);
+        afterNodeInsertion(newNode);
+        return true;
     }
     /**
      * Get the value associated with a key, or null if the key does not exist in the cache.
@@ -71,12 +172,47 @@ public class LRUCache<K, V> extends ObservableCache<K, V> {
             getListener().onHit(key);
             doublyLinkedList.remove(temp);
             doublyLinkedList.addFirst(temp);
+            afterNodeAccess(temp);
             return temp.getValue();
         } else {
             getListener().onMiss(key);
         }
         return null;
     }
+    /**
+     * Get the values associated with several keys. The listener is notified once for all the hits
+     * and once for all the misses.
+     *
+     * @param keys the keys to lookup
+     * @return the values found, by key, in the order of the keys
+     */
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        Map<K, V> values = new LinkedHashMap<>();
+        List<K> hits = new ArrayList<>();
+        List<K> misses = new ArrayList<>();
+
+        for (K key : keys) {
+            Node<K, V> node = LRUCache.get(key);
+            if (node == null || isExpired(node)) {
+                misses.add(key);
+                continue;
+            }
+            doublyLinkedList.remove(node);
+            doublyLinkedList.addFirst(node);
+            values.put(key, node.getValue());
+            hits.add(key);
+            afterNodeAccess(node);
+        }
+
+        if (!hits.isEmpty()) {
+            getListener().onHits(hits);
+        }
+        if (!misses.isEmpty()) {
+            getListener().onMisses(misses);
+        }
+        return values;
+    }
     /**
      * The cache size is defined as the number of stored key-value pairs.
      *
@@ -93,6 +229,7 @@ public class LRUCache<K, V> extends ObservableCache<K, V> {
     public void clearAll() {
         LRUCache.clear();
         doublyLinkedList.setHead(null);
+        resetWeight();
 
     }
     /**
@@ -111,6 +248,26 @@ public class LRUCache<K, V> extends ObservableCache<K, V> {
             return new Pair<>(tail.getKey(), tail.getValue());
         }
     }
+    /**
+     * Get the entries of the cache, from the least to the most recently used.
+     *
+     * @return the entries, eldest first
+     */
+    @Override
+    public List<Pair<K, V>> getEntries() {
+        List<Pair<K, V>> entries = new ArrayList<>(LRUCache.size());
+        if (isEmpty()) {
+            return entries;
+        }
+
+        for (Node<K, V> node = doublyLinkedList.getTail(); node != null;
+                node = node.getPrevious()) {
+            if (!isExpired(node)) {
+                entries.add(new Pair<>(node.getKey(), node.getValue()));
+            }
+        }
+        return entries;
+    }
     /**
      * Tells whether or not the cache is empty.
      *
@@ -0,0 +1,365 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.CacheLoader;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/**
+ * Adds loading of missing keys to an ObservableCache. While a key is being loaded, the other
+ * threads asking for it wait for the same load instead of starting their own, and a failed load is
+ * reported to all of them. Loads can be run in the calling thread, or asynchronously on an
+ * executor; both kinds of callers share the loads in flight. The wrapped cache must be thread-safe.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class LoadingCache<K, V> {
+
+    private static final int COMPLETION_STRIPES = 256;
+
+    private static Executor defaultExecutor;
+
+    private final ObservableCache<K, V> cache;
+    private final CacheLoader<K, V> loader;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loads = new ConcurrentHashMap<>();
+    /*
+     * The number of loads put in the cache, for the keys of each stripe. A load is counted after
+     * its value was put and before it leaves the loads in flight, so a caller that missed the key
+     * and then claimed its load can tell whether another load may have completed in between.
+     */
+    private final AtomicLongArray completions = new AtomicLongArray(COMPLETION_STRIPES);
+    private volatile Executor executor;
+
+    public LoadingCache(ObservableCache<K, V> cache, CacheLoader<K, V> loader) {
+        this.cache = cache;
+        this.loader = loader;
+    }
+
+    /**
+     * Set the executor running the asynchronous loads. By default, each load runs in a virtual
+     * thread, or in a thread of a shared pool on JVMs without virtual threads.
+     *
+     * @param loadExecutor the executor
+     */
+    public void setExecutor(Executor loadExecutor) {
+        executor = loadExecutor;
+    }
+
+    /**
+     * Get the value associated with a key, loading it on a miss. The loaded value is put in the
+     * cache.
+     *
+     * @param key the key
+     * @return the value
+     * @throws CacheLoadException if the value cannot be loaded
+     */
+    public V get(K key) {
+        long start = System.nanoTime();
+        long completed = completions.get(stripe(key));
+        V value = cache.get(key);
+        if (value != null) {
+            cache.getListener().onGetLatency(key, true, System.nanoTime() - start);
+            return value;
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loads.putIfAbsent(key, future);
+        if (inFlight == null) {
+            value = lookUpAgain(key, completed, future);
+            if (value != null) {
+                cache.getListener().onGetLatency(key, true, System.nanoTime() - start);
+                return value;
+            }
+            load(key, future);
+            inFlight = future;
+        }
+
+        value = join(inFlight);
+        cache.getListener().onGetLatency(key, false, System.nanoTime() - start);
+        return value;
+    }
+
+    /**
+     * Get the value associated with a key without blocking. A hit returns a completed future, with
+     * no executor involved. On a miss, the value is loaded on the executor, unless it is already
+     * being loaded.
+     *
+     * @param key the key
+     * @return a future completed with the value, or with a CacheLoadException
+     */
+    public CompletableFuture<V> getAsync(K key) {
+        long start = System.nanoTime();
+        long completed = completions.get(stripe(key));
+        V value = cache.get(key);
+        if (value != null) {
+            cache.getListener().onGetLatency(key, true, System.nanoTime() - start);
+            return CompletableFuture.completedFuture(value);
+        }
+
+        CompletableFuture<V> future = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loads.putIfAbsent(key, future);
+        if (inFlight != null) {
+            /* Callers get their own future, so that completing it does not affect the others */
+            return inFlight.thenApply(Function.<V>identity());
+        }
+        value = lookUpAgain(key, completed, future);
+        if (value != null) {
+            cache.getListener().onGetLatency(key, true, System.nanoTime() - start);
+            return CompletableFuture.completedFuture(value);
+        }
+
+        try {
+            getExecutor().execute(new Runnable() {
+                @Override
+                public void run() {
+                    load(key, future);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            loads.remove(key, future);
+            future.completeExceptionally(new CacheLoadException("Failed to load key " + key, e));
+        }
+        return future.thenApply(Function.<V>identity());
+    }
+
+    /**
+     * Get the values associated with several keys. The hits are looked up in one batch; the missing
+     * keys are loaded in parallel on the executor and put in the cache in one batch. Keys already
+     * being loaded by other callers are not loaded again.
+     *
+     * @param keys the keys
+     * @return the values, by key, in the order of the keys
+     * @throws CacheLoadException if any of the values cannot be loaded
+     */
+    public Map<K, V> getAll(Collection<K> keys) {
+        Map<K, Long> completed = new LinkedHashMap<>();
+        for (K key : keys) {
+            completed.put(key, completions.get(stripe(key)));
+        }
+        Map<K, V> found = cache.getAll(keys);
+        Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> claimed = new LinkedHashMap<>();
+
+        for (K key : keys) {
+            if (found.containsKey(key) || pending.containsKey(key)) {
+                continue;
+            }
+            CompletableFuture<V> future = new CompletableFuture<>();
+            CompletableFuture<V> inFlight = loads.putIfAbsent(key, future);
+            if (inFlight == null) {
+                V value = lookUpAgain(key, completed.get(key), future);
+                if (value != null) {
+                    found.put(key, value);
+                    continue;
+                }
+                claimed.put(key, future);
+                inFlight = future;
+            }
+            pending.put(key, inFlight);
+        }
+
+        if (!claimed.isEmpty()) {
+            loadAll(claimed);
+        }
+
+        Map<K, V> values = new LinkedHashMap<>();
+        for (K key : keys) {
+            CompletableFuture<V> future = pending.get(key);
+            values.put(key, future != null ? join(future) : found.get(key));
+        }
+        return values;
+    }
+
+    /**
+     * Load the values of several keys in parallel, put them in the cache in one batch and complete
+     * the futures of the loads. The last key is loaded in the calling thread, which has to wait
+     * anyway.
+     */
+    private void loadAll(Map<K, CompletableFuture<V>> claimed) {
+        List<K> keys = new ArrayList<>(claimed.keySet());
+        List<CompletableFuture<V>> reads = new ArrayList<>(keys.size());
+        for (int i = 0; i < keys.size(); i++) {
+            K key = keys.get(i);
+            CompletableFuture<V> read = new CompletableFuture<>();
+            reads.add(read);
+
+            if (i == keys.size() - 1) {
+                read(key, read);
+                continue;
+            }
+            try {
+                getExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        read(key, read);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                read.completeExceptionally(new CacheLoadException("Failed to load key " + key, e));
+            }
+        }
+
+        Map<K, V> loaded = new LinkedHashMap<>();
+        Map<K, CacheLoadException> failures = new LinkedHashMap<>();
+        for (int i = 0; i < keys.size(); i++) {
+            try {
+                loaded.put(keys.get(i), reads.get(i).join());
+            } catch (CompletionException e) {
+                failures.put(keys.get(i), (CacheLoadException) e.getCause());
+            }
+        }
+
+        try {
+            cache.putAll(loaded);
+            for (K key : loaded.keySet()) {
+                completions.incrementAndGet(stripe(key));
+            }
+        } catch (RuntimeException e) {
+            for (K key : loaded.keySet()) {
+                failures.put(key, toLoadException(key, e));
+            }
+        }
+
+        for (Map.Entry<K, CompletableFuture<V>> entry : claimed.entrySet()) {
+            K key = entry.getKey();
+            CompletableFuture<V> future = entry.getValue();
+            if (failures.containsKey(key)) {
+                future.completeExceptionally(failures.get(key));
+            } else {
+                future.complete(loaded.get(key));
+            }
+            loads.remove(key, future);
+        }
+    }
+
+    /**
+     * Load the value of a key, without putting it in the cache.
+     */
+    private void read(K key, CompletableFuture<V> read) {
+        long start = System.nanoTime();
+        try {
+            V value = loadValue(key);
+            cache.getListener().onLoadSuccess(key, System.nanoTime() - start);
+            read.complete(value);
+        } catch (Exception e) {
+            cache.getListener().onLoadFailure(key, System.nanoTime() - start);
+            read.completeExceptionally(toLoadException(key, e));
+        }
+    }
+
+    /**
+     * Load the value of a key, put it in the cache and complete the future of the load.
+     */
+    private void load(K key, CompletableFuture<V> future) {
+        long start = System.nanoTime();
+        try {
+            V value = loadValue(key);
+            long loadNanos = System.nanoTime() - start;
+            cache.put(key, value);
+            completions.incrementAndGet(stripe(key));
+            cache.getListener().onLoadSuccess(key, loadNanos);
+            future.complete(value);
+        } catch (Exception e) {
+            cache.getListener().onLoadFailure(key, System.nanoTime() - start);
+            future.completeExceptionally(toLoadException(key, e));
+        } finally {
+            loads.remove(key, future);
+        }
+    }
+
+    /**
+     * Look a key up again once its load was claimed, if a load of its stripe completed since the
+     * first lookup: the previous load of the key itself may have put its value and left between
+     * the two. The claim is dropped if the value is found, and the waiters get it.
+     *
+     * @return the value found, or null if the key must be loaded
+     */
+    private V lookUpAgain(K key, long completed, CompletableFuture<V> future) {
+        if (completions.get(stripe(key)) == completed) {
+            return null;
+        }
+
+        V value = cache.get(key);
+        if (value != null) {
+            loads.remove(key, future);
+            future.complete(value);
+        }
+        return value;
+    }
+
+    private V loadValue(K key) throws Exception {
+        V value = loader.load(key);
+        if (value == null) {
+            throw new CacheLoadException("Loader returned null for key " + key);
+        }
+        return value;
+    }
+
+    private static int stripe(Object key) {
+        int hash = key.hashCode();
+        return (hash ^ (hash >>> 16)) & (COMPLETION_STRIPES - 1);
+    }
+
+    private V join(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            throw (CacheLoadException) e.getCause();
+        }
+    }
+
+    /**
+     * Get the executor running the asynchronous loads.
+     *
+     * @return the executor set, or the default one
+     */
+    public Executor getExecutor() {
+        Executor loadExecutor = executor;
+        return loadExecutor != null ? loadExecutor : getDefaultExecutor();
+    }
+
+    private static CacheLoadException toLoadException(Object key, Throwable cause) {
+        if (cause instanceof CacheLoadException) {
+            return (CacheLoadException) cause;
+        }
+        return new CacheLoadException("Failed to load key " + key, cause);
+    }
+
+    /**
+     * Create the shared executor on first use. Virtual threads are looked up by reflection, so that
+     * the code still runs on JVMs that do not have them.
+     */
+    private static synchronized Executor getDefaultExecutor() {
+        if (defaultExecutor == null) {
+            try {
+                Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+                defaultExecutor = (ExecutorService) factory.invoke(null);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                defaultExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+                        Thread thread = new Thread(runnable, "cache-loader");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+            }
+        }
+        return defaultExecutor;
+    }
+}
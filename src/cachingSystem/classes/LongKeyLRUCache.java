@@ -0,0 +1,64 @@
+package cachingSystem.classes;
+
+/**
+ * LRU cache for long keys. Use getLong(long) / putLong(long, V) / removeLong(long) to avoid
+ * boxing; the methods of the Cache interface take boxed keys.
+ *
+ * @param <V> the value type
+ */
+public class LongKeyLRUCache<V> extends PrimitiveKeyLRUCache<Long, V> {
+
+    public LongKeyLRUCache() {
+        this(DEFAULT_INITIAL_CAPACITY);
+    }
+
+    /**
+     * Create a cache sized for a given number of entries. It grows as needed.
+     *
+     * @param initialCapacity the expected number of entries
+     */
+    public LongKeyLRUCache(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    /**
+     * Same as get(Long), without boxing the key.
+     */
+    public V getLong(long key) {
+        return getUnboxed(key);
+    }
+
+    /**
+     * Same as put(Long, V), without boxing the key.
+     */
+    public void putLong(long key, V value) {
+        putUnboxed(key, value);
+    }
+
+    /**
+     * Same as remove(Long), without boxing the key.
+     */
+    public V removeLong(long key) {
+        return removeUnboxed(key);
+    }
+
+    @Override
+    public V get(Long key) {
+        return getUnboxed(key);
+    }
+
+    @Override
+    public void put(Long key, V value) {
+        putUnboxed(key, value);
+    }
+
+    @Override
+    public V remove(Long key) {
+        return removeUnboxed(key);
+    }
+
+    @Override
+    protected Long box(long key) {
+        return key;
+    }
+}
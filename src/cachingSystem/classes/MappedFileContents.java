@@ -0,0 +1,110 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.FileContents;
+import dataStructures.classes.BufferCleaner;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * File contents served from a read-only memory mapping of the file, so that nothing is copied to
+ * the heap. The mapping is unmapped as soon as the contents are released and no string is being
+ * decoded from it.
+ */
+public class MappedFileContents implements FileContents {
+
+    private final Path path;
+    private final MappedByteBuffer mapping;
+    /* One reference is held by the cache, one by each decoding in progress */
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private MappedFileContents(Path path, MappedByteBuffer mapping) {
+        this.path = path;
+        this.mapping = mapping;
+    }
+
+    /**
+     * Map a file in memory.
+     *
+     * @param path the file
+     * @return the mapped contents
+     * @throws IOException if the file cannot be mapped
+     */
+    public static MappedFileContents map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + path);
+            }
+
+            return new MappedFileContents(path, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * Get a read-only view of the mapping. Reading the view after the contents were released
+     * accesses unmapped memory, which crashes the JVM, so a reference must be held while the view
+     * is read.
+     *
+     * @return the view
+     */
+    @Override
+    public ByteBuffer getByteBuffer() {
+        return mapping.asReadOnlyBuffer();
+    }
+
+    /**
+     * Decode the mapping. The mapping cannot be unmapped while it is decoded; if it was already
+     * unmapped, the file is read again.
+     *
+     * @return the contents
+     */
+    @Override
+    public String getString() {
+        if (!retain()) {
+            try {
+                return new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        try {
+            return StandardCharsets.UTF_8.decode(mapping.asReadOnlyBuffer()).toString();
+        } finally {
+            release();
+        }
+    }
+
+    @Override
+    public int getLength() {
+        return mapping.capacity();
+    }
+
+    @Override
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            BufferCleaner.clean(mapping);
+        }
+    }
+
+    @Override
+    public boolean retain() {
+        int count;
+        do {
+            count = references.get();
+            if (count <= 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        return true;
+    }
+}
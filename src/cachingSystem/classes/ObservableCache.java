@@ -2,6 +2,9 @@ package cachingSystem.classes;
 
 import cachingSystem.interfaces.Cache;
 import cachingSystem.interfaces.CacheStalePolicy;
+import cachingSystem.interfaces.RemovalListener;
+import cachingSystem.interfaces.RemovalListener.RemovalCause;
+import cachingSystem.interfaces.Weigher;
 import dataStructures.classes.Pair;
 import observerPattern.interfaces.CacheListener;
 
@@ -16,7 +19,10 @@ public abstract class ObservableCache<K, V> implements Cache<K, V> {
 
     private CacheStalePolicy<K, V> cacheStalePolicy;
     //private List<CacheListener<K, V>> cacheListeners = new ArrayList<>();
-    private CacheListener<K, V> listener;
+    private volatile CacheListener<K, V> listener;
+    private RemovalListener<K, V> removalListener;
+    private Weigher<K, V> weigher;
+    private long totalWeight;
 
     /**
      * Set a policy for removing stale elements from the cache.
@@ -36,18 +42,106 @@ public abstract class ObservableCache<K, V> implements Cache<K, V> {
         listener = cacheListener;
     }
 
+    /**
+     * Set a listener for the values dropped by the cache itself.
+     *
+     * @param listener
+     */
+    public void setRemovalListener(RemovalListener<K, V> listener) {
+        removalListener = listener;
+    }
+
     /**
      * Clear the stale elements from the cache. This method must make use of the stale policy.
+     * Nothing is removed if no policy was set.
      *
      */
     public void clearStaleEntries() {
+        if (cacheStalePolicy == null) {
+            return;
+        }
+
         Pair<K, V> eldestEntry = this.getEldestEntry();
         while (eldestEntry != null && cacheStalePolicy.shouldRemoveEldestEntry(eldestEntry)) {
-            this.remove(eldestEntry.getKey());
+            V value = this.remove(eldestEntry.getKey());
+            if (value != null) {
+                notifyRemoval(eldestEntry.getKey(), value, RemovalCause.EVICTED);
+            }
             eldestEntry = this.getEldestEntry();
         }
     }
 
+    /**
+     * Notify the removal listener, if any, that a value was dropped. Evictions and expirations are
+     * also reported to the cache listener.
+     *
+     * @param key the key
+     * @param value the value
+     * @param cause the reason
+     */
+    protected void notifyRemoval(K key, V value, RemovalCause cause) {
+        if (cause != RemovalCause.REPLACED && listener != null) {
+            listener.onEviction(key);
+        }
+        if (removalListener != null) {
+            removalListener.onRemoval(key, value, cause);
+        }
+    }
+
+    /**
+     * Set a weigher for the entries of the cache. Once set, the cache keeps the total weight of its
+     * entries up to date on every put / remove, so stale policies can check it in O(1).
+     *
+     * @param entryWeigher
+     */
+    public void setWeigher(Weigher<K, V> entryWeigher) {
+        weigher = entryWeigher;
+    }
+
+    /**
+     * Get the sum of the weights of the entries, or 0 if no weigher was set.
+     *
+     * @return the total weight
+     */
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    /**
+     * Account for the weight of an entry that was added to the cache.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    protected void addWeight(K key, V value) {
+        if (weigher != null) {
+            totalWeight += weigher.weigh(key, value);
+        }
+    }
+
+    /**
+     * Account for the weight of an entry that was removed from the cache.
+     *
+     * @param key the key
+     * @param value the value
+     */
+    protected void subtractWeight(K key, V value) {
+        if (weigher != null) {
+            totalWeight -= weigher.weigh(key, value);
+        }
+    }
+
+    /**
+     * Reset the total weight after the cache was cleared.
+     */
+    protected void resetWeight() {
+        totalWeight = 0;
+    }
+
+    public Weigher<K, V> getWeigher() {
+        return weigher;
+    }
+
     public CacheStalePolicy<K, V> getCacheStalePolicy() {
         return cacheStalePolicy;
     }
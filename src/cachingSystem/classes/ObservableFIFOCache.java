@@ -1,6 +1,12 @@
 package cachingSystem.classes;
+import cachingSystem.interfaces.RemovalListener.RemovalCause;
 import dataStructures.classes.Pair;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Class that adapts the FIFOCache class to the ObservableCache abstract class.
@@ -20,10 +26,35 @@ public class ObservableFIFOCache<K, V> extends ObservableCache<K, V> {
      */
     @Override
     public void put(K key, V value) {
-        fifoCache.put(key, value);
+        putEntry(key, value);
         getListener().onPut(key, value);
         clearStaleEntries();
     }
+    /**
+     * Puts several entries to the cache, notifies the listener once for all of them and clears the
+     * eldest entries once, at the end.
+     * @param entries the entries
+     */
+    @Override
+    public void putAll(Map<K, V> entries) {
+        for (Map.Entry<K, V> entry : entries.entrySet()) {
+            putEntry(entry.getKey(), entry.getValue());
+        }
+        getListener().onPuts(entries);
+        clearStaleEntries();
+    }
+
+    private void putEntry(K key, V value) {
+        V oldValue = fifoCache.get(key);
+        if (oldValue != null) {
+            subtractWeight(key, oldValue);
+        }
+        addWeight(key, value);
+        fifoCache.put(key, value);
+        if (oldValue != null && oldValue != value) {
+            notifyRemoval(key, oldValue, RemovalCause.REPLACED);
+        }
+    }
     /**
      * Removes an entry with a given key from the cache.
      * @param key the key
@@ -31,7 +62,11 @@ public class ObservableFIFOCache<K, V> extends ObservableCache<K, V> {
      */
     @Override
     public V remove(K key) {
-        return fifoCache.remove(key);
+        V value = fifoCache.remove(key);
+        if (value != null) {
+            subtractWeight(key, value);
+        }
+        return value;
     }
     /**
      * Checks if the cache is empty.
@@ -57,6 +92,7 @@ public class ObservableFIFOCache<K, V> extends ObservableCache<K, V> {
     @Override
     public void clearAll() {
         fifoCache.clearAll();
+        resetWeight();
     }
     /**
      * Get the value associated with a key, or null if the key does not exist in the cache.
@@ -76,6 +112,37 @@ public class ObservableFIFOCache<K, V> extends ObservableCache<K, V> {
         }
         return value;
     }
+    /**
+     * Get the values associated with several keys. The listener is notified once for all the hits
+     * and once for all the misses.
+     *
+     * @param keys the keys to lookup
+     * @return the values found, by key, in the order of the keys
+     */
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        Map<K, V> values = new LinkedHashMap<>();
+        List<K> hits = new ArrayList<>();
+        List<K> misses = new ArrayList<>();
+
+        for (K key : keys) {
+            V value = fifoCache.get(key);
+            if (value == null) {
+                misses.add(key);
+            } else {
+                values.put(key, value);
+                hits.add(key);
+            }
+        }
+
+        if (!hits.isEmpty()) {
+            getListener().onHits(hits);
+        }
+        if (!misses.isEmpty()) {
+            getListener().onMisses(misses);
+        }
+        return values;
+    }
     /**
      * The cache size is defined as the number of stored key-value pairs.
      *
@@ -85,4 +152,13 @@ public class ObservableFIFOCache<K, V> extends ObservableCache<K, V> {
     public int size() {
         return fifoCache.size();
     }
+    /**
+     * Get the entries of the cache, in insertion order.
+     *
+     * @return the entries, eldest first
+     */
+    @Override
+    public List<Pair<K, V>> getEntries() {
+        return fifoCache.getEntries();
+    }
 }
@@ -0,0 +1,120 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.FileContents;
+import dataStructures.classes.SlabAllocator;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * File contents stored in native memory, in a block of a slab allocator. Only the block handle is
+ * kept on the heap; the contents are decoded to a string only when asked for. The block is returned
+ * to the allocator once the contents are released and no reader still holds a reference.
+ */
+public class OffHeapFileContents implements FileContents {
+
+    private final SlabAllocator.Block block;
+    /* One reference is held by the cache, one by each reader in progress */
+    private final AtomicInteger references = new AtomicInteger(1);
+
+    private OffHeapFileContents(SlabAllocator.Block block) {
+        this.block = block;
+    }
+
+    /**
+     * Copy the UTF-8 encoding of a string to native memory.
+     *
+     * @param allocator the allocator
+     * @param contents the contents
+     * @return the stored contents
+     */
+    public static OffHeapFileContents fromString(SlabAllocator allocator, String contents) {
+        return fromBuffer(allocator, ByteBuffer.wrap(contents.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Copy the remaining bytes of a buffer to native memory. The position of the buffer is not
+     * changed.
+     *
+     * @param allocator the allocator
+     * @param contents the contents
+     * @return the stored contents
+     */
+    public static OffHeapFileContents fromBuffer(SlabAllocator allocator, ByteBuffer contents) {
+        SlabAllocator.Block block = allocator.allocate(contents.remaining());
+
+        block.getWritableBuffer().put(contents.duplicate());
+        return new OffHeapFileContents(block);
+    }
+
+    /**
+     * Read a file straight into native memory, without copying it to the heap.
+     *
+     * @param allocator the allocator
+     * @param path the file
+     * @return the stored contents
+     * @throws IOException if the file cannot be read, or if it changed size while being read
+     */
+    public static OffHeapFileContents fromFile(SlabAllocator allocator, Path path)
+            throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to cache: " + path);
+            }
+
+            SlabAllocator.Block block = allocator.allocate((int) size);
+            try {
+                ByteBuffer target = block.getWritableBuffer();
+                while (target.hasRemaining()) {
+                    if (channel.read(target) < 0) {
+                        throw new IOException("File truncated while reading: " + path);
+                    }
+                }
+            } catch (IOException e) {
+                block.free();
+                throw e;
+            }
+            return new OffHeapFileContents(block);
+        }
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer() {
+        return block.getBuffer();
+    }
+
+    @Override
+    public String getString() {
+        return StandardCharsets.UTF_8.decode(block.getBuffer()).toString();
+    }
+
+    @Override
+    public int getLength() {
+        return block.getLength();
+    }
+
+    @Override
+    public boolean retain() {
+        int count;
+        do {
+            count = references.get();
+            if (count <= 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(count, count + 1));
+        return true;
+    }
+
+    @Override
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            block.free();
+        }
+    }
+}
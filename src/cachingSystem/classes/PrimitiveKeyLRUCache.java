@@ -0,0 +1,161 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.RemovalListener.RemovalCause;
+import dataStructures.classes.LongLinkedHashTable;
+import dataStructures.classes.Pair;
+import observerPattern.interfaces.CacheListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Base class of the LRU caches for primitive keys. The keys are stored unboxed, widened to long,
+ * in an open-addressing table, and the recency order is kept in index arrays, so an entry costs a
+ * few array slots instead of a map node and a list node. The keys are only boxed when they are
+ * passed to the listeners and to the stale policy, so a cache without a cache listener does not
+ * allocate on hits.
+ *
+ * @param <K> the boxed key type
+ * @param <V> the value type
+ */
+public abstract class PrimitiveKeyLRUCache<K, V> extends ObservableCache<K, V> {
+
+    protected static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    private final LongLinkedHashTable<V> table;
+
+    /**
+     * Create a cache sized for a given number of entries. It grows as needed.
+     *
+     * @param initialCapacity the expected number of entries
+     */
+    protected PrimitiveKeyLRUCache(int initialCapacity) {
+        table = new LongLinkedHashTable<>(initialCapacity);
+    }
+
+    /**
+     * Box a key stored in the table.
+     *
+     * @param key the widened key
+     * @return the key passed to the listeners
+     */
+    protected abstract K box(long key);
+
+    /**
+     * Get the value associated with a key, or null if the key does not exist in the cache.
+     *
+     * @param key the key too lookup
+     * @return the associated value, or null
+     */
+    protected final V getUnboxed(long key) {
+        CacheListener<K, V> listener = getListener();
+        int entry = table.find(key);
+        if (entry < 0) {
+            if (listener != null) {
+                listener.onMiss(box(key));
+            }
+            return null;
+        }
+
+        table.moveToFront(entry);
+        if (listener != null) {
+            listener.onHit(box(key));
+        }
+        return table.valueAt(entry);
+    }
+
+    /**
+     * Insert a key value pair in the cache.
+     *
+     * @param key
+     * @param value
+     */
+    protected final void putUnboxed(long key, V value) {
+        int entry = table.find(key);
+        if (entry >= 0) {
+            V oldValue = table.valueAt(entry);
+            K boxedKey = box(key);
+            subtractWeight(boxedKey, oldValue);
+            table.setValueAt(entry, value);
+            addWeight(boxedKey, value);
+            if (oldValue != value) {
+                notifyRemoval(boxedKey, oldValue, RemovalCause.REPLACED);
+            }
+            table.moveToFront(entry);
+            if (getWeigher() != null) {
+                clearStaleEntries();
+            }
+        } else {
+            table.insert(key, value);
+            addWeight(box(key), value);
+            clearStaleEntries();
+        }
+
+        CacheListener<K, V> listener = getListener();
+        if (listener != null) {
+            listener.onPut(box(key), value);
+        }
+    }
+
+    /**
+     * Remove a key if it exists in the cache.
+     *
+     * @param key the key to be removed
+     * @return the value associated with the key, or null if the key was not in the cache
+     */
+    protected final V removeUnboxed(long key) {
+        int entry = table.find(key);
+        if (entry < 0) {
+            return null;
+        }
+
+        V value = table.valueAt(entry);
+        table.remove(key);
+        subtractWeight(box(key), value);
+        return value;
+    }
+
+    @Override
+    public int size() {
+        return table.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return table.size() == 0;
+    }
+
+    @Override
+    public void clearAll() {
+        table.clear();
+        resetWeight();
+    }
+
+    /**
+     * Return the least recently used entry.
+     *
+     * @return the eldest entry
+     */
+    @Override
+    public Pair<K, V> getEldestEntry() {
+        int entry = table.eldest();
+        if (entry < 0) {
+            return null;
+        }
+        return new Pair<>(box(table.keyAt(entry)), table.valueAt(entry));
+    }
+
+    /**
+     * Get the entries of the cache, from the least to the most recently used.
+     *
+     * @return the entries, eldest first
+     */
+    @Override
+    public List<Pair<K, V>> getEntries() {
+        List<Pair<K, V>> entries = new ArrayList<>(table.size());
+        for (int entry = table.eldest(); entry >= 0; entry = table.newer(entry)) {
+            entries.add(new Pair<>(box(table.keyAt(entry)), table.valueAt(entry)));
+        }
+        return entries;
+    }
+}
@@ -0,0 +1,169 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.CacheStalePolicy;
+import cachingSystem.interfaces.RemovalListener;
+import cachingSystem.interfaces.Weigher;
+import dataStructures.classes.Pair;
+import observerPattern.interfaces.CacheListener;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Makes a cache that is not thread-safe usable from several threads, by running every operation
+ * while holding the monitor of the wrapped cache. Code that works with the wrapped cache directly
+ * can synchronize on it to stay consistent with this wrapper.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class SynchronizedCache<K, V> extends ObservableCache<K, V> {
+
+    private final ObservableCache<K, V> cache;
+
+    public SynchronizedCache(ObservableCache<K, V> cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public V get(K key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    @Override
+    public void put(K key, V value) {
+        synchronized (cache) {
+            cache.put(key, value);
+        }
+    }
+
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        synchronized (cache) {
+            return cache.getAll(keys);
+        }
+    }
+
+    @Override
+    public void putAll(Map<K, V> entries) {
+        synchronized (cache) {
+            cache.putAll(entries);
+        }
+    }
+
+    @Override
+    public int size() {
+        synchronized (cache) {
+            return cache.size();
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        synchronized (cache) {
+            return cache.isEmpty();
+        }
+    }
+
+    @Override
+    public V remove(K key) {
+        synchronized (cache) {
+            return cache.remove(key);
+        }
+    }
+
+    @Override
+    public void clearAll() {
+        synchronized (cache) {
+            cache.clearAll();
+        }
+    }
+
+    @Override
+    public Pair<K, V> getEldestEntry() {
+        synchronized (cache) {
+            return cache.getEldestEntry();
+        }
+    }
+
+    @Override
+    public List<Pair<K, V>> getEntries() {
+        synchronized (cache) {
+            return cache.getEntries();
+        }
+    }
+
+    @Override
+    public void clearStaleEntries() {
+        synchronized (cache) {
+            cache.clearStaleEntries();
+        }
+    }
+
+    @Override
+    public void setStalePolicy(CacheStalePolicy<K, V> stalePolicy) {
+        synchronized (cache) {
+            cache.setStalePolicy(stalePolicy);
+        }
+    }
+
+    @Override
+    public CacheStalePolicy<K, V> getCacheStalePolicy() {
+        synchronized (cache) {
+            return cache.getCacheStalePolicy();
+        }
+    }
+
+    @Override
+    public void setCacheListener(CacheListener<K, V> cacheListener) {
+        synchronized (cache) {
+            cache.setCacheListener(cacheListener);
+        }
+    }
+
+    /* The listener can be read without the lock, so that reporting events does not contend */
+    @Override
+    public CacheListener<K, V> getListener() {
+        return cache.getListener();
+    }
+
+    @Override
+    public void setRemovalListener(RemovalListener<K, V> listener) {
+        synchronized (cache) {
+            cache.setRemovalListener(listener);
+        }
+    }
+
+    @Override
+    public void setWeigher(Weigher<K, V> entryWeigher) {
+        synchronized (cache) {
+            cache.setWeigher(entryWeigher);
+        }
+    }
+
+    @Override
+    public Weigher<K, V> getWeigher() {
+        synchronized (cache) {
+            return cache.getWeigher();
+        }
+    }
+
+    @Override
+    public long getTotalWeight() {
+        synchronized (cache) {
+            return cache.getTotalWeight();
+        }
+    }
+
+    /**
+     * Get the wrapped cache. It must only be used while holding its monitor.
+     *
+     * @return the wrapped cache
+     */
+    public ObservableCache<K, V> getCache() {
+        return cache;
+    }
+}
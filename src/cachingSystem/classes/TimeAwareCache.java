@@ -1,76 +1,333 @@
 package cachingSystem.classes;
 
-import cachingSystem.interfaces.CacheStalePolicy;
-import dataStructures.classes.Pair;
+import cachingSystem.interfaces.CacheLoader;
+import cachingSystem.interfaces.Expiry;
+import cachingSystem.interfaces.RemovalListener.RemovalCause;
+import dataStructures.classes.Node;
+import dataStructures.classes.TimedNode;
+import dataStructures.classes.TimerWheel;
 
 import java.sql.Timestamp;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Consumer;
 
 /**
- * The TimeAwareCache offers the same functionality as the LRUCache, but also stores a timestamp for
- * each element. The timestamp is updated after each get / put operation for a key. This
- * functionality allows for time based cache stale policies (e.g. removing entries that are older
- * than 1 second).
+ * The TimeAwareCache offers the same functionality as the LRUCache, but also stores a deadline in
+ * each entry, set after each put operation for a key. Entries past their deadline are treated as
+ * misses by get. The deadlines are kept in a hierarchical timer wheel, and the expired entries are
+ * removed in batches when the cache is written to, or when cleanUp is called.
+ *
+ * All the entries live for the same time, unless an Expiry is set to compute the lifetime of each
+ * entry after it is created, updated or read. Since the wheel orders the entries by deadline rather
+ * than by age, mixing short and long lifetimes costs no more than a single one.
+ *
+ * With a refresh policy, an entry older than the refresh time but not yet expired is still returned
+ * by get, and its first access also starts a reload in the background. The reload does not touch
+ * the cache: the first read of the key after it completed puts the new value, as written when the
+ * reload completed, unless the entry expired meanwhile. The keys that are read often are thus never
+ * reloaded by their readers.
  */
 public class TimeAwareCache<K, V> extends LRUCache<K, V> {
 
-    private CacheStalePolicy<K, V> cacheStalePolicy;
-    private HashMap<K, Timestamp> keyTimestamps = new HashMap<>();
-    private long millis;
+    private static final long NO_RELOAD = -1;
+
+    private final TimerWheel<K, V> timerWheel = new TimerWheel<>(System.currentTimeMillis());
+    private long millis = Long.MAX_VALUE;
+    private Expiry<K, V> expiry;
+    private long refreshMillis = Long.MAX_VALUE;
+    private CacheLoader<K, V> refreshLoader;
+    private Executor refreshExecutor;
+    /* The completion time of the reload being put, if any */
+    private long reloadTime = NO_RELOAD;
+
+    private final Consumer<TimedNode<K, V>> expireEntry = new Consumer<TimedNode<K, V>>() {
+        @Override
+        public void accept(TimedNode<K, V> node) {
+            if (remove(node.getKey()) != null) {
+                notifyRemoval(node.getKey(), node.getValue(), RemovalCause.EXPIRED);
+            }
+        }
+    };
+
     /**
-     * Clears all the expired entries from the cache and returns the value of a given key
+     * Returns the value of a given key, or null if the key is missing or expired
      *
      * @param key the key
      * @return the value
      */
-
     @Override
     public V get(K key) {
-
-        clearStaleEntries();
+        Node<K, V> node = getLRUCache().get(key);
+        if (node != null && !isExpired(node) && completeRefresh(node)) {
+            node = getLRUCache().get(key);
+        }
+        if (node != null && isExpired(node)) {
+            getListener().onMiss(key);
+            return null;
+        }
         return super.get(key);
     }
+
     /**
-     * Puts in map the timestamp when an entry is added to the cache
-     * Adds an entry to the cache
+     * Returns the values of the given keys that are neither missing nor expired
+     *
+     * @param keys the keys
+     * @return the values found, by key
+     */
+    @Override
+    public Map<K, V> getAll(Collection<K> keys) {
+        for (K key : keys) {
+            Node<K, V> node = getLRUCache().get(key);
+            if (node != null && !isExpired(node)) {
+                completeRefresh(node);
+            }
+        }
+        return super.getAll(keys);
+    }
+
+    /**
+     * Removes the expired entries, then adds an entry to the cache
      *
      * @param key the key
      * @param value the value
      **/
     @Override
     public void put(K key, V value) {
-        keyTimestamps.put(key, new Timestamp(System.currentTimeMillis()));
+        timerWheel.advance(System.currentTimeMillis(), expireEntry);
         super.put(key, value);
     }
 
     /**
-     * Get the timestamp associated with a key, or null if the key is not stored in the cache.
+     * Removes the expired entries, then adds several entries to the cache
+     *
+     * @param entries the entries
+     */
+    @Override
+    public void putAll(Map<K, V> entries) {
+        timerWheel.advance(System.currentTimeMillis(), expireEntry);
+        super.putAll(entries);
+    }
+
+    /**
+     * Remove all the expired entries from the cache.
+     */
+    public void cleanUp() {
+        timerWheel.advance(System.currentTimeMillis(), expireEntry);
+    }
+
+    @Override
+    public void clearAll() {
+        super.clearAll();
+        timerWheel.clear();
+    }
+
+    /**
+     * Get the timestamp of the last put for a key, or null if the key is not stored in the cache.
      *
      * @param key the key
      * @return the timestamp, or null
      */
     public Timestamp getTimestampOfKey(K key) {
-
-        return keyTimestamps.get(key);
+        Node<K, V> node = getLRUCache().get(key);
+        if (node == null) {
+            return null;
+        }
+        return new Timestamp(((RefreshableNode<K, V>) node).writeTime);
     }
 
     /**
-     * Set a cache stale policy that should remove all elements older than @millisToExpire
-     * milliseconds. This is a convenience method for setting a time based policy for the cache.
+     * Make all the elements expire @millisToExpire milliseconds after they were put in the cache.
+     * The expiration time applies to the elements put from now on, and is ignored if an Expiry is
+     * set.
      *
      * @param millisToExpire the expiration time, in milliseconds
      */
     public void setExpirePolicy(long millisToExpire) {
-
         millis = millisToExpire;
-        super.setStalePolicy((new CacheStalePolicy<K, V>() {
-            @Override
-            public boolean shouldRemoveEldestEntry(Pair<K, V> entry) {
-                Timestamp entryTimestamp = getTimestampOfKey(entry.getKey());
-                Timestamp currentTimestamp = new Timestamp(System.currentTimeMillis());
-                long interval = currentTimestamp.getTime() - entryTimestamp.getTime();
-                return interval > millis;
+    }
+
+    /**
+     * Compute the lifetime of each element with an Expiry, after it is put and after each read.
+     * The lifetimes apply to the elements put or read from now on.
+     *
+     * @param entryExpiry the expiry, or null to use the expiration time of setExpirePolicy
+     */
+    public void setExpiry(Expiry<K, V> entryExpiry) {
+        expiry = entryExpiry;
+    }
+
+    /**
+     * Reload the entries accessed @millisToRefresh milliseconds or more after they were put in the
+     * cache. The reloads run on the executor, one at a time per key, and only hand their values
+     * back to the entries; the next read of a key puts its new value, from the thread and under
+     * the lock of that read, so the cache can be used without a SynchronizedCache. A reload that
+     * fails leaves the entry as it is, until it expires or is accessed again.
+     *
+     * @param millisToRefresh the refresh time, in milliseconds, shorter than the expiration time
+     * @param loader the loader computing the new values
+     * @param executor the executor running the reloads
+     */
+    public void setRefreshPolicy(long millisToRefresh, CacheLoader<K, V> loader,
+                                 Executor executor) {
+        refreshMillis = millisToRefresh;
+        refreshLoader = loader;
+        refreshExecutor = executor;
+    }
+
+    @Override
+    protected Node<K, V> createNode(K key, V value) {
+        return new RefreshableNode<>(key, value);
+    }
+
+    @Override
+    protected void afterNodeInsertion(Node<K, V> node) {
+        RefreshableNode<K, V> timedNode = (RefreshableNode<K, V>) node;
+        long currentTime = System.currentTimeMillis();
+        long duration = expiry == null ? millis
+                : expiry.expireAfterCreate(node.getKey(), node.getValue(), currentTime);
+
+        timedNode.writeTime = currentTime;
+        timedNode.setDeadline(deadlineAfter(currentTime, duration));
+        timerWheel.schedule(timedNode);
+    }
+
+    @Override
+    protected void afterNodeUpdate(Node<K, V> node) {
+        RefreshableNode<K, V> timedNode = (RefreshableNode<K, V>) node;
+        /* The value of a reload was written when the reload completed, not when it is put */
+        long currentTime = reloadTime != NO_RELOAD ? reloadTime : System.currentTimeMillis();
+        long duration = expiry == null ? millis : expiry.expireAfterUpdate(node.getKey(),
+                node.getValue(), currentTime, durationUntil(timedNode, currentTime));
+
+        timedNode.writeTime = currentTime;
+        timedNode.setDeadline(deadlineAfter(currentTime, duration));
+        timerWheel.reschedule(timedNode);
+    }
+
+    @Override
+    protected void afterNodeAccess(Node<K, V> node) {
+        RefreshableNode<K, V> timedNode = (RefreshableNode<K, V>) node;
+        long currentTime = System.currentTimeMillis();
+
+        if (expiry != null) {
+            long currentDuration = durationUntil(timedNode, currentTime);
+            long duration = expiry.expireAfterRead(node.getKey(), node.getValue(), currentTime,
+                    currentDuration);
+            if (duration != currentDuration) {
+                timedNode.setDeadline(deadlineAfter(currentTime, duration));
+                timerWheel.reschedule(timedNode);
             }
-        }));
+        }
+
+        if (refreshLoader != null && !timedNode.refreshing
+                && currentTime - timedNode.writeTime >= refreshMillis) {
+            refresh(timedNode);
+        }
+    }
+
+    @Override
+    protected void afterNodeRemoval(Node<K, V> node) {
+        timerWheel.deschedule((TimedNode<K, V>) node);
+    }
+
+    @Override
+    protected boolean isExpired(Node<K, V> node) {
+        return System.currentTimeMillis() > ((TimedNode<K, V>) node).getDeadline();
+    }
+
+    /**
+     * Add a duration to the current time, Long.MAX_VALUE standing for a deadline never reached.
+     */
+    private static long deadlineAfter(long currentTime, long duration) {
+        return duration >= Long.MAX_VALUE - currentTime ? Long.MAX_VALUE : currentTime + duration;
+    }
+
+    private static long durationUntil(TimedNode<?, ?> node, long currentTime) {
+        long deadline = node.getDeadline();
+        return deadline == Long.MAX_VALUE ? Long.MAX_VALUE : deadline - currentTime;
+    }
+
+    /**
+     * Start reloading an entry. The new value is dropped if the entry was removed or put again
+     * while it was loading, since it may then be older than the value in the cache.
+     */
+    private void refresh(RefreshableNode<K, V> node) {
+        K key = node.getKey();
+        CacheLoader<K, V> loader = refreshLoader;
+
+        node.refreshing = true;
+        node.refreshedWriteTime = node.writeTime;
+        try {
+            refreshExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    long start = System.nanoTime();
+                    V value = null;
+                    try {
+                        value = loader.load(key);
+                        getListener().onLoadSuccess(key, System.nanoTime() - start);
+                    } catch (Exception e) {
+                        getListener().onLoadFailure(key, System.nanoTime() - start);
+                    }
+
+                    if (value != null) {
+                        node.reloadTime = System.currentTimeMillis();
+                        node.reloadedValue = value;
+                    } else {
+                        node.refreshing = false;
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            node.refreshing = false;
+        }
+    }
+
+    /**
+     * Put the value of a completed reload, unless the entry was put again while it was loading.
+     * The caller checks that the entry did not expire first, so that an old reload does not bring
+     * it back.
+     *
+     * @return true if the value was put
+     */
+    private boolean completeRefresh(Node<K, V> node) {
+        RefreshableNode<K, V> timedNode = (RefreshableNode<K, V>) node;
+        V value = timedNode.reloadedValue;
+        if (value == null) {
+            return false;
+        }
+
+        timedNode.reloadedValue = null;
+        timedNode.refreshing = false;
+        if (timedNode.writeTime != timedNode.refreshedWriteTime) {
+            return false;
+        }
+        reloadTime = timedNode.reloadTime;
+        try {
+            put(node.getKey(), value);
+        } finally {
+            reloadTime = NO_RELOAD;
+        }
+        return true;
+    }
+
+    /**
+     * A timed node that also remembers when its value was put, and whether it is being reloaded.
+     * The reloading thread only writes the volatile fields.
+     */
+    private static final class RefreshableNode<K, V> extends TimedNode<K, V> {
+        private long writeTime;
+        private long refreshedWriteTime;
+        private volatile boolean refreshing;
+        private volatile V reloadedValue;
+        /* Written before reloadedValue, and read after it */
+        private long reloadTime;
+
+        RefreshableNode(K key, V value) {
+            super(key, value);
+        }
     }
 }
@@ -0,0 +1,290 @@
+package cachingSystem.classes;
+
+import cachingSystem.interfaces.RemovalListener.RemovalCause;
+import dataStructures.classes.DoubleLinkedList;
+import dataStructures.classes.FrequencySketch;
+import dataStructures.classes.Node;
+import dataStructures.classes.Pair;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Cache using the W-TinyLFU policy. New entries go to a small LRU admission window (1% of the
+ * capacity). The entries leaving the window become candidates for the main region, which is a
+ * segmented LRU made of a probation and a protected segment (80% of the main region). When an
+ * entry has to be evicted, the candidate is compared with the probation victim using a frequency
+ * sketch, and the one that was seen less often is the eldest entry. This keeps a one-time scan
+ * from flushing the popular entries.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class TinyLFUCache<K, V> extends ObservableCache<K, V> {
+
+    private static final int WINDOW = 0;
+    private static final int PROBATION = 1;
+    private static final int PROTECTED = 2;
+
+    private final HashMap<K, Entry<K, V>> data = new HashMap<>();
+    private final FrequencySketch<K> sketch;
+    private final int maximumWindowSize;
+    private final int maximumProtectedSize;
+
+    private DoubleLinkedList<K, V> window = new DoubleLinkedList<>();
+    private DoubleLinkedList<K, V> probation = new DoubleLinkedList<>();
+    private DoubleLinkedList<K, V> protectedSegment = new DoubleLinkedList<>();
+    private int windowSize;
+    private int protectedSize;
+    private Entry<K, V> candidate;
+
+    /**
+     * Create a cache sized for a given capacity. The capacity itself is still enforced by the stale
+     * policy; it is only used to size the regions and the frequency sketch.
+     *
+     * @param capacity the expected maximum number of entries
+     */
+    public TinyLFUCache(int capacity) {
+        maximumWindowSize = Math.max(1, capacity / 100);
+        maximumProtectedSize = (capacity - maximumWindowSize) * 80 / 100;
+        sketch = new FrequencySketch<>(capacity);
+    }
+
+    /**
+     * Get the value associated with a key, or null if the key does not exist in the cache. Both
+     * hits and misses are counted in the frequency sketch.
+     *
+     * @param key the key too lookup
+     * @return the associated value, or null
+     */
+    @Override
+    public V get(K key) {
+        sketch.increment(key);
+
+        Entry<K, V> entry = data.get(key);
+        if (entry == null) {
+            getListener().onMiss(key);
+            return null;
+        }
+
+        onAccess(entry);
+        getListener().onHit(key);
+        return entry.getValue();
+    }
+
+    /**
+     * Insert a key value pair in the cache. A new key enters the admission window and may push the
+     * eldest window entry into the main region as the eviction candidate.
+     *
+     * @param key
+     * @param value
+     */
+    @Override
+    public void put(K key, V value) {
+        sketch.increment(key);
+
+        Entry<K, V> entry = data.get(key);
+        if (entry != null) {
+            V oldValue = entry.getValue();
+            subtractWeight(key, oldValue);
+            entry.setValue(value);
+            addWeight(key, value);
+            if (oldValue != value) {
+                notifyRemoval(key, oldValue, RemovalCause.REPLACED);
+            }
+            onAccess(entry);
+            if (getWeigher() != null) {
+                clearStaleEntries();
+            }
+        } else {
+            entry = new Entry<>(key, value);
+            data.put(key, entry);
+            window.addFirst(entry);
+            windowSize++;
+            addWeight(key, value);
+
+            evictFromWindow();
+            clearStaleEntries();
+            candidate = null;
+        }
+
+        getListener().onPut(key, value);
+    }
+
+    /**
+     * Remove a key if it exists in the cache.
+     *
+     * @param key the key to be removed
+     * @return the value associated with the key, or null if the key was not in the cache
+     */
+    @Override
+    public V remove(K key) {
+        Entry<K, V> entry = data.remove(key);
+        if (entry == null) {
+            return null;
+        }
+
+        unlink(entry);
+        subtractWeight(key, entry.getValue());
+        if (entry == candidate) {
+            candidate = null;
+        }
+        return entry.getValue();
+    }
+
+    @Override
+    public int size() {
+        return data.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return data.isEmpty();
+    }
+
+    /**
+     * Clear all the elements from the cache. The frequency history is kept.
+     */
+    @Override
+    public void clearAll() {
+        data.clear();
+        window = new DoubleLinkedList<>();
+        probation = new DoubleLinkedList<>();
+        protectedSegment = new DoubleLinkedList<>();
+        windowSize = 0;
+        protectedSize = 0;
+        candidate = null;
+        resetWeight();
+    }
+
+    /**
+     * Return the entry that should be evicted next. If an entry has just left the admission window,
+     * it is admitted only if it is estimated to be more frequent than the victim of the main region;
+     * the loser is returned. Otherwise, the least recently used entry of the main region is returned.
+     *
+     * @return the eldest entry
+     */
+    @Override
+    public Pair<K, V> getEldestEntry() {
+        if (isEmpty()) {
+            return null;
+        }
+
+        Entry<K, V> victim = tail(probation);
+        if (victim == null || victim == candidate) {
+            victim = tail(protectedSegment);
+        }
+
+        Entry<K, V> evicted;
+        if (candidate != null && victim != null) {
+            evicted = admit(candidate, victim) ? victim : candidate;
+        } else if (tail(probation) != null) {
+            evicted = tail(probation);
+        } else if (victim != null) {
+            evicted = victim;
+        } else {
+            evicted = tail(window);
+        }
+
+        return new Pair<>(evicted.getKey(), evicted.getValue());
+    }
+
+    /**
+     * Get the entries of the cache: the probation segment, then the protected segment, then the
+     * admission window, each from the least to the most recently used. The frequencies are not
+     * included.
+     *
+     * @return the entries, eldest first
+     */
+    @Override
+    public List<Pair<K, V>> getEntries() {
+        List<Pair<K, V>> entries = new ArrayList<>(data.size());
+        probation.addEntriesTo(entries);
+        protectedSegment.addEntriesTo(entries);
+        window.addEntriesTo(entries);
+        return entries;
+    }
+
+    private boolean admit(Entry<K, V> candidate, Entry<K, V> victim) {
+        return sketch.frequency(candidate.getKey()) > sketch.frequency(victim.getKey());
+    }
+
+    /**
+     * Move the entries exceeding the window size to the head of the probation segment. The last one
+     * moved becomes the eviction candidate.
+     */
+    private void evictFromWindow() {
+        while (windowSize > maximumWindowSize) {
+            Entry<K, V> entry = tail(window);
+            window.remove(entry);
+            windowSize--;
+
+            entry.queue = PROBATION;
+            probation.addFirst(entry);
+            candidate = entry;
+        }
+    }
+
+    /**
+     * Update the position of an entry after an access. A probation entry is promoted to the
+     * protected segment, which may demote the eldest protected entry back to probation.
+     */
+    private void onAccess(Entry<K, V> entry) {
+        switch (entry.queue) {
+            case WINDOW:
+                window.remove(entry);
+                window.addFirst(entry);
+                break;
+            case PROBATION:
+                probation.remove(entry);
+                entry.queue = PROTECTED;
+                protectedSegment.addFirst(entry);
+                protectedSize++;
+
+                if (protectedSize > maximumProtectedSize) {
+                    Entry<K, V> demoted = tail(protectedSegment);
+                    protectedSegment.remove(demoted);
+                    protectedSize--;
+                    demoted.queue = PROBATION;
+                    probation.addFirst(demoted);
+                }
+                break;
+            default:
+                protectedSegment.remove(entry);
+                protectedSegment.addFirst(entry);
+                break;
+        }
+    }
+
+    private void unlink(Entry<K, V> entry) {
+        switch (entry.queue) {
+            case WINDOW:
+                window.remove(entry);
+                windowSize--;
+                break;
+            case PROBATION:
+                probation.remove(entry);
+                break;
+            default:
+                protectedSegment.remove(entry);
+                protectedSize--;
+                break;
+        }
+    }
+
+    private Entry<K, V> tail(DoubleLinkedList<K, V> list) {
+        return (Entry<K, V>) list.getTail();
+    }
+
+    /**
+     * A list node that also remembers the region it belongs to.
+     */
+    private static final class Entry<K, V> extends Node<K, V> {
+        private int queue = WINDOW;
+
+        Entry(K key, V value) {
+            super(key, value);
+        }
+    }
+}
@@ -2,6 +2,11 @@ package cachingSystem.interfaces;
 
 import dataStructures.classes.Pair;
 
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 /**
  * The Cache interface defines the functionality for caching key-value pairs.
  */
@@ -23,6 +28,35 @@ public interface Cache<K, V> {
      */
     void put(K key, V value);
 
+    /**
+     * Get the values associated with several keys. The keys that do not exist in the cache are
+     * left out of the result.
+     *
+     * @param keys the keys to lookup
+     * @return the values found, by key, in the order of the keys
+     */
+    default Map<K, V> getAll(Collection<K> keys) {
+        Map<K, V> values = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                values.put(key, value);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Insert several key value pairs in the cache.
+     *
+     * @param entries the pairs to insert
+     */
+    default void putAll(Map<K, V> entries) {
+        for (Map.Entry<K, V> entry : entries.entrySet()) {
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
     /**
      * The cache size is defined as the number of stored key-value pairs.
      *
@@ -57,4 +91,13 @@ public interface Cache<K, V> {
      * @return the eldest entry
      */
     Pair<K, V> getEldestEntry();
+
+    /**
+     * Get the entries of the cache, from the eldest to the newest, in the order the cache would
+     * evict them. Putting them back in this order into an empty cache of the same type restores
+     * their relative order, although the caches that also track frequencies start over.
+     *
+     * @return the entries, eldest first
+     */
+    List<Pair<K, V>> getEntries();
 }
@@ -0,0 +1,19 @@
+package cachingSystem.interfaces;
+
+/**
+ * The CacheLoader interface computes the value of a key that is missing from a cache.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public interface CacheLoader<K, V> {
+
+    /**
+     * Compute the value associated with a key.
+     *
+     * @param key the key
+     * @return the value, never null
+     * @throws Exception if the value cannot be computed
+     */
+    V load(K key) throws Exception;
+}
@@ -0,0 +1,51 @@
+package cachingSystem.interfaces;
+
+/**
+ * The Expiry interface computes how long each entry of a cache lives. The time is computed again
+ * after every write and every read of the entry, so different keys can have different lifetimes,
+ * and an entry can be kept alive by its reads.
+ *
+ * The durations are in milliseconds; Long.MAX_VALUE means that the entry never expires.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public interface Expiry<K, V> {
+
+    /**
+     * Return the lifetime of a new entry.
+     *
+     * @param key the key
+     * @param value the value
+     * @param currentTime the current time, in milliseconds
+     * @return the time left before the entry expires
+     */
+    long expireAfterCreate(K key, V value, long currentTime);
+
+    /**
+     * Return the lifetime of an entry whose value was replaced. By default, the entry lives as long
+     * as a new one.
+     *
+     * @param key the key
+     * @param value the new value
+     * @param currentTime the current time, in milliseconds
+     * @param currentDuration the time that was left before the entry expired
+     * @return the time left before the entry expires
+     */
+    default long expireAfterUpdate(K key, V value, long currentTime, long currentDuration) {
+        return expireAfterCreate(key, value, currentTime);
+    }
+
+    /**
+     * Return the lifetime of an entry that was read. By default, reads do not change it.
+     *
+     * @param key the key
+     * @param value the value
+     * @param currentTime the current time, in milliseconds
+     * @param currentDuration the time left before the entry expires
+     * @return the time left before the entry expires
+     */
+    default long expireAfterRead(K key, V value, long currentTime, long currentDuration) {
+        return currentDuration;
+    }
+}
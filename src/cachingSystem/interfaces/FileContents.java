@@ -0,0 +1,47 @@
+package cachingSystem.interfaces;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The FileContents interface defines how the contents of a cached file are stored. The contents can
+ * be read as bytes, without copying them, or decoded as a string when needed.
+ */
+public interface FileContents {
+
+    /**
+     * Get a read-only view of the contents. The view must not be used after the contents were
+     * released, since its memory may be reused.
+     *
+     * @return the contents, from position 0 to the limit
+     */
+    ByteBuffer getByteBuffer();
+
+    /**
+     * Decode the contents as an UTF-8 string.
+     *
+     * @return the contents
+     */
+    String getString();
+
+    /**
+     * Get the size of the contents, in bytes.
+     *
+     * @return the size
+     */
+    int getLength();
+
+    /**
+     * Take a reference to the contents, so that their memory is not freed before the matching
+     * release. The cache holds the first reference; readers take one while they decode the contents,
+     * since another thread may evict them meanwhile.
+     *
+     * @return true if the reference was taken, false if the contents were already freed
+     */
+    boolean retain();
+
+    /**
+     * Drop a reference to the contents. The memory held by the contents is freed once the cache and
+     * every reader dropped theirs; the cache drops its own when the contents leave it.
+     */
+    void release();
+}
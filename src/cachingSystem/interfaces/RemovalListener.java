@@ -0,0 +1,39 @@
+package cachingSystem.interfaces;
+
+/**
+ * The RemovalListener interface is notified when a cache drops a value on its own, so that the
+ * resources held by the value can be freed. Values removed through Cache.remove are returned to the
+ * caller instead.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public interface RemovalListener<K, V> {
+
+    /**
+     * The reason a value was dropped.
+     */
+    enum RemovalCause {
+        /**
+         * The value was replaced by a put for the same key.
+         */
+        REPLACED,
+        /**
+         * The entry was removed by the stale policy.
+         */
+        EVICTED,
+        /**
+         * The entry expired.
+         */
+        EXPIRED,
+    }
+
+    /**
+     * Called after a value was dropped from the cache.
+     *
+     * @param key the key
+     * @param value the value that was dropped
+     * @param cause the reason
+     */
+    void onRemoval(K key, V value, RemovalCause cause);
+}
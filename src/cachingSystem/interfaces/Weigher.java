@@ -0,0 +1,21 @@
+package cachingSystem.interfaces;
+
+/**
+ * The Weigher interface computes the weight of a cache entry. The weights of all the entries add up
+ * to the total weight of the cache, which can be used by stale policies instead of the number of
+ * entries.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public interface Weigher<K, V> {
+
+    /**
+     * Return the weight of an entry. The weight must not change while the entry is in the cache.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the weight, which must not be negative
+     */
+    int weigh(K key, V value);
+}
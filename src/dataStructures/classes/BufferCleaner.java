@@ -0,0 +1,59 @@
+package dataStructures.classes;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+
+/**
+ * Frees the native memory of direct and mapped buffers right away, instead of waiting for the
+ * garbage collector. This relies on sun.misc.Unsafe.invokeCleaner; when it is not available, the
+ * memory is left to the garbage collector.
+ */
+public final class BufferCleaner {
+
+    private static final Object UNSAFE;
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private BufferCleaner() {
+
+    }
+
+    /**
+     * Free the memory of a buffer. The buffer, and every view created from it, must not be used
+     * afterwards.
+     *
+     * @param buffer a direct buffer that is not a slice or a duplicate of another buffer
+     * @return true if the memory was freed, false if it is left to the garbage collector
+     */
+    public static boolean clean(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null || !buffer.isDirect()) {
+            return false;
+        }
+
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            return true;
+        } catch (ReflectiveOperationException | IllegalArgumentException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package dataStructures.classes;
+
+/**
+ * A count-min sketch estimating how many times each element was counted, in a fixed amount of
+ * memory. Each element is counted in one counter of each of the four rows, and its estimate is the
+ * smallest of them. An estimate is never lower than the real count, and exceeds it by at most
+ * e / width of the total count, with a probability of 1 - 1 / e^4.
+ *
+ * @param <E> the element type
+ */
+public class CountMinSketch<E> {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+
+    private final long[][] table;
+    private final int widthMask;
+
+    /**
+     * Create a sketch with a given number of counters per row.
+     *
+     * @param width the number of counters per row, rounded up to a power of two
+     */
+    public CountMinSketch(int width) {
+        int length = 8;
+        while (length < width) {
+            length <<= 1;
+        }
+
+        table = new long[SEEDS.length][length];
+        widthMask = length - 1;
+    }
+
+    /**
+     * Count one occurrence of an element.
+     *
+     * @param element the element
+     */
+    public void increment(E element) {
+        int hash = spread(element.hashCode());
+        for (int row = 0; row < SEEDS.length; row++) {
+            table[row][indexOf(hash, row)]++;
+        }
+    }
+
+    /**
+     * Get the estimated number of occurrences of an element.
+     *
+     * @param element the element
+     * @return the estimate, never lower than the real count
+     */
+    public long estimate(E element) {
+        int hash = spread(element.hashCode());
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < SEEDS.length; row++) {
+            estimate = Math.min(estimate, table[row][indexOf(hash, row)]);
+        }
+        return estimate;
+    }
+
+    private int indexOf(int hash, int row) {
+        long position = (hash + SEEDS[row]) * SEEDS[row];
+        position += position >>> 32;
+        return ((int) position) & widthMask;
+    }
+
+    private static int spread(int hash) {
+        int x = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
@@ -1,5 +1,7 @@
 package dataStructures.classes;
 
+import java.util.List;
+
 public class DoubleLinkedList<K, V> {
 
     private Node<K, V> head;
@@ -71,5 +73,17 @@ public class DoubleLinkedList<K, V> {
     public Node<K, V> getTail() {
         return tail;
     }
+    /**
+     * Adds the entries of the list to another list, from the tail to the head.
+     *@param entries the list receiving the entries
+     */
+    public void addEntriesTo(List<Pair<K, V>> entries) {
+        if (isEmpty()) {
+            return;
+        }
+        for (Node<K, V> node = tail; node != null; node = node.getPrevious()) {
+            entries.add(new Pair<>(node.getKey(), node.getValue()));
+        }
+    }
 
 }
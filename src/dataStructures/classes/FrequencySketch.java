@@ -0,0 +1,114 @@
+package dataStructures.classes;
+
+/**
+ * A count-min sketch that estimates how often an element was seen, using 4-bit counters packed in
+ * a long array. Each element is counted in four counters and its estimate is the smallest of them.
+ * After a number of increments proportional to the table size, all the counters are halved, so
+ * that elements which are no longer popular slowly lose their history.
+ *
+ * @param <E> the element type
+ */
+public class FrequencySketch<E> {
+
+    private static final long[] SEEDS = {
+            0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+    private static final long ONE_MASK = 0x1111111111111111L;
+    private static final int MAXIMUM_FREQUENCY = 15;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    /**
+     * Create a sketch sized for a given number of distinct elements.
+     *
+     * @param maximumSize the number of elements the sketch should tell apart
+     */
+    public FrequencySketch(int maximumSize) {
+        int length = 8;
+        while (length < maximumSize) {
+            length <<= 1;
+        }
+
+        table = new long[length];
+        tableMask = length - 1;
+        sampleSize = 10 * Math.max(maximumSize, 1);
+    }
+
+    /**
+     * Get the estimated number of occurrences of an element, at most 15.
+     *
+     * @param element the element
+     * @return the estimated frequency
+     */
+    public int frequency(E element) {
+        int hash = spread(element.hashCode());
+        int start = (hash & 3) << 2;
+        int frequency = MAXIMUM_FREQUENCY;
+
+        for (int i = 0; i < 4; i++) {
+            int index = indexOf(hash, i);
+            int count = (int) ((table[index] >>> ((start + i) << 2)) & 0xfL);
+            frequency = Math.min(frequency, count);
+        }
+        return frequency;
+    }
+
+    /**
+     * Count one more occurrence of an element. Counters that already reached the maximum value are
+     * left unchanged.
+     *
+     * @param element the element
+     */
+    public void increment(E element) {
+        int hash = spread(element.hashCode());
+        int start = (hash & 3) << 2;
+        boolean added = false;
+
+        for (int i = 0; i < 4; i++) {
+            added |= incrementAt(indexOf(hash, i), start + i);
+        }
+
+        if (added && ++size == sampleSize) {
+            reset();
+        }
+    }
+
+    private boolean incrementAt(int index, int counter) {
+        int offset = counter << 2;
+        long mask = 0xfL << offset;
+
+        if ((table[index] & mask) != mask) {
+            table[index] += 1L << offset;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Halve all the counters. The counters that were odd lose one unit each, which is accounted for
+     * in the number of increments since the last reset.
+     */
+    private void reset() {
+        int oddCounters = 0;
+        for (int i = 0; i < table.length; i++) {
+            oddCounters += Long.bitCount(table[i] & ONE_MASK);
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        size = (size - (oddCounters >>> 2)) >>> 1;
+    }
+
+    private int indexOf(int hash, int row) {
+        long position = (hash + SEEDS[row]) * SEEDS[row];
+        position += position >>> 32;
+        return ((int) position) & tableMask;
+    }
+
+    private static int spread(int hash) {
+        int x = ((hash >>> 16) ^ hash) * 0x45d9f3b;
+        x = ((x >>> 16) ^ x) * 0x45d9f3b;
+        return (x >>> 16) ^ x;
+    }
+}
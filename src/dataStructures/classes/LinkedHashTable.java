@@ -0,0 +1,280 @@
+package dataStructures.classes;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * A hash table whose entries are also linked in access order, like the LongLinkedHashTable but
+ * for any key type. The keys, values, hashes and links live in parallel arrays, and the entries are
+ * referred to by their index, which stays valid until the entry is removed. The removed entries are
+ * recycled through a free list, so once the table reached its size nothing is allocated.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class LinkedHashTable<K, V> {
+
+    private static final int NONE = -1;
+    private static final int EMPTY_SLOT = 0;
+
+    private Object[] keys;
+    private Object[] values;
+    /* The hash of each key, so that the slots are moved without calling hashCode again */
+    private int[] hashes;
+    private int[] before;
+    private int[] after;
+    /* Entry index + 1 for each slot, so that 0 marks an empty slot */
+    private int[] slots;
+    private int slotMask;
+
+    private int head = NONE;
+    private int tail = NONE;
+    private int size;
+    private int unused;
+    private int freeList = NONE;
+
+    /**
+     * Create a table sized for a given number of entries. It grows as needed.
+     *
+     * @param initialCapacity the expected number of entries
+     */
+    public LinkedHashTable(int initialCapacity) {
+        allocate(Math.max(initialCapacity, 8));
+    }
+
+    /**
+     * Get the index of the entry of a key.
+     *
+     * @param key the key
+     * @return the index, or -1 if the key is not in the table
+     */
+    public int find(K key) {
+        int hash = hash(key);
+        int slot = hash & slotMask;
+        while (true) {
+            int entry = slots[slot] - 1;
+            if (entry == NONE) {
+                return NONE;
+            }
+            if (hashes[entry] == hash && Objects.equals(keys[entry], key)) {
+                return entry;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    /**
+     * Add an entry for a key that is not in the table, as the most recently used one.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the index of the new entry
+     */
+    public int insert(K key, V value) {
+        if (unused == keys.length && freeList == NONE) {
+            grow();
+        }
+
+        int entry;
+        if (freeList != NONE) {
+            entry = freeList;
+            freeList = after[entry];
+        } else {
+            entry = unused++;
+        }
+
+        int hash = hash(key);
+        keys[entry] = key;
+        values[entry] = value;
+        hashes[entry] = hash;
+        linkFirst(entry);
+        slots[freeSlotOf(hash)] = entry + 1;
+        size++;
+        return entry;
+    }
+
+    /**
+     * Remove the entry of a key.
+     *
+     * @param key the key
+     * @return the index the entry had, or -1 if the key is not in the table
+     */
+    public int remove(K key) {
+        int hash = hash(key);
+        int slot = hash & slotMask;
+        while (true) {
+            int entry = slots[slot] - 1;
+            if (entry == NONE) {
+                return NONE;
+            }
+            if (hashes[entry] == hash && Objects.equals(keys[entry], key)) {
+                deleteSlot(slot);
+                unlink(entry);
+                keys[entry] = null;
+                values[entry] = null;
+                after[entry] = freeList;
+                freeList = entry;
+                size--;
+                return entry;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    /**
+     * Make an entry the most recently used one.
+     *
+     * @param entry the index of the entry
+     */
+    public void moveToFront(int entry) {
+        if (entry != head) {
+            unlink(entry);
+            linkFirst(entry);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public K keyAt(int entry) {
+        return (K) keys[entry];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V valueAt(int entry) {
+        return (V) values[entry];
+    }
+
+    public void setValueAt(int entry, V value) {
+        values[entry] = value;
+    }
+
+    /**
+     * Get the index of the least recently used entry.
+     *
+     * @return the index, or -1 if the table is empty
+     */
+    public int eldest() {
+        return tail;
+    }
+
+    /**
+     * Get the index of the entry used right after a given one.
+     *
+     * @param entry the index of the entry
+     * @return the index, or -1 if the entry is the most recently used one
+     */
+    public int newer(int entry) {
+        return before[entry];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all the entries. The memory of the table is kept.
+     */
+    public void clear() {
+        Arrays.fill(slots, EMPTY_SLOT);
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        head = NONE;
+        tail = NONE;
+        size = 0;
+        unused = 0;
+        freeList = NONE;
+    }
+
+    private void linkFirst(int entry) {
+        before[entry] = NONE;
+        after[entry] = head;
+        if (head != NONE) {
+            before[head] = entry;
+        } else {
+            tail = entry;
+        }
+        head = entry;
+    }
+
+    private void unlink(int entry) {
+        int previous = before[entry];
+        int next = after[entry];
+        if (previous != NONE) {
+            after[previous] = next;
+        } else {
+            head = next;
+        }
+        if (next != NONE) {
+            before[next] = previous;
+        } else {
+            tail = previous;
+        }
+    }
+
+    /**
+     * Empty a slot, moving back the following entries of its probe sequence so that lookups never
+     * stop early at the hole.
+     */
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & slotMask;
+        while (slots[next] != EMPTY_SLOT) {
+            int home = hashes[slots[next] - 1] & slotMask;
+            /* The entry can fill the hole if its home slot is not between the hole and it */
+            if (((next - home) & slotMask) >= ((next - hole) & slotMask)) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+            next = (next + 1) & slotMask;
+        }
+        slots[hole] = EMPTY_SLOT;
+    }
+
+    private int freeSlotOf(int hash) {
+        int slot = hash & slotMask;
+        while (slots[slot] != EMPTY_SLOT) {
+            slot = (slot + 1) & slotMask;
+        }
+        return slot;
+    }
+
+    /**
+     * Spread the bits of the hash code, since only the low bits select the slot.
+     */
+    private static int hash(Object key) {
+        int hash = Objects.hashCode(key) * 0x9E3779B9;
+        return hash ^ (hash >>> 16);
+    }
+
+    private void allocate(int capacity) {
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+        before = new int[capacity];
+        after = new int[capacity];
+
+        /* At most half of the slots are used, which keeps the probe sequences short */
+        int slotCount = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        slots = new int[slotCount];
+        slotMask = slotCount - 1;
+    }
+
+    /**
+     * Double the capacity. Only called when there are no free entries, so the entries keep their
+     * indexes.
+     */
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+        hashes = Arrays.copyOf(hashes, capacity);
+        before = Arrays.copyOf(before, capacity);
+        after = Arrays.copyOf(after, capacity);
+
+        int slotCount = slots.length * 2;
+        slots = new int[slotCount];
+        slotMask = slotCount - 1;
+        for (int entry = 0; entry < unused; entry++) {
+            slots[freeSlotOf(hashes[entry])] = entry + 1;
+        }
+    }
+}
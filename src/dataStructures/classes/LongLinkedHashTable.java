@@ -0,0 +1,265 @@
+package dataStructures.classes;
+
+import java.util.Arrays;
+
+/**
+ * A hash table with primitive long keys, whose entries are also linked in access order. The
+ * entries live in parallel arrays and are referred to by their index; the index stays valid until
+ * the entry is removed. The table is an open-addressing array of entry indexes with linear
+ * probing, so a lookup reads a few adjacent ints instead of following node pointers, and nothing
+ * is allocated per entry.
+ *
+ * @param <V> the value type
+ */
+public class LongLinkedHashTable<V> {
+
+    private static final int NONE = -1;
+    private static final int EMPTY_SLOT = 0;
+
+    private long[] keys;
+    private Object[] values;
+    private int[] before;
+    private int[] after;
+    /* Entry index + 1 for each slot, so that 0 marks an empty slot */
+    private int[] slots;
+    private int slotMask;
+
+    private int head = NONE;
+    private int tail = NONE;
+    private int size;
+    private int unused;
+    private int freeList = NONE;
+
+    /**
+     * Create a table sized for a given number of entries. It grows as needed.
+     *
+     * @param initialCapacity the expected number of entries
+     */
+    public LongLinkedHashTable(int initialCapacity) {
+        allocate(Math.max(initialCapacity, 8));
+    }
+
+    /**
+     * Get the index of the entry of a key.
+     *
+     * @param key the key
+     * @return the index, or -1 if the key is not in the table
+     */
+    public int find(long key) {
+        int slot = slotOf(key);
+        while (true) {
+            int entry = slots[slot] - 1;
+            if (entry == NONE) {
+                return NONE;
+            }
+            if (keys[entry] == key) {
+                return entry;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    /**
+     * Add an entry for a key that is not in the table, as the most recently used one.
+     *
+     * @param key the key
+     * @param value the value
+     * @return the index of the new entry
+     */
+    public int insert(long key, V value) {
+        if (unused == keys.length && freeList == NONE) {
+            grow();
+        }
+
+        int entry;
+        if (freeList != NONE) {
+            entry = freeList;
+            freeList = after[entry];
+        } else {
+            entry = unused++;
+        }
+
+        keys[entry] = key;
+        values[entry] = value;
+        linkFirst(entry);
+        slots[freeSlotOf(key)] = entry + 1;
+        size++;
+        return entry;
+    }
+
+    /**
+     * Remove the entry of a key.
+     *
+     * @param key the key
+     * @return the index the entry had, or -1 if the key is not in the table
+     */
+    public int remove(long key) {
+        int slot = slotOf(key);
+        while (true) {
+            int entry = slots[slot] - 1;
+            if (entry == NONE) {
+                return NONE;
+            }
+            if (keys[entry] == key) {
+                deleteSlot(slot);
+                unlink(entry);
+                values[entry] = null;
+                after[entry] = freeList;
+                freeList = entry;
+                size--;
+                return entry;
+            }
+            slot = (slot + 1) & slotMask;
+        }
+    }
+
+    /**
+     * Make an entry the most recently used one.
+     *
+     * @param entry the index of the entry
+     */
+    public void moveToFront(int entry) {
+        if (entry != head) {
+            unlink(entry);
+            linkFirst(entry);
+        }
+    }
+
+    public long keyAt(int entry) {
+        return keys[entry];
+    }
+
+    @SuppressWarnings("unchecked")
+    public V valueAt(int entry) {
+        return (V) values[entry];
+    }
+
+    public void setValueAt(int entry, V value) {
+        values[entry] = value;
+    }
+
+    /**
+     * Get the index of the least recently used entry.
+     *
+     * @return the index, or -1 if the table is empty
+     */
+    public int eldest() {
+        return tail;
+    }
+
+    /**
+     * Get the index of the entry used right after another one.
+     *
+     * @param entry the index of the entry
+     * @return the index, or -1 if the entry is the most recently used one
+     */
+    public int newer(int entry) {
+        return before[entry];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Remove all the entries. The memory of the table is kept.
+     */
+    public void clear() {
+        Arrays.fill(slots, EMPTY_SLOT);
+        Arrays.fill(values, null);
+        head = NONE;
+        tail = NONE;
+        size = 0;
+        unused = 0;
+        freeList = NONE;
+    }
+
+    private void linkFirst(int entry) {
+        before[entry] = NONE;
+        after[entry] = head;
+        if (head != NONE) {
+            before[head] = entry;
+        } else {
+            tail = entry;
+        }
+        head = entry;
+    }
+
+    private void unlink(int entry) {
+        int previous = before[entry];
+        int next = after[entry];
+        if (previous != NONE) {
+            after[previous] = next;
+        } else {
+            head = next;
+        }
+        if (next != NONE) {
+            before[next] = previous;
+        } else {
+            tail = previous;
+        }
+    }
+
+    /**
+     * Empty a slot, moving back the following entries of its probe sequence so that lookups never
+     * stop early at the hole.
+     */
+    private void deleteSlot(int slot) {
+        int hole = slot;
+        int next = (hole + 1) & slotMask;
+        while (slots[next] != EMPTY_SLOT) {
+            int home = slotOf(keys[slots[next] - 1]);
+            /* The entry can fill the hole if its home slot is not between the hole and it */
+            if (((next - home) & slotMask) >= ((next - hole) & slotMask)) {
+                slots[hole] = slots[next];
+                hole = next;
+            }
+            next = (next + 1) & slotMask;
+        }
+        slots[hole] = EMPTY_SLOT;
+    }
+
+    private int freeSlotOf(long key) {
+        int slot = slotOf(key);
+        while (slots[slot] != EMPTY_SLOT) {
+            slot = (slot + 1) & slotMask;
+        }
+        return slot;
+    }
+
+    private int slotOf(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & slotMask;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        before = new int[capacity];
+        after = new int[capacity];
+
+        /* At most half of the slots are used, which keeps the probe sequences short */
+        int slotCount = Integer.highestOneBit(capacity * 2 - 1) << 1;
+        slots = new int[slotCount];
+        slotMask = slotCount - 1;
+    }
+
+    /**
+     * Double the capacity. Only called when there are no free entries, so the entries keep their
+     * indexes.
+     */
+    private void grow() {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        values = Arrays.copyOf(values, capacity);
+        before = Arrays.copyOf(before, capacity);
+        after = Arrays.copyOf(after, capacity);
+
+        int slotCount = slots.length * 2;
+        slots = new int[slotCount];
+        slotMask = slotCount - 1;
+        for (int entry = 0; entry < unused; entry++) {
+            slots[freeSlotOf(keys[entry])] = entry + 1;
+        }
+    }
+}
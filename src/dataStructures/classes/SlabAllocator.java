@@ -0,0 +1,221 @@
+package dataStructures.classes;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Allocates blocks of native memory out of large direct buffers (slabs). Block sizes are rounded up
+ * to a power of two (a size class), and every slab serves a single size class. Freed blocks are
+ * kept in a free list of their size class and reused by the next allocations. Blocks larger than a
+ * slab get a direct buffer of their own, which is released as soon as the block is freed.
+ */
+public class SlabAllocator {
+
+    private static final int MINIMUM_SHIFT = 6;
+    private static final int DEFAULT_SLAB_SIZE = 1 << 20;
+
+    private final int slabShift;
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final SizeClass[] sizeClasses;
+    private long allocatedBytes;
+    private long reservedBytes;
+
+    public SlabAllocator() {
+        this(DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Create an allocator using slabs of a given size. The size is rounded up to a power of two.
+     *
+     * @param slabSize the size of a slab, in bytes
+     */
+    public SlabAllocator(int slabSize) {
+        int shift = MINIMUM_SHIFT;
+        while ((1 << shift) < slabSize) {
+            shift++;
+        }
+
+        slabShift = shift;
+        sizeClasses = new SizeClass[slabShift - MINIMUM_SHIFT + 1];
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = new SizeClass(1 << (MINIMUM_SHIFT + i));
+        }
+    }
+
+    /**
+     * Allocate a block that can hold a given number of bytes.
+     *
+     * @param length the number of bytes
+     * @return the block
+     */
+    public synchronized Block allocate(int length) {
+        if (length > (1 << slabShift)) {
+            reservedBytes += length;
+            allocatedBytes += length;
+            return new Block(this, ByteBuffer.allocateDirect(length), -1, -1, 0, length);
+        }
+
+        int index = sizeClassOf(length);
+        SizeClass sizeClass = sizeClasses[index];
+        long address;
+
+        if (sizeClass.freeCount > 0) {
+            address = sizeClass.freeList[--sizeClass.freeCount];
+        } else {
+            if (sizeClass.slab < 0 || sizeClass.offset + sizeClass.blockSize > (1 << slabShift)) {
+                slabs.add(ByteBuffer.allocateDirect(1 << slabShift));
+                reservedBytes += 1 << slabShift;
+                sizeClass.slab = slabs.size() - 1;
+                sizeClass.offset = 0;
+            }
+            address = ((long) sizeClass.slab << 32) | sizeClass.offset;
+            sizeClass.offset += sizeClass.blockSize;
+        }
+
+        allocatedBytes += sizeClass.blockSize;
+        int slab = (int) (address >>> 32);
+        return new Block(this, slabs.get(slab), index, slab, (int) address, length);
+    }
+
+    /**
+     * Return the memory of a block to the allocator. Freeing a block twice has no effect.
+     *
+     * @param block the block
+     */
+    public synchronized void free(Block block) {
+        if (block.freed) {
+            return;
+        }
+        block.freed = true;
+
+        if (block.sizeClass < 0) {
+            reservedBytes -= block.length;
+            allocatedBytes -= block.length;
+            BufferCleaner.clean(block.memory);
+            return;
+        }
+
+        if (block.slab >= slabs.size() || slabs.get(block.slab) != block.memory) {
+            /* The block was allocated before the allocator was closed */
+            return;
+        }
+
+        SizeClass sizeClass = sizeClasses[block.sizeClass];
+        if (sizeClass.freeCount == sizeClass.freeList.length) {
+            long[] freeList = new long[Math.max(16, sizeClass.freeCount * 2)];
+            System.arraycopy(sizeClass.freeList, 0, freeList, 0, sizeClass.freeCount);
+            sizeClass.freeList = freeList;
+        }
+
+        sizeClass.freeList[sizeClass.freeCount++] = ((long) block.slab << 32) | block.offset;
+        allocatedBytes -= sizeClass.blockSize;
+    }
+
+    /**
+     * Free all the slabs. The blocks allocated so far must not be used afterwards.
+     */
+    public synchronized void close() {
+        for (ByteBuffer slab : slabs) {
+            BufferCleaner.clean(slab);
+        }
+        slabs.clear();
+
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = new SizeClass(sizeClasses[i].blockSize);
+        }
+        allocatedBytes = 0;
+        reservedBytes = 0;
+    }
+
+    /**
+     * Get the number of bytes handed out in blocks, including the rounding to size classes.
+     *
+     * @return the allocated bytes
+     */
+    public synchronized long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * Get the number of bytes of native memory reserved by the allocator.
+     *
+     * @return the reserved bytes
+     */
+    public synchronized long getReservedBytes() {
+        return reservedBytes;
+    }
+
+    private int sizeClassOf(int length) {
+        int shift = 32 - Integer.numberOfLeadingZeros(Math.max(length, 1) - 1);
+        return Math.max(shift, MINIMUM_SHIFT) - MINIMUM_SHIFT;
+    }
+
+    private static final class SizeClass {
+        private final int blockSize;
+        private long[] freeList = new long[0];
+        private int freeCount;
+        private int slab = -1;
+        private int offset;
+
+        SizeClass(int blockSize) {
+            this.blockSize = blockSize;
+        }
+    }
+
+    /**
+     * A block of native memory. The block only stores where its bytes are, so it stays small on the
+     * heap whatever its length.
+     */
+    public static final class Block {
+        private final SlabAllocator allocator;
+        private final ByteBuffer memory;
+        private final int sizeClass;
+        private final int slab;
+        private final int offset;
+        private final int length;
+        private boolean freed;
+
+        private Block(SlabAllocator allocator, ByteBuffer memory, int sizeClass, int slab,
+                      int offset, int length) {
+            this.allocator = allocator;
+            this.memory = memory;
+            this.sizeClass = sizeClass;
+            this.slab = slab;
+            this.offset = offset;
+            this.length = length;
+        }
+
+        /**
+         * Get a read-only view of the bytes of the block.
+         *
+         * @return the view, from position 0 to the length of the block
+         */
+        public ByteBuffer getBuffer() {
+            return getWritableBuffer().asReadOnlyBuffer();
+        }
+
+        /**
+         * Get a view of the bytes of the block that can be used to fill it.
+         *
+         * @return the view, from position 0 to the length of the block
+         */
+        public ByteBuffer getWritableBuffer() {
+            ByteBuffer view = memory.duplicate();
+            view.limit(offset + length);
+            view.position(offset);
+            return view.slice();
+        }
+
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * Return the block to its allocator.
+         */
+        public void free() {
+            allocator.free(this);
+        }
+    }
+}
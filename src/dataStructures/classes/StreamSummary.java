@@ -0,0 +1,195 @@
+package dataStructures.classes;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Finds the most frequent elements of a stream with the Space-Saving algorithm, keeping a fixed
+ * number of counters. When an element that is not tracked arrives and all the counters are used,
+ * it takes over the counter with the smallest count, and inherits that count as its maximum error.
+ * The counters are grouped in buckets of equal counts, kept in increasing order, so that counting
+ * an element is O(1) and listing the k most frequent elements is O(k).
+ *
+ * @param <E> the element type
+ */
+public class StreamSummary<E> {
+
+    private final int capacity;
+    private final HashMap<E, Counter<E>> counters = new HashMap<>();
+    private Bucket<E> smallest;
+    private Bucket<E> largest;
+
+    /**
+     * Create a summary tracking a given number of elements.
+     *
+     * @param capacity the number of counters
+     */
+    public StreamSummary(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("The capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+    }
+
+    /**
+     * Count one occurrence of an element.
+     *
+     * @param element the element
+     */
+    public void increment(E element) {
+        Counter<E> counter = counters.get(element);
+        if (counter == null) {
+            if (counters.size() < capacity) {
+                counter = new Counter<>(element);
+                counters.put(element, counter);
+                attach(counter, null, 1);
+                return;
+            }
+
+            /* Replace the element with the smallest count */
+            counter = smallest.head;
+            counters.remove(counter.element);
+            counter.element = element;
+            counter.error = smallest.count;
+            counters.put(element, counter);
+        }
+
+        Bucket<E> bucket = counter.bucket;
+        long count = bucket.count + 1;
+        detach(counter);
+        /* If the old bucket was unlinked, its previous link still gives the position */
+        attach(counter, bucket.head != null ? bucket : bucket.previous, count);
+    }
+
+    /**
+     * Get the counted number of occurrences of an element, which may exceed the real number by the
+     * count the element inherited when it started being tracked.
+     *
+     * @param element the element
+     * @return the count, or 0 if the element is not tracked
+     */
+    public long count(E element) {
+        Counter<E> counter = counters.get(element);
+        return counter == null ? 0 : counter.bucket.count;
+    }
+
+    /**
+     * Get the maximum overestimation of the count of an element.
+     *
+     * @param element the element
+     * @return the error, or 0 if the element is not tracked
+     */
+    public long error(E element) {
+        Counter<E> counter = counters.get(element);
+        return counter == null ? 0 : counter.error;
+    }
+
+    /**
+     * Get the tracked elements with the largest counts, most frequent first.
+     *
+     * @param top the maximum number of elements
+     * @return the elements, at most top of them
+     */
+    public List<E> top(int top) {
+        List<E> elements = new ArrayList<>(Math.min(top, counters.size()));
+        for (Bucket<E> bucket = largest; bucket != null; bucket = bucket.previous) {
+            for (Counter<E> counter = bucket.head; counter != null; counter = counter.next) {
+                if (elements.size() >= top) {
+                    return elements;
+                }
+                elements.add(counter.element);
+            }
+        }
+        return elements;
+    }
+
+    public int size() {
+        return counters.size();
+    }
+
+    /**
+     * Add a counter to the bucket of a given count, right after a bucket with a smaller count (or
+     * at the beginning if after is null), creating the bucket if needed.
+     */
+    private void attach(Counter<E> counter, Bucket<E> after, long count) {
+        Bucket<E> next = after == null ? smallest : after.next;
+        Bucket<E> bucket;
+        if (next != null && next.count == count) {
+            bucket = next;
+        } else {
+            bucket = new Bucket<>(count);
+            bucket.previous = after;
+            bucket.next = next;
+            if (after == null) {
+                smallest = bucket;
+            } else {
+                after.next = bucket;
+            }
+            if (next == null) {
+                largest = bucket;
+            } else {
+                next.previous = bucket;
+            }
+        }
+
+        counter.bucket = bucket;
+        counter.previous = null;
+        counter.next = bucket.head;
+        if (bucket.head != null) {
+            bucket.head.previous = counter;
+        }
+        bucket.head = counter;
+    }
+
+    /**
+     * Remove a counter from its bucket. The bucket is unlinked when it becomes empty.
+     */
+    private void detach(Counter<E> counter) {
+        Bucket<E> bucket = counter.bucket;
+        if (counter.previous != null) {
+            counter.previous.next = counter.next;
+        } else {
+            bucket.head = counter.next;
+        }
+        if (counter.next != null) {
+            counter.next.previous = counter.previous;
+        }
+
+        if (bucket.head == null) {
+            if (bucket.previous != null) {
+                bucket.previous.next = bucket.next;
+            } else {
+                smallest = bucket.next;
+            }
+            if (bucket.next != null) {
+                bucket.next.previous = bucket.previous;
+            } else {
+                largest = bucket.previous;
+            }
+        }
+    }
+
+    private static final class Counter<E> {
+        private E element;
+        private long error;
+        private Bucket<E> bucket;
+        private Counter<E> previous;
+        private Counter<E> next;
+
+        Counter(E element) {
+            this.element = element;
+        }
+    }
+
+    private static final class Bucket<E> {
+        private final long count;
+        private Counter<E> head;
+        private Bucket<E> previous;
+        private Bucket<E> next;
+
+        Bucket(long count) {
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package dataStructures.classes;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * A lossy buffer for recording events from many threads without locking. The buffer is split into
+ * small ring buffers (stripes) selected by the calling thread. When a stripe is full or contended,
+ * the event is dropped. The buffer is drained by a single thread at a time.
+ *
+ * @param <E> the element type
+ */
+public class StripedReadBuffer<E> {
+
+    private static final int STRIPE_SIZE = 16;
+    private static final int STRIPE_MASK = STRIPE_SIZE - 1;
+
+    private final Stripe<E>[] stripes;
+    private final int stripeMask;
+
+    public StripedReadBuffer() {
+        this(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    /**
+     * Create a buffer with a given number of stripes. The number is rounded up to a power of two.
+     *
+     * @param stripeCount the number of stripes
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public StripedReadBuffer(int stripeCount) {
+        int count = 1;
+        while (count < stripeCount) {
+            count <<= 1;
+        }
+
+        stripes = (Stripe<E>[]) new Stripe[count];
+        stripeMask = count - 1;
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>();
+        }
+    }
+
+    /**
+     * Record an element in the stripe of the calling thread. The element is dropped if the stripe is
+     * full or if another thread is writing to it at the same time.
+     *
+     * @param element the element to be recorded
+     * @return true if the stripe is full and the buffer should be drained, false otherwise
+     */
+    public boolean offer(E element) {
+        long threadId = Thread.currentThread().getId();
+        Stripe<E> stripe = stripes[(int) ((threadId * 0x9E3779B97F4A7C15L) >>> 32) & stripeMask];
+
+        long tail = stripe.writeCount.get();
+        long size = tail - stripe.readCount;
+        if (size >= STRIPE_SIZE) {
+            return true;
+        }
+
+        if (stripe.writeCount.compareAndSet(tail, tail + 1)) {
+            stripe.slots.lazySet((int) (tail & STRIPE_MASK), element);
+            return size + 1 >= STRIPE_SIZE;
+        }
+        return false;
+    }
+
+    /**
+     * Pass all the recorded elements to a consumer, in the order they were recorded in each stripe.
+     * Only one thread may drain the buffer at a time.
+     *
+     * @param consumer the consumer of the elements
+     */
+    public void drainTo(Consumer<E> consumer) {
+        for (Stripe<E> stripe : stripes) {
+            long head = stripe.readCount;
+            long tail = stripe.writeCount.get();
+
+            while (head < tail) {
+                int index = (int) (head & STRIPE_MASK);
+                E element = stripe.slots.get(index);
+                if (element == null) {
+                    /* The writer claimed the slot but has not stored the element yet */
+                    break;
+                }
+                stripe.slots.lazySet(index, null);
+                consumer.accept(element);
+                head++;
+            }
+            stripe.readCount = head;
+        }
+    }
+
+    private static final class Stripe<E> {
+        private final AtomicReferenceArray<E> slots = new AtomicReferenceArray<>(STRIPE_SIZE);
+        private final AtomicLong writeCount = new AtomicLong();
+        private volatile long readCount;
+    }
+}
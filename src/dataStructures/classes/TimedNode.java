@@ -0,0 +1,41 @@
+package dataStructures.classes;
+
+/**
+ * A list node that also has a deadline and can be linked in a TimerWheel.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class TimedNode<K, V> extends Node<K, V> {
+    private long deadline;
+    private TimedNode<K, V> previousInWheel;
+    private TimedNode<K, V> nextInWheel;
+
+    public TimedNode(K key, V value) {
+        super(key, value);
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    public TimedNode<K, V> getPreviousInWheel() {
+        return previousInWheel;
+    }
+
+    public void setPreviousInWheel(TimedNode<K, V> previousInWheel) {
+        this.previousInWheel = previousInWheel;
+    }
+
+    public TimedNode<K, V> getNextInWheel() {
+        return nextInWheel;
+    }
+
+    public void setNextInWheel(TimedNode<K, V> nextInWheel) {
+        this.nextInWheel = nextInWheel;
+    }
+}
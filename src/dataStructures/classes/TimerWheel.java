@@ -0,0 +1,184 @@
+package dataStructures.classes;
+
+import java.util.function.Consumer;
+
+/**
+ * A hierarchical timer wheel holding nodes by deadline, in milliseconds. Each level is a circular
+ * array of buckets covering a coarser time span than the previous one: about a second, a minute, an
+ * hour, a day and a week per bucket. Scheduling and descheduling a node take O(1). When the time
+ * advances, the buckets that were passed are emptied: the nodes whose deadline has been reached
+ * expire, while the others are rescheduled on a finer level.
+ *
+ * @param <K> the key type
+ * @param <V> the value type
+ */
+public class TimerWheel<K, V> {
+
+    private static final int[] BUCKETS = {64, 64, 32, 4, 1};
+    private static final long[] SPANS = {
+            1L << 10, // 1.02 seconds
+            1L << 16, // 1.09 minutes
+            1L << 22, // 1.17 hours
+            1L << 27, // 1.55 days
+            1L << 29, // 6.21 days
+            1L << 29,
+    };
+    private static final int[] SHIFT = {10, 16, 22, 27, 29};
+
+    private final TimedNode<K, V>[][] wheel;
+    private long time;
+
+    /**
+     * Create an empty wheel.
+     *
+     * @param currentTime the current time, in milliseconds
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public TimerWheel(long currentTime) {
+        time = currentTime;
+        wheel = (TimedNode<K, V>[][]) new TimedNode[BUCKETS.length][];
+
+        for (int i = 0; i < BUCKETS.length; i++) {
+            wheel[i] = (TimedNode<K, V>[]) new TimedNode[BUCKETS[i]];
+            for (int j = 0; j < BUCKETS[i]; j++) {
+                wheel[i][j] = createSentinel();
+            }
+        }
+    }
+
+    /**
+     * Add a node to the bucket of its deadline. The node must not be scheduled already.
+     *
+     * @param node the node
+     */
+    public void schedule(TimedNode<K, V> node) {
+        /* A deadline already passed goes to the current bucket, so it expires at the next tick */
+        TimedNode<K, V> sentinel = findBucket(Math.max(node.getDeadline(), time));
+        TimedNode<K, V> last = sentinel.getPreviousInWheel();
+
+        node.setPreviousInWheel(last);
+        node.setNextInWheel(sentinel);
+        last.setNextInWheel(node);
+        sentinel.setPreviousInWheel(node);
+    }
+
+    /**
+     * Move a node to the bucket of its deadline, after the deadline was changed.
+     *
+     * @param node the node
+     */
+    public void reschedule(TimedNode<K, V> node) {
+        deschedule(node);
+        schedule(node);
+    }
+
+    /**
+     * Remove a node from the wheel, if it is scheduled.
+     *
+     * @param node the node
+     */
+    public void deschedule(TimedNode<K, V> node) {
+        if (node.getNextInWheel() == null) {
+            return;
+        }
+
+        node.getPreviousInWheel().setNextInWheel(node.getNextInWheel());
+        node.getNextInWheel().setPreviousInWheel(node.getPreviousInWheel());
+        node.setPreviousInWheel(null);
+        node.setNextInWheel(null);
+    }
+
+    /**
+     * Advance the time of the wheel and pass the nodes whose deadline is before the new time to a
+     * consumer. Expired nodes are removed from the wheel before being passed on.
+     *
+     * @param currentTime the current time, in milliseconds
+     * @param onExpired the consumer of the expired nodes
+     */
+    public void advance(long currentTime, Consumer<TimedNode<K, V>> onExpired) {
+        long previousTime = time;
+        time = currentTime;
+
+        for (int i = 0; i < SHIFT.length; i++) {
+            long previousTicks = previousTime >>> SHIFT[i];
+            long currentTicks = currentTime >>> SHIFT[i];
+            if (currentTicks - previousTicks <= 0) {
+                break;
+            }
+            expire(i, previousTicks, currentTicks - previousTicks, onExpired);
+        }
+    }
+
+    /**
+     * Remove all the nodes from the wheel.
+     */
+    public void clear() {
+        for (TimedNode<K, V>[] buckets : wheel) {
+            for (TimedNode<K, V> sentinel : buckets) {
+                TimedNode<K, V> node = sentinel.getNextInWheel();
+                while (node != sentinel) {
+                    TimedNode<K, V> next = node.getNextInWheel();
+                    node.setPreviousInWheel(null);
+                    node.setNextInWheel(null);
+                    node = next;
+                }
+                sentinel.setPreviousInWheel(sentinel);
+                sentinel.setNextInWheel(sentinel);
+            }
+        }
+    }
+
+    /**
+     * Empty the buckets of a level that the time went past, then expire or reschedule their nodes.
+     */
+    private void expire(int level, long previousTicks, long delta,
+                        Consumer<TimedNode<K, V>> onExpired) {
+        TimedNode<K, V>[] buckets = wheel[level];
+        int mask = buckets.length - 1;
+        int steps = (int) Math.min(1 + delta, buckets.length);
+        int start = (int) (previousTicks & mask);
+
+        for (int i = start; i < start + steps; i++) {
+            TimedNode<K, V> sentinel = buckets[i & mask];
+            TimedNode<K, V> node = sentinel.getNextInWheel();
+            sentinel.setPreviousInWheel(sentinel);
+            sentinel.setNextInWheel(sentinel);
+
+            while (node != sentinel) {
+                TimedNode<K, V> next = node.getNextInWheel();
+                node.setPreviousInWheel(null);
+                node.setNextInWheel(null);
+
+                if (node.getDeadline() - time < 0) {
+                    onExpired.accept(node);
+                } else {
+                    schedule(node);
+                }
+                node = next;
+            }
+        }
+    }
+
+    /**
+     * Find the bucket of a deadline: the first level whose span covers the time left.
+     */
+    private TimedNode<K, V> findBucket(long deadline) {
+        long duration = deadline - time;
+        int last = wheel.length - 1;
+
+        for (int i = 0; i < last; i++) {
+            if (duration < SPANS[i + 1]) {
+                long ticks = deadline >>> SHIFT[i];
+                return wheel[i][(int) (ticks & (wheel[i].length - 1))];
+            }
+        }
+        return wheel[last][0];
+    }
+
+    private TimedNode<K, V> createSentinel() {
+        TimedNode<K, V> sentinel = new TimedNode<>(null, null);
+        sentinel.setPreviousInWheel(sentinel);
+        sentinel.setNextInWheel(sentinel);
+        return sentinel;
+    }
+}
@@ -0,0 +1,320 @@
+package observerPattern.classes;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A BroadcastListener that passes the events to its listeners from a background thread. The events
+ * are published in a bounded ring buffer of preallocated slots, so a cache operation only claims a
+ * slot and fills it in. When the buffer is full, the event is either dropped or the caller waits
+ * for a free slot, depending on the overflow policy. The collections passed to the batch events
+ * must not be modified after they were reported. When there are no events, the background thread
+ * sleeps until the next one is published, so an idle cache costs no CPU.
+ *
+ * @param <K>
+ * @param <V>
+ */
+public class AsyncBroadcastListener<K, V> extends BroadcastListener<K, V> {
+
+    /**
+     * What to do with an event when the buffer is full.
+     */
+    public enum OverflowPolicy {
+        /**
+         * Drop the event and count it, so that the cache is never slowed down by its listeners.
+         */
+        DROP,
+        /**
+         * Wait until the background thread frees a slot, so that no event is lost.
+         */
+        BLOCK,
+    }
+
+    private static final int HIT = 0;
+    private static final int MISS = 1;
+    private static final int PUT = 2;
+    private static final int HITS = 3;
+    private static final int MISSES = 4;
+    private static final int PUTS = 5;
+    private static final int EVICTION = 6;
+    private static final int LOAD_SUCCESS = 7;
+    private static final int LOAD_FAILURE = 8;
+    private static final int GET_LATENCY = 9;
+
+    private static final int IDLE_SPINS = 64;
+    private static final long FLUSH_PARK_NANOS = 100_000;
+    private static final long FULL_PARK_NANOS = 10_000;
+
+    private final Event<K, V>[] slots;
+    private final int mask;
+    private final OverflowPolicy overflowPolicy;
+    private final AtomicLong claimed = new AtomicLong();
+    private final LongAdder dropped = new LongAdder();
+    private final Thread consumer;
+
+    /* Written only by the consumer thread */
+    private volatile long consumed;
+    private volatile boolean sleeping;
+    private volatile boolean running = true;
+
+    /**
+     * Create a listener and start its background thread.
+     *
+     * @param bufferSize the number of slots of the buffer, rounded up to a power of two
+     * @param policy what to do with an event when the buffer is full
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public AsyncBroadcastListener(int bufferSize, OverflowPolicy policy) {
+        int size = 1;
+        while (size < bufferSize) {
+            size <<= 1;
+        }
+
+        slots = (Event<K, V>[]) new Event[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Event<>();
+        }
+        mask = size - 1;
+        overflowPolicy = policy;
+
+        consumer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                consume();
+            }
+        }, "cache-listener-dispatch");
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @Override
+    public void onHit(K key) {
+        publish(HIT, key, null, null, null, false, 0);
+    }
+
+    @Override
+    public void onMiss(K key) {
+        publish(MISS, key, null, null, null, false, 0);
+    }
+
+    @Override
+    public void onPut(K key, V value) {
+        publish(PUT, key, value, null, null, false, 0);
+    }
+
+    @Override
+    public void onHits(Collection<K> keys) {
+        publish(HITS, null, null, keys, null, false, 0);
+    }
+
+    @Override
+    public void onMisses(Collection<K> keys) {
+        publish(MISSES, null, null, keys, null, false, 0);
+    }
+
+    @Override
+    public void onPuts(Map<K, V> entries) {
+        publish(PUTS, null, null, null, entries, false, 0);
+    }
+
+    @Override
+    public void onEviction(K key) {
+        publish(EVICTION, key, null, null, null, false, 0);
+    }
+
+    @Override
+    public void onLoadSuccess(K key, long loadNanos) {
+        publish(LOAD_SUCCESS, key, null, null, null, false, loadNanos);
+    }
+
+    @Override
+    public void onLoadFailure(K key, long loadNanos) {
+        publish(LOAD_FAILURE, key, null, null, null, false, loadNanos);
+    }
+
+    @Override
+    public void onGetLatency(K key, boolean hit, long nanos) {
+        publish(GET_LATENCY, key, null, null, null, hit, nanos);
+    }
+
+    /**
+     * Get the number of events dropped because the buffer was full.
+     *
+     * @return the number of dropped events
+     */
+    public long getDroppedEvents() {
+        return dropped.sum();
+    }
+
+    /**
+     * Wait until the events published so far were passed to the listeners.
+     */
+    public void flush() {
+        long published = claimed.get();
+        while (consumed < published && consumer.isAlive()) {
+            LockSupport.parkNanos(FLUSH_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Pass the pending events to the listeners and stop the background thread. The events reported
+     * afterwards are discarded.
+     */
+    public void close() {
+        running = false;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void publish(int type, K key, V value, Collection<K> keys, Map<K, V> entries,
+            boolean hit, long nanos) {
+        if (!running) {
+            return;
+        }
+
+        long sequence = claim();
+        if (sequence < 0) {
+            dropped.increment();
+            return;
+        }
+
+        Event<K, V> event = slots[(int) (sequence & mask)];
+        event.type = type;
+        event.key = key;
+        event.value = value;
+        event.keys = keys;
+        event.entries = entries;
+        event.hit = hit;
+        event.nanos = nanos;
+        /* Publishes the fields to the consumer */
+        event.sequence = sequence;
+        if (sleeping) {
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    /**
+     * Claim the next slot of the buffer.
+     *
+     * @return the sequence number of the slot, or -1 if the event must be dropped
+     */
+    private long claim() {
+        while (true) {
+            long sequence = claimed.get();
+            if (sequence - consumed >= slots.length) {
+                if (overflowPolicy == OverflowPolicy.DROP || !running) {
+                    return -1;
+                }
+                LockSupport.parkNanos(FULL_PARK_NANOS);
+                continue;
+            }
+            if (claimed.compareAndSet(sequence, sequence + 1)) {
+                return sequence;
+            }
+        }
+    }
+
+    /**
+     * Pass the events to the listeners in the order of their slots, until the listener is closed
+     * and all the claimed slots were consumed. Without events, the thread yields for a while, then
+     * parks until a publisher or close unparks it.
+     */
+    private void consume() {
+        long next = 0;
+        int idle = 0;
+        while (true) {
+            Event<K, V> event = slots[(int) (next & mask)];
+            if (event.sequence == next) {
+                dispatch(event);
+                event.clear();
+                next++;
+                consumed = next;
+                idle = 0;
+            } else if (!running && claimed.get() == next) {
+                return;
+            } else if (idle < IDLE_SPINS) {
+                idle++;
+                Thread.yield();
+            } else {
+                /*
+                 * The flag is set before the slot is checked again, and a publisher fills the slot
+                 * before reading the flag, so one of them sees the other and no event is missed
+                 */
+                sleeping = true;
+                if (event.sequence != next && running) {
+                    LockSupport.park(this);
+                }
+                sleeping = false;
+            }
+        }
+    }
+
+    private void dispatch(Event<K, V> event) {
+        try {
+            switch (event.type) {
+                case HIT:
+                    super.onHit(event.key);
+                    break;
+                case MISS:
+                    super.onMiss(event.key);
+                    break;
+                case PUT:
+                    super.onPut(event.key, event.value);
+                    break;
+                case HITS:
+                    super.onHits(event.keys);
+                    break;
+                case MISSES:
+                    super.onMisses(event.keys);
+                    break;
+                case PUTS:
+                    super.onPuts(event.entries);
+                    break;
+                case EVICTION:
+                    super.onEviction(event.key);
+                    break;
+                case LOAD_SUCCESS:
+                    super.onLoadSuccess(event.key, event.nanos);
+                    break;
+                case LOAD_FAILURE:
+                    super.onLoadFailure(event.key, event.nanos);
+                    break;
+                default:
+                    super.onGetLatency(event.key, event.hit, event.nanos);
+                    break;
+            }
+        } catch (RuntimeException e) {
+            /* A failing listener must not stop the dispatch of the other events */
+            Thread thread = Thread.currentThread();
+            thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+        }
+    }
+
+    /**
+     * A slot of the ring buffer. The slots are reused for all the events.
+     */
+    private static final class Event<K, V> {
+        private volatile long sequence = -1;
+        private int type;
+        private K key;
+        private V value;
+        private Collection<K> keys;
+        private Map<K, V> entries;
+        private boolean hit;
+        private long nanos;
+
+        void clear() {
+            key = null;
+            value = null;
+            keys = null;
+            entries = null;
+        }
+    }
+}
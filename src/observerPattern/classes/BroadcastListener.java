@@ -2,15 +2,18 @@ package observerPattern.classes;
 
 import observerPattern.interfaces.CacheListener;
 
-import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * The BroadcastListener broadcasts cache events to other listeners that have been added to it.
  */
 public class BroadcastListener<K, V> implements CacheListener<K, V> {
 
-    private List<CacheListener<K, V>> broadcastList = new ArrayList<>();
+    private List<CacheListener<K, V>> broadcastList = new CopyOnWriteArrayList<>();
     /**
      * Add a listener to the broadcast list.
      *
@@ -20,6 +23,28 @@ public class BroadcastListener<K, V> implements CacheListener<K, V> {
         broadcastList.add(listener);
     }
 
+    /**
+     * Get the listeners in the broadcast list.
+     *
+     * @return a read-only view of the listeners
+     */
+    public List<CacheListener<K, V>> getListeners() {
+        return Collections.unmodifiableList(broadcastList);
+    }
+
+    /**
+     * The values are read if any of the listeners reads them.
+     */
+    @Override
+    public boolean usesValues() {
+        for (CacheListener<K, V> cacheListener : broadcastList) {
+            if (cacheListener.usesValues()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     @Override
     public void onHit(K key) {
         for(CacheListener<K, V> cacheListener : broadcastList) {
@@ -42,4 +67,53 @@ public class BroadcastListener<K, V> implements CacheListener<K, V> {
         }
 
     }
+
+    @Override
+    public void onHits(Collection<K> keys) {
+        for(CacheListener<K, V> cacheListener : broadcastList) {
+            cacheListener.onHits(keys);
+        }
+    }
+
+    @Override
+    public void onMisses(Collection<K> keys) {
+        for(CacheListener<K, V> cacheListener : broadcastList) {
+            cacheListener.onMisses(keys);
+        }
+    }
+
+    @Override
+    public void onPuts(Map<K, V> entries) {
+        for(CacheListener<K, V> cacheListener : broadcastList) {
+            cacheListener.onPuts(entries);
+        }
+    }
+
+    @Override
+    public void onEviction(K key) {
+        for(CacheListener<K, V> cacheListener : broadcastList) {
+            cacheListener.onEviction(key);
+        }
+    }
+
+    @Override
+    public void onLoadSuccess(K key, long loadNanos) {
+        for(CacheListener<K, V> cacheListener : broadcastList) {
+            cacheListener.onLoadSuccess(key, loadNanos);
+        }
+    }
+
+    @Override
+    public void onLoadFailure(K key, long loadNanos) {
+        for(CacheListener<K, V> cacheListener : broadcastList) {
+            cacheListener.onLoadFailure(key, loadNanos);
+        }
+    }
+
+    @Override
+    public void onGetLatency(K key, boolean hit, long nanos) {
+        for(CacheListener<K, V> cacheListener : broadcastList) {
+            cacheListener.onGetLatency(key, hit, nanos);
+        }
+    }
 }
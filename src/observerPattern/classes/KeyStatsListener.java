@@ -2,19 +2,47 @@ package observerPattern.classes;
 
 import java.util.*;
 
+import dataStructures.classes.CountMinSketch;
+import dataStructures.classes.StreamSummary;
 import observerPattern.interfaces.CacheListener;
 
 /**
- * The KeyStatsListener collects key-level stats for cache operations.
+ * The KeyStatsListener collects key-level stats for cache operations. By default, the exact count
+ * of every key ever seen is kept. In bounded mode, the memory used does not depend on the number of
+ * keys: the counts are estimated with count-min sketches, and the top keys are found among a fixed
+ * number of tracked keys.
  *
  * @param <K>
  * @param <V>
  */
 public class KeyStatsListener<K, V> implements CacheListener<K, V> {
 
-    private Map<K, Integer> hitsMap = new HashMap<>();
-    private Map<K, Integer> updatesMap = new HashMap<>();
-    private Map<K, Integer> missesMap = new HashMap<>();
+    /* Counters per tracked key, so that the estimates of the sketches stay close */
+    private static final int SKETCH_WIDTH_PER_KEY = 8;
+    private static final int MINIMUM_SKETCH_WIDTH = 1024;
+
+    private final KeyCounter<K> hits;
+    private final KeyCounter<K> updates;
+    private final KeyCounter<K> misses;
+
+    public KeyStatsListener() {
+        hits = new ExactCounter<>();
+        updates = new ExactCounter<>();
+        misses = new ExactCounter<>();
+    }
+
+    /**
+     * Create a listener using a fixed amount of memory. The per-key counts are estimates that may
+     * exceed the real counts, and the top keys are chosen among the most frequent keys seen.
+     *
+     * @param maximumTrackedKeys the number of keys tracked for the top queries
+     */
+    public KeyStatsListener(int maximumTrackedKeys) {
+        int sketchWidth = Math.max(MINIMUM_SKETCH_WIDTH, maximumTrackedKeys * SKETCH_WIDTH_PER_KEY);
+        hits = new BoundedCounter<>(maximumTrackedKeys, sketchWidth);
+        updates = new BoundedCounter<>(maximumTrackedKeys, sketchWidth);
+        misses = new BoundedCounter<>(maximumTrackedKeys, sketchWidth);
+    }
 
     /**
      * Get the number of hits for a key.
@@ -23,7 +51,7 @@ public class KeyStatsListener<K, V> implements CacheListener<K, V> {
      * @return number of hits
      */
     public int getKeyHits(K key) {
-        return hitsMap.get(key) == null ? 0 : hitsMap.get(key);
+        return hits.count(key);
     }
 
     /**
@@ -33,7 +61,7 @@ public class KeyStatsListener<K, V> implements CacheListener<K, V> {
      * @return number of misses
      */
     public int getKeyMisses(K key) {
-        return missesMap.get(key) == null ? 0 : missesMap.get(key);
+        return misses.count(key);
     }
 
     /**
@@ -43,23 +71,47 @@ public class KeyStatsListener<K, V> implements CacheListener<K, V> {
      * @return number of updates
      */
     public int getKeyUpdates(K key) {
-        return updatesMap.get(key) == null ? 0 : updatesMap.get(key);
+        return updates.count(key);
     }
 
+    /**
+     * Get the keys with the largest values, largest first. Only the top keys are ordered, using a
+     * heap of @top keys.
+     *
+     * @param map the values of the keys
+     * @param top number of top keys; all the keys are returned if there are fewer
+     * @return the list of keys
+     */
     public List<K> sortByValue(Map<K, Integer> map, int top) {
-        List<Map.Entry<K, Integer>> list = new LinkedList<>(map.entrySet());
-        Collections.sort( list, new Comparator<Map.Entry<K, Integer>>() {
+        return topKeys(map, top);
+    }
+
+    private static <K> List<K> topKeys(Map<K, Integer> map, int top) {
+        int size = Math.min(top, map.size());
+        if (size <= 0) {
+            return new ArrayList<>();
+        }
+
+        Comparator<Map.Entry<K, Integer>> byValue = new Comparator<Map.Entry<K, Integer>>() {
             public int compare(Map.Entry<K, Integer> entry1, Map.Entry<K, Integer> entry2) {
-                return (entry2.getValue()).compareTo(entry1.getValue());
+                return (entry1.getValue()).compareTo(entry2.getValue());
             }
-        });
-
-        List<K> sortedKeys = new LinkedList<>();
+        };
+
+        /* The smallest of the top entries seen so far is at the head */
+        PriorityQueue<Map.Entry<K, Integer>> heap = new PriorityQueue<>(size, byValue);
+        for (Map.Entry<K, Integer> entry : map.entrySet()) {
+            if (heap.size() < size) {
+                heap.add(entry);
+            } else if (byValue.compare(entry, heap.peek()) > 0) {
+                heap.poll();
+                heap.add(entry);
+            }
+        }
 
-        Map.Entry<K, Integer> entry;
-        for (int i = 0; i < top; i++) {
-            entry = list.get(i);
-            sortedKeys.add(entry.getKey());
+        LinkedList<K> sortedKeys = new LinkedList<>();
+        while (!heap.isEmpty()) {
+            sortedKeys.addFirst(heap.poll().getKey());
         }
 
         return sortedKeys;
@@ -73,7 +125,7 @@ public class KeyStatsListener<K, V> implements CacheListener<K, V> {
      *
      */
     public List<K> getTopHitKeys(int top) {
-        return sortByValue(hitsMap, top);
+        return hits.top(top);
 
     }
 
@@ -84,7 +136,7 @@ public class KeyStatsListener<K, V> implements CacheListener<K, V> {
      * @return the list of keys
      */
     public List<K> getTopMissedKeys(int top) {
-        return sortByValue(missesMap, top);
+        return misses.top(top);
     }
 
     /**
@@ -94,26 +146,102 @@ public class KeyStatsListener<K, V> implements CacheListener<K, V> {
      * @return the list of keys
      */
     public List<K> getTopUpdatedKeys(int top) {
-        return sortByValue(updatesMap, top);
+        return updates.top(top);
     }
 
     @Override
     public void onPut(K key, V value) {
-        int noUpdates = getKeyUpdates(key);
-        noUpdates++;
-        updatesMap.put(key, noUpdates);
+        updates.increment(key);
+    }
+
+    /**
+     * Only the keys of the puts are counted.
+     */
+    @Override
+    public boolean usesValues() {
+        return false;
     }
 
     @Override
     public void onMiss(K key) {
-        int noMisses = getKeyMisses(key);
-        missesMap.put(key, noMisses + 1);
+        misses.increment(key);
     }
 
     @Override
     public void onHit(K key) {
-        int noHits = getKeyHits(key);
-        noHits++;
-        hitsMap.put(key, noHits);
+        hits.increment(key);
+    }
+
+    /**
+     * Counts the events of one kind per key.
+     */
+    private interface KeyCounter<K> {
+        void increment(K key);
+
+        int count(K key);
+
+        List<K> top(int top);
+    }
+
+    /**
+     * Keeps the exact count of every key.
+     */
+    private static final class ExactCounter<K> implements KeyCounter<K> {
+        private final Map<K, Integer> counts = new HashMap<>();
+
+        @Override
+        public void increment(K key) {
+            Integer count = counts.get(key);
+            counts.put(key, count == null ? 1 : count + 1);
+        }
+
+        @Override
+        public int count(K key) {
+            Integer count = counts.get(key);
+            return count == null ? 0 : count;
+        }
+
+        @Override
+        public List<K> top(int top) {
+            return topKeys(counts, top);
+        }
+    }
+
+    /**
+     * Estimates the counts with a count-min sketch and tracks the candidate top keys with a stream
+     * summary.
+     */
+    private static final class BoundedCounter<K> implements KeyCounter<K> {
+        private final CountMinSketch<K> sketch;
+        private final StreamSummary<K> summary;
+
+        BoundedCounter(int maximumTrackedKeys, int sketchWidth) {
+            sketch = new CountMinSketch<>(sketchWidth);
+            summary = new StreamSummary<>(maximumTrackedKeys);
+        }
+
+        @Override
+        public void increment(K key) {
+            sketch.increment(key);
+            summary.increment(key);
+        }
+
+        @Override
+        public int count(K key) {
+            return (int) Math.min(Integer.MAX_VALUE, sketch.estimate(key));
+        }
+
+        /**
+         * The tracked keys are ranked by their estimated counts, which are closer to the real
+         * counts than the ones of the summary for the keys tracked late.
+         */
+        @Override
+        public List<K> top(int top) {
+            Map<K, Integer> candidates = new HashMap<>();
+            for (K key : summary.top(summary.size())) {
+                candidates.put(key, count(key));
+            }
+            return topKeys(candidates, top);
+        }
     }
 }
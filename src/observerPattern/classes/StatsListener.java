@@ -1,19 +1,32 @@
 package observerPattern.classes;
 
+import dataStructures.classes.LatencyHistogram;
 import observerPattern.interfaces.CacheListener;
 
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
 
 /**
- * The StatsListener collects hit / miss / update stats for a cache.
+ * The StatsListener collects hit / miss / update stats for a cache, along with the loads, the
+ * evictions and the latency of the gets. The counters are striped, so the threads using the cache
+ * do not contend on them.
  *
  * @param <K>
  * @param <V>
  */
 public class StatsListener<K, V> implements CacheListener<K, V> {
 
-    private int noHits = 0;
-    private int noMisses = 0;
-    private int noUpdates = 0;
+    private final LongAdder noHits = new LongAdder();
+    private final LongAdder noMisses = new LongAdder();
+    private final LongAdder noUpdates = new LongAdder();
+    private final LongAdder noLoadSuccesses = new LongAdder();
+    private final LongAdder noLoadFailures = new LongAdder();
+    private final LongAdder noEvictions = new LongAdder();
+    private final LatencyHistogram getLatencies = new LatencyHistogram();
+    private final LatencyHistogram hitLatencies = new LatencyHistogram();
+    private final LatencyHistogram loadLatencies = new LatencyHistogram();
 
 
     /**
@@ -21,8 +34,8 @@ public class StatsListener<K, V> implements CacheListener<K, V> {
      *
      * @return number of hits
      */
-    public int getHits() {
-        return noHits;
+    public long getHits() {
+        return noHits.sum();
 
     }
 
@@ -31,8 +44,8 @@ public class StatsListener<K, V> implements CacheListener<K, V> {
      *
      * @return number of misses
      */
-    public int getMisses() {
-        return noMisses;
+    public long getMisses() {
+        return noMisses.sum();
     }
 
     /**
@@ -40,22 +53,119 @@ public class StatsListener<K, V> implements CacheListener<K, V> {
      *
      * @return number of updates
      */
-    public int getUpdates() {
-        return noUpdates;
+    public long getUpdates() {
+        return noUpdates.sum();
+    }
+
+    /**
+     * Get the number of values loaded for missing keys.
+     *
+     * @return number of successful loads
+     */
+    public long getLoadSuccesses() {
+        return noLoadSuccesses.sum();
+    }
+
+    /**
+     * Get the number of values that could not be loaded.
+     *
+     * @return number of failed loads
+     */
+    public long getLoadFailures() {
+        return noLoadFailures.sum();
+    }
+
+    /**
+     * Get the number of entries evicted or expired.
+     *
+     * @return number of evictions
+     */
+    public long getEvictions() {
+        return noEvictions.sum();
+    }
+
+    /**
+     * Get the time spent loading values, successfully or not.
+     *
+     * @return the total load time, in nanoseconds
+     */
+    public long getTotalLoadNanos() {
+        return loadLatencies.getTotalNanos();
+    }
+
+    /**
+     * Copy all the stats at once, for reporting. Each counter is read once, so the values of the
+     * snapshot do not change afterwards; events reported while it is taken may be counted by some
+     * of its counters only.
+     *
+     * @return the snapshot
+     */
+    public StatsSnapshot snapshot() {
+        return new StatsSnapshot(getHits(), getMisses(), getUpdates(), getLoadSuccesses(),
+                getLoadFailures(), getEvictions(), getLatencies.snapshot(),
+                hitLatencies.snapshot(), loadLatencies.snapshot());
     }
 
     @Override
     public void onMiss(K key) {
-        noMisses++;
+        noMisses.increment();
     }
 
     @Override
     public void onHit(K key) {
-        noHits++;
+        noHits.increment();
     }
 
     @Override
     public void onPut(K key, V value) {
-        noUpdates++;
+        noUpdates.increment();
+    }
+
+    /**
+     * Only the number of puts is counted.
+     */
+    @Override
+    public boolean usesValues() {
+        return false;
+    }
+
+    @Override
+    public void onMisses(Collection<K> keys) {
+        noMisses.add(keys.size());
+    }
+
+    @Override
+    public void onHits(Collection<K> keys) {
+        noHits.add(keys.size());
+    }
+
+    @Override
+    public void onPuts(Map<K, V> entries) {
+        noUpdates.add(entries.size());
+    }
+
+    @Override
+    public void onEviction(K key) {
+        noEvictions.increment();
+    }
+
+    @Override
+    public void onLoadSuccess(K key, long loadNanos) {
+        noLoadSuccesses.increment();
+        loadLatencies.record(loadNanos);
+    }
+
+    @Override
+    public void onLoadFailure(K key, long loadNanos) {
+        noLoadFailures.increment();
+        loadLatencies.record(loadNanos);
+    }
+
+    @Override
+    public void onGetLatency(K key, boolean hit, long nanos) {
+        getLatencies.record(nanos);
+        if (hit) {
+            hitLatencies.record(nanos);
+        }
     }
 }
@@ -0,0 +1,104 @@
+package observerPattern.classes;
+
+import dataStructures.classes.LatencyHistogram;
+
+/**
+ * The stats collected by a StatsListener at a point in time. A snapshot never changes, so it can
+ * be read field by field while the cache keeps running.
+ */
+public final class StatsSnapshot {
+
+    private final long hits;
+    private final long misses;
+    private final long updates;
+    private final long loadSuccesses;
+    private final long loadFailures;
+    private final long evictions;
+    private final LatencyHistogram.Snapshot getLatencies;
+    private final LatencyHistogram.Snapshot hitLatencies;
+    private final LatencyHistogram.Snapshot loadLatencies;
+
+    public StatsSnapshot(long hits, long misses, long updates, long loadSuccesses,
+            long loadFailures, long evictions, LatencyHistogram.Snapshot getLatencies,
+            LatencyHistogram.Snapshot hitLatencies, LatencyHistogram.Snapshot loadLatencies) {
+        this.hits = hits;
+        this.misses = misses;
+        this.updates = updates;
+        this.loadSuccesses = loadSuccesses;
+        this.loadFailures = loadFailures;
+        this.evictions = evictions;
+        this.getLatencies = getLatencies;
+        this.hitLatencies = hitLatencies;
+        this.loadLatencies = loadLatencies;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public long getUpdates() {
+        return updates;
+    }
+
+    public long getLoadSuccesses() {
+        return loadSuccesses;
+    }
+
+    public long getLoadFailures() {
+        return loadFailures;
+    }
+
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Get the fraction of the lookups that were hits.
+     *
+     * @return the hit ratio, or 0 if there were no lookups
+     */
+    public double getHitRatio() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    /**
+     * Get the time spent loading values, successfully or not.
+     *
+     * @return the total load time, in nanoseconds
+     */
+    public long getTotalLoadNanos() {
+        return loadLatencies.getTotalNanos();
+    }
+
+    /**
+     * Get the latencies of the gets that may load their value, hits and misses alike.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram.Snapshot getGetLatencies() {
+        return getLatencies;
+    }
+
+    /**
+     * Get the latencies of the gets that found their value in the cache.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram.Snapshot getHitLatencies() {
+        return hitLatencies;
+    }
+
+    /**
+     * Get the durations of the loads.
+     *
+     * @return the histogram
+     */
+    public LatencyHistogram.Snapshot getLoadLatencies() {
+        return loadLatencies;
+    }
+}
@@ -1,5 +1,8 @@
 package observerPattern.interfaces;
 
+import java.util.Collection;
+import java.util.Map;
+
 /**
  * The CacheListener interface defines functionality for processing events reported by a cache.
  *
@@ -12,4 +15,90 @@ public interface CacheListener<K, V> {
     void onMiss(K key);
 
     void onPut(K key, V value);
+
+    /**
+     * Called once for the hits of a batch operation. By default, each hit is reported separately.
+     *
+     * @param keys the keys that were found
+     */
+    default void onHits(Collection<K> keys) {
+        for (K key : keys) {
+            onHit(key);
+        }
+    }
+
+    /**
+     * Called once for the misses of a batch operation. By default, each miss is reported
+     * separately.
+     *
+     * @param keys the keys that were not found
+     */
+    default void onMisses(Collection<K> keys) {
+        for (K key : keys) {
+            onMiss(key);
+        }
+    }
+
+    /**
+     * Called once for the pairs inserted by a batch operation. By default, each put is reported
+     * separately.
+     *
+     * @param entries the inserted pairs
+     */
+    default void onPuts(Map<K, V> entries) {
+        for (Map.Entry<K, V> entry : entries.entrySet()) {
+            onPut(entry.getKey(), entry.getValue());
+        }
+    }
+
+    /**
+     * Tells whether the listener reads the values passed to onPut and onPuts. A cache whose values
+     * are costly to produce, like the strings decoded by a FileCache, passes null values to the
+     * listeners that do not read them. True by default.
+     *
+     * @return true if the values are read, false otherwise
+     */
+    default boolean usesValues() {
+        return true;
+    }
+
+    /**
+     * Called when an entry is evicted or expires. Does nothing by default.
+     *
+     * @param key the key of the entry
+     */
+    default void onEviction(K key) {
+
+    }
+
+    /**
+     * Called when the value of a missing key was loaded. Does nothing by default.
+     *
+     * @param key the key
+     * @param loadNanos the time spent loading the value, in nanoseconds
+     */
+    default void onLoadSuccess(K key, long loadNanos) {
+
+    }
+
+    /**
+     * Called when the value of a missing key could not be loaded. Does nothing by default.
+     *
+     * @param key the key
+     * @param loadNanos the time spent trying to load the value, in nanoseconds
+     */
+    default void onLoadFailure(K key, long loadNanos) {
+
+    }
+
+    /**
+     * Called when a get that may load its value has returned. Does nothing by default.
+     *
+     * @param key the key
+     * @param hit true if the value was in the cache, false if it had to be loaded
+     * @param nanos the duration of the get, in nanoseconds
+     */
+    default void onGetLatency(K key, boolean hit, long nanos) {
+
+    }
 }
@@ -0,0 +1,31 @@
+package tests;
+
+import java.util.Objects;
+
+/**
+ * The checks used by the tests. A failed check throws an AssertionError, whether or not the
+ * assertions of the JVM are enabled.
+ */
+public final class Assertions {
+
+    private Assertions() {
+
+    }
+
+    public static void assertTrue(boolean condition, String message) {
+        if (!condition) {
+            throw new AssertionError(message);
+        }
+    }
+
+    public static void assertEquals(Object expected, Object actual, String message) {
+        if (!Objects.equals(expected, actual)) {
+            throw new AssertionError(message + ": expected <" + expected + "> but was <"
+                    + actual + ">");
+        }
+    }
+
+    public static void fail(String message) {
+        throw new AssertionError(message);
+    }
+}
@@ -0,0 +1,226 @@
+package tests;
+
+import cachingSystem.FileCache;
+import cachingSystem.classes.LoadingCache;
+import cachingSystem.classes.ObservableCache;
+import cachingSystem.classes.SynchronizedCache;
+import cachingSystem.classes.TimeAwareCache;
+import cachingSystem.interfaces.CacheLoader;
+import cachingSystem.interfaces.RemovalListener;
+import dataStructures.classes.Pair;
+import observerPattern.interfaces.CacheListener;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static tests.Assertions.assertEquals;
+import static tests.Assertions.assertTrue;
+
+/**
+ * Runs gets, puts and removes from several threads on every strategy, and checks that no read
+ * returns the value of another key, that the removed values match their keys, and that once the
+ * threads are done the cache is within its capacity and its entries match its size and weight.
+ */
+public final class ConcurrencyTest {
+
+    private static final int THREADS = 8;
+    private static final int OPERATIONS_PER_THREAD = 20_000;
+    private static final int CAPACITY = 64;
+    private static final int KEY_SPACE = CAPACITY * 4;
+
+    private ConcurrencyTest() {
+
+    }
+
+    public static void register(TestRunner runner) {
+        for (FileCache.Strategy strategy : FileCache.Strategy.values()) {
+            runner.test("concurrent capacity " + strategy, new TestRunner.TestCase() {
+                @Override
+                public void run() throws Exception {
+                    ObservableCache<Integer, String> cache =
+                            Fixtures.withCapacity(strategy, CAPACITY);
+                    hammer(cache);
+                    checkContents(cache);
+                    assertTrue(cache.size() <= CAPACITY, "size " + cache.size()
+                            + " exceeds the capacity");
+                }
+            });
+
+            runner.test("concurrent weight " + strategy, new TestRunner.TestCase() {
+                @Override
+                public void run() throws Exception {
+                    long maximumWeight = CAPACITY * 10L;
+                    ObservableCache<Integer, String> cache =
+                            Fixtures.withMaximumWeight(strategy, maximumWeight);
+                    hammer(cache);
+                    checkContents(cache);
+                    assertTrue(cache.getTotalWeight() <= maximumWeight, "weight "
+                            + cache.getTotalWeight() + " exceeds the maximum weight");
+                }
+            });
+        }
+
+        runner.test("concurrent capacity TimeAwareCache", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                TimeAwareCache<Integer, String> timeAwareCache = new TimeAwareCache<>();
+                timeAwareCache.setExpirePolicy(60_000);
+                ObservableCache<Integer, String> cache =
+                        Fixtures.boundBySize(new SynchronizedCache<>(timeAwareCache), CAPACITY);
+                hammer(cache);
+                checkContents(cache);
+                assertTrue(cache.size() <= CAPACITY, "size " + cache.size()
+                        + " exceeds the capacity");
+            }
+        });
+
+        runner.test("LoadingCache loads a key once", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                checkSingleLoad();
+            }
+        });
+    }
+
+    private static void hammer(ObservableCache<Integer, String> cache) throws Exception {
+        Queue<String> errors = new ConcurrentLinkedQueue<>();
+        cache.setRemovalListener(new RemovalListener<Integer, String>() {
+            @Override
+            public void onRemoval(Integer key, String value, RemovalCause cause) {
+                if (!Fixtures.valueOf(key).equals(value)) {
+                    errors.add("removed " + key + "=" + value + " (" + cause + ")");
+                }
+            }
+        });
+
+        CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            long seed = t;
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Random random = new Random(seed);
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+
+                    for (int i = 0; i < OPERATIONS_PER_THREAD; i++) {
+                        int key = random.nextInt(KEY_SPACE);
+                        int operation = random.nextInt(10);
+                        try {
+                            if (operation < 6) {
+                                String value = cache.get(key);
+                                if (value != null && !value.equals(Fixtures.valueOf(key))) {
+                                    errors.add("get " + key + " returned " + value);
+                                }
+                            } else if (operation < 9) {
+                                cache.put(key, Fixtures.valueOf(key));
+                            } else {
+                                String value = cache.remove(key);
+                                if (value != null && !value.equals(Fixtures.valueOf(key))) {
+                                    errors.add("remove " + key + " returned " + value);
+                                }
+                            }
+                        } catch (RuntimeException e) {
+                            errors.add(e.toString());
+                        }
+                    }
+                }
+            });
+            threads[t].start();
+        }
+
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(errors.isEmpty(), errors.size() + " errors, first: " + errors.peek());
+
+        /* The writers may leave the cache over its capacity by a few entries until the next sweep */
+        cache.clearStaleEntries();
+    }
+
+    private static void checkSingleLoad() throws Exception {
+        ObservableCache<Integer, String> cache =
+                Fixtures.withCapacity(FileCache.Strategy.CONCURRENT_LRU, CAPACITY);
+        AtomicInteger loads = new AtomicInteger();
+        LoadingCache<Integer, String> loadingCache = new LoadingCache<>(cache,
+                new CacheLoader<Integer, String>() {
+                    @Override
+                    public String load(Integer key) {
+                        loads.incrementAndGet();
+                        return Fixtures.valueOf(key);
+                    }
+                });
+
+        CountDownLatch missed = new CountDownLatch(1);
+        CountDownLatch loaded = new CountDownLatch(1);
+        AtomicReference<String> lateValue = new AtomicReference<>();
+        Thread late = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                lateValue.set(loadingCache.get(1));
+            }
+        });
+        cache.setCacheListener(new CacheListener<Integer, String>() {
+            @Override
+            public void onHit(Integer key) {
+
+            }
+
+            @Override
+            public void onMiss(Integer key) {
+                if (Thread.currentThread() == late && missed.getCount() > 0) {
+                    missed.countDown();
+                    try {
+                        loaded.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }
+
+            @Override
+            public void onPut(Integer key, String value) {
+
+            }
+        });
+
+        late.start();
+        assertTrue(missed.await(5, TimeUnit.SECONDS), "the late caller did not miss");
+        assertEquals(Fixtures.valueOf(1), loadingCache.get(1), "value loaded");
+        loaded.countDown();
+        late.join();
+
+        assertEquals(Fixtures.valueOf(1), lateValue.get(), "value of the late caller");
+        assertEquals(1, loads.get(), "loads");
+    }
+
+    private static void checkContents(ObservableCache<Integer, String> cache) {
+        List<Pair<Integer, String>> entries = cache.getEntries();
+        assertEquals(cache.size(), entries.size(), "entries listed");
+
+        Set<Integer> keys = new HashSet<>();
+        long weight = 0;
+        for (Pair<Integer, String> entry : entries) {
+            assertTrue(keys.add(entry.getKey()), "key " + entry.getKey() + " listed twice");
+            assertEquals(Fixtures.valueOf(entry.getKey()), entry.getValue(), "stored value");
+            assertEquals(entry.getValue(), cache.get(entry.getKey()), "value read back");
+            weight += entry.getValue().length();
+        }
+        if (cache.getWeigher() != null) {
+            assertEquals(weight, cache.getTotalWeight(), "total weight");
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package tests;
+
+import dataStructures.classes.LinkedHashTable;
+import dataStructures.classes.LongLinkedHashTable;
+import dataStructures.classes.SlabAllocator;
+import dataStructures.classes.TimedNode;
+import dataStructures.classes.TimerWheel;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static tests.Assertions.assertEquals;
+import static tests.Assertions.assertTrue;
+
+/**
+ * Checks the data structures the caches are built on against simple models: the linked hash
+ * tables against an access-ordered LinkedHashMap, the timer wheel against the deadlines of its
+ * nodes, and the slab allocator against the bytes written in each live block.
+ */
+public final class DataStructuresTest {
+
+    private static final int OPERATIONS = 200_000;
+
+    private DataStructuresTest() {
+
+    }
+
+    public static void register(TestRunner runner) {
+        runner.test("LinkedHashTable matches LinkedHashMap", new TestRunner.TestCase() {
+            @Override
+            public void run() {
+                checkLinkedHashTable();
+            }
+        });
+
+        runner.test("LongLinkedHashTable matches LinkedHashMap", new TestRunner.TestCase() {
+            @Override
+            public void run() {
+                checkLongLinkedHashTable();
+            }
+        });
+
+        runner.test("TimerWheel expires each node once, never early", new TestRunner.TestCase() {
+            @Override
+            public void run() {
+                checkTimerWheel();
+            }
+        });
+
+        runner.test("SlabAllocator blocks never overlap", new TestRunner.TestCase() {
+            @Override
+            public void run() {
+                checkSlabAllocator();
+            }
+        });
+    }
+
+    private static void checkLinkedHashTable() {
+        LinkedHashTable<Integer, Integer> table = new LinkedHashTable<>(4);
+        LinkedHashMap<Integer, Integer> model = new LinkedHashMap<>(16, 0.75f, true);
+        Random random = new Random(1);
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            Integer key = random.nextInt(512);
+            int entry = table.find(key);
+            assertEquals(model.containsKey(key), entry >= 0, "presence of " + key);
+
+            switch (random.nextInt(3)) {
+                case 0:
+                    if (entry < 0) {
+                        table.insert(key, i);
+                    } else {
+                        table.setValueAt(entry, i);
+                        table.moveToFront(entry);
+                    }
+                    model.put(key, i);
+                    break;
+                case 1:
+                    if (entry >= 0) {
+                        table.moveToFront(entry);
+                        assertEquals(model.get(key), table.valueAt(entry), "value of " + key);
+                    }
+                    break;
+                default:
+                    assertEquals(model.remove(key) != null, table.remove(key) >= 0,
+                            "removal of " + key);
+                    break;
+            }
+        }
+
+        assertEquals(model.size(), table.size(), "size");
+        Iterator<Map.Entry<Integer, Integer>> expected = model.entrySet().iterator();
+        for (int entry = table.eldest(); entry >= 0; entry = table.newer(entry)) {
+            Map.Entry<Integer, Integer> next = expected.next();
+            assertEquals(next.getKey(), table.keyAt(entry), "key in access order");
+            assertEquals(next.getValue(), table.valueAt(entry), "value in access order");
+        }
+        assertTrue(!expected.hasNext(), "entries missing from the table");
+    }
+
+    private static void checkLongLinkedHashTable() {
+        LongLinkedHashTable<Integer> table = new LongLinkedHashTable<>(4);
+        LinkedHashMap<Long, Integer> model = new LinkedHashMap<>(16, 0.75f, true);
+        Random random = new Random(2);
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            long key = random.nextInt(512) * 0x1_0000_0001L;
+            int entry = table.find(key);
+            assertEquals(model.containsKey(key), entry >= 0, "presence of " + key);
+
+            switch (random.nextInt(3)) {
+                case 0:
+                    if (entry < 0) {
+                        table.insert(key, i);
+                    } else {
+                        table.setValueAt(entry, i);
+                        table.moveToFront(entry);
+                    }
+                    model.put(key, i);
+                    break;
+                case 1:
+                    if (entry >= 0) {
+                        table.moveToFront(entry);
+                        assertEquals(model.get(key), table.valueAt(entry), "value of " + key);
+                    }
+                    break;
+                default:
+                    assertEquals(model.remove(key) != null, table.remove(key) >= 0,
+                            "removal of " + key);
+                    break;
+            }
+
+            if (!model.isEmpty()) {
+                long eldest = model.keySet().iterator().next();
+                assertEquals(eldest, table.keyAt(table.eldest()), "eldest key");
+            }
+        }
+        assertEquals(model.size(), table.size(), "size");
+
+        List<Long> order = new ArrayList<>();
+        for (int entry = table.eldest(); entry >= 0; entry = table.newer(entry)) {
+            order.add(table.keyAt(entry));
+        }
+        assertEquals(new ArrayList<>(model.keySet()), order, "access order");
+    }
+
+    private static void checkTimerWheel() {
+        long start = 1_000_000_000L;
+        TimerWheel<Integer, Integer> wheel = new TimerWheel<>(start);
+        List<TimedNode<Integer, Integer>> nodes = new ArrayList<>();
+        Random random = new Random(3);
+
+        /* Deadlines from a few milliseconds to a few days, so that every level is used */
+        for (int i = 0; i < 10_000; i++) {
+            TimedNode<Integer, Integer> node = new TimedNode<>(i, i);
+            long delay = (long) Math.pow(2, random.nextDouble() * 38);
+            node.setDeadline(start + delay);
+            wheel.schedule(node);
+            nodes.add(node);
+        }
+
+        /* Some nodes are removed or moved before they expire */
+        Set<Integer> descheduled = new HashSet<>();
+        for (int i = 0; i < 1_000; i++) {
+            TimedNode<Integer, Integer> node = nodes.get(random.nextInt(nodes.size()));
+            if (random.nextBoolean()) {
+                wheel.deschedule(node);
+                descheduled.add(node.getKey());
+            } else if (!descheduled.contains(node.getKey())) {
+                node.setDeadline(start + (long) Math.pow(2, random.nextDouble() * 38));
+                wheel.reschedule(node);
+            }
+        }
+
+        Set<Integer> expired = new HashSet<>();
+        long[] now = {start};
+        Consumer<TimedNode<Integer, Integer>> onExpired = new Consumer<TimedNode<Integer, Integer>>() {
+            @Override
+            public void accept(TimedNode<Integer, Integer> node) {
+                assertTrue(node.getDeadline() <= now[0], "node " + node.getKey()
+                        + " expired " + (node.getDeadline() - now[0]) + " ms early");
+                assertTrue(!descheduled.contains(node.getKey()),
+                        "descheduled node " + node.getKey() + " expired");
+                assertTrue(expired.add(node.getKey()), "node " + node.getKey()
+                        + " expired twice");
+            }
+        };
+
+        long end = start + (1L << 39);
+        while (now[0] < end) {
+            now[0] += 1 + (long) Math.pow(2, random.nextDouble() * 30);
+            wheel.advance(now[0], onExpired);
+        }
+        assertEquals(nodes.size() - descheduled.size(), expired.size(), "expired nodes");
+    }
+
+    private static void checkSlabAllocator() {
+        SlabAllocator allocator = new SlabAllocator(1 << 16);
+        List<SlabAllocator.Block> blocks = new ArrayList<>();
+        List<Byte> patterns = new ArrayList<>();
+        Random random = new Random(4);
+
+        try {
+            for (int i = 0; i < 20_000; i++) {
+                if (blocks.isEmpty() || random.nextInt(3) > 0) {
+                    /* Some blocks are larger than a slab and get their own buffer */
+                    int length = 1 + random.nextInt(random.nextInt(10) == 0 ? 1 << 17 : 2048);
+                    SlabAllocator.Block block = allocator.allocate(length);
+                    byte pattern = (byte) i;
+                    ByteBuffer memory = block.getWritableBuffer();
+                    assertEquals(length, memory.remaining(), "block length");
+                    while (memory.hasRemaining()) {
+                        memory.put(pattern);
+                    }
+                    blocks.add(block);
+                    patterns.add(pattern);
+                } else {
+                    int index = random.nextInt(blocks.size());
+                    checkPattern(blocks.get(index), patterns.get(index));
+                    blocks.remove(index).free();
+                    patterns.remove(index);
+                }
+            }
+
+            for (int i = 0; i < blocks.size(); i++) {
+                checkPattern(blocks.get(i), patterns.get(i));
+            }
+        } finally {
+            allocator.close();
+        }
+    }
+
+    private static void checkPattern(SlabAllocator.Block block, byte pattern) {
+        ByteBuffer memory = block.getBuffer();
+        while (memory.hasRemaining()) {
+            assertEquals(pattern, memory.get(), "byte of a live block");
+        }
+    }
+}
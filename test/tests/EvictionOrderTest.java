@@ -0,0 +1,254 @@
+package tests;
+
+import cachingSystem.FileCache;
+import cachingSystem.classes.ConcurrentLRUCache;
+import cachingSystem.classes.IntKeyLRUCache;
+import cachingSystem.classes.LongKeyLRUCache;
+import cachingSystem.classes.ObservableCache;
+import cachingSystem.classes.TimeAwareCache;
+import cachingSystem.interfaces.RemovalListener;
+import dataStructures.classes.Pair;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static tests.Assertions.assertEquals;
+import static tests.Assertions.assertTrue;
+
+/**
+ * Checks which entry each strategy evicts. The recency-based strategies are checked on a small,
+ * exact sequence; the frequency-based ones on whether a one-time scan flushes the popular keys.
+ */
+public final class EvictionOrderTest {
+
+    private static final int SCAN_CAPACITY = 100;
+    private static final int HOT_KEYS = 10;
+
+    private EvictionOrderTest() {
+
+    }
+
+    public static void register(TestRunner runner) {
+        runner.test("eviction order FIFO", new TestRunner.TestCase() {
+            @Override
+            public void run() {
+                checkOrder(Fixtures.withCapacity(FileCache.Strategy.FIFO, 3), 2, 3, 4);
+            }
+        });
+
+        for (FileCache.Strategy strategy : Arrays.asList(FileCache.Strategy.LRU,
+                FileCache.Strategy.ARRAY_LRU, FileCache.Strategy.BUFFERED_LRU)) {
+            runner.test("eviction order " + strategy, new TestRunner.TestCase() {
+                @Override
+                public void run() {
+                    checkOrder(Fixtures.withCapacity(strategy, 3), 3, 1, 4);
+                }
+            });
+        }
+
+        runner.test("eviction order CONCURRENT_LRU single segment", new TestRunner.TestCase() {
+            @Override
+            public void run() {
+                checkOrder(Fixtures.boundBySize(new ConcurrentLRUCache<Integer, String>(1), 3),
+                        3, 1, 4);
+            }
+        });
+
+        runner.test("eviction order TimeAwareCache", new TestRunner.TestCase() {
+            @Override
+            public void run() {
+                checkOrder(Fixtures.boundBySize(new TimeAwareCache<Integer, String>(), 3),
+                        3, 1, 4);
+            }
+        });
+
+        runner.test("CONCURRENT_LRU keeps the entry just put", new TestRunner.TestCase() {
+            @Override
+            public void run() {
+                ObservableCache<Integer, String> cache =
+                        Fixtures.boundBySize(new ConcurrentLRUCache<Integer, String>(), 4);
+                for (int key = 0; key < 100; key++) {
+                    cache.put(key, Fixtures.valueOf(key));
+                    assertEquals(Fixtures.valueOf(key), cache.get(key), "value just put");
+                }
+            }
+        });
+
+        runner.test("eviction order LongKeyLRUCache", new TestRunner.TestCase() {
+            @Override
+            public void run() {
+                LongKeyLRUCache<Integer> cache = new LongKeyLRUCache<>();
+                Fixtures.boundBySize(cache, 3);
+                List<Long> evicted = recordEvictions(cache);
+                cache.putLong(1L, 1);
+                cache.put(2L, 2);
+                cache.putLong(3L, 3);
+                cache.getLong(1L);
+                cache.put(4L, 4);
+
+                assertEquals(Arrays.asList(2L), evicted, "evicted keys");
+                assertEquals(Arrays.asList(3L, 1L, 4L), keysOf(cache.getEntries()), "entries");
+                assertEquals(Integer.valueOf(1), cache.get(1L), "value of a boxed key");
+                assertEquals(Integer.valueOf(4), cache.removeLong(4L), "removed value");
+            }
+        });
+
+        runner.test("eviction order IntKeyLRUCache", new TestRunner.TestCase() {
+            @Override
+            public void run() {
+                IntKeyLRUCache<Integer> cache = new IntKeyLRUCache<>();
+                Fixtures.boundBySize(cache, 3);
+                List<Integer> evicted = recordEvictions(cache);
+                cache.putInt(1, 1);
+                cache.put(2, 2);
+                cache.putInt(3, 3);
+                cache.getInt(1);
+                cache.put(4, 4);
+
+                assertEquals(Arrays.asList(2), evicted, "evicted keys");
+                assertEquals(Arrays.asList(3, 1, 4), keysOf(cache.getEntries()), "entries");
+                assertEquals(Integer.valueOf(1), cache.get(1), "value of a boxed key");
+                assertEquals(Integer.valueOf(4), cache.removeInt(4), "removed value");
+            }
+        });
+
+        for (FileCache.Strategy strategy : Arrays.asList(FileCache.Strategy.TINY_LFU,
+                FileCache.Strategy.ARC, FileCache.Strategy.CLOCK_PRO)) {
+            runner.test("scan resistance " + strategy, new TestRunner.TestCase() {
+                @Override
+                public void run() {
+                    checkScanResistance(Fixtures.withCapacity(strategy, SCAN_CAPACITY));
+                }
+            });
+        }
+
+        for (FileCache.Strategy strategy : Arrays.asList(FileCache.Strategy.ARC,
+                FileCache.Strategy.CLOCK_PRO)) {
+            runner.test("removed eldest entry is forgotten " + strategy,
+                    new TestRunner.TestCase() {
+                        @Override
+                        public void run() {
+                            checkRemovedEldestForgotten(Fixtures.withCapacity(strategy, 3));
+                        }
+                    });
+        }
+
+        runner.test("scan flushes LRU", new TestRunner.TestCase() {
+            @Override
+            public void run() {
+                ObservableCache<Integer, String> cache =
+                        Fixtures.withCapacity(FileCache.Strategy.LRU, SCAN_CAPACITY);
+                fillHotKeysAndScan(cache);
+                assertEquals(0, countHotKeys(cache), "hot keys left after the scan");
+            }
+        });
+    }
+
+    /**
+     * Put 1, 2 and 3 in a cache of capacity 3, read 1, put 4, and check the remaining entries,
+     * eldest first, and that the only eviction was reported to the removal listener.
+     */
+    private static void checkOrder(ObservableCache<Integer, String> cache, Integer... expected) {
+        List<Integer> evicted = recordEvictions(cache);
+        for (int key = 1; key <= 3; key++) {
+            cache.put(key, Fixtures.valueOf(key));
+        }
+        assertEquals(Fixtures.valueOf(1), cache.get(1), "value of 1");
+        cache.put(4, Fixtures.valueOf(4));
+
+        List<Integer> remaining = keysOf(cache.getEntries());
+        assertEquals(Arrays.asList(expected), remaining, "entries");
+        assertEquals(1, evicted.size(), "evictions");
+        assertTrue(!remaining.contains(evicted.get(0)), "evicted key still listed");
+        assertEquals(null, cache.get(evicted.get(0)), "value of the evicted key");
+    }
+
+    /**
+     * Look at the eldest entry of a full cache of capacity 3 and remove it, as a caller would, then
+     * put it back: it must come back as a new key, and not as one remembered from an eviction, so
+     * that it is evicted again by the next three keys.
+     */
+    private static void checkRemovedEldestForgotten(ObservableCache<Integer, String> cache) {
+        for (int key = 1; key <= 3; key++) {
+            cache.put(key, Fixtures.valueOf(key));
+        }
+        Integer eldest = cache.getEldestEntry().getKey();
+        assertEquals(Fixtures.valueOf(eldest), cache.remove(eldest), "removed value");
+
+        cache.put(eldest, Fixtures.valueOf(eldest));
+        for (int key = 4; key <= 6; key++) {
+            cache.put(key, Fixtures.valueOf(key));
+        }
+        assertEquals(Arrays.asList(4, 5, 6), sortedKeysOf(cache.getEntries()), "entries");
+    }
+
+    private static void checkScanResistance(ObservableCache<Integer, String> cache) {
+        fillHotKeysAndScan(cache);
+        assertEquals(HOT_KEYS, countHotKeys(cache), "hot keys left after the scan");
+        assertTrue(cache.size() <= SCAN_CAPACITY, "size " + cache.size());
+    }
+
+    /**
+     * Fill the cache, read a few keys many times, then put ten times as many new keys once each.
+     */
+    private static void fillHotKeysAndScan(ObservableCache<Integer, String> cache) {
+        for (int key = 0; key < SCAN_CAPACITY; key++) {
+            cache.put(key, Fixtures.valueOf(key));
+        }
+        for (int round = 0; round < 20; round++) {
+            for (int key = 0; key < HOT_KEYS; key++) {
+                if (cache.get(key) == null) {
+                    cache.put(key, Fixtures.valueOf(key));
+                }
+            }
+        }
+        for (int key = SCAN_CAPACITY; key < SCAN_CAPACITY * 11; key++) {
+            cache.put(key, Fixtures.valueOf(key));
+            if (key % (SCAN_CAPACITY * 2) == 0 && key < SCAN_CAPACITY * 9) {
+                /* The popular keys are still read during the scan, too rarely for a LRU */
+                for (int hot = 0; hot < HOT_KEYS; hot++) {
+                    cache.get(hot);
+                }
+            }
+        }
+    }
+
+    private static int countHotKeys(ObservableCache<Integer, String> cache) {
+        int count = 0;
+        for (Pair<Integer, String> entry : cache.getEntries()) {
+            if (entry.getKey() < HOT_KEYS) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static <K, V> List<K> recordEvictions(ObservableCache<K, V> cache) {
+        List<K> evicted = new ArrayList<>();
+        cache.setRemovalListener(new RemovalListener<K, V>() {
+            @Override
+            public void onRemoval(K key, V value, RemovalCause cause) {
+                if (cause == RemovalCause.EVICTED) {
+                    evicted.add(key);
+                }
+            }
+        });
+        return evicted;
+    }
+
+    private static List<Integer> sortedKeysOf(List<Pair<Integer, String>> entries) {
+        List<Integer> keys = keysOf(entries);
+        Collections.sort(keys);
+        return keys;
+    }
+
+    private static <K, V> List<K> keysOf(List<Pair<K, V>> entries) {
+        List<K> keys = new ArrayList<>();
+        for (Pair<K, V> entry : entries) {
+            keys.add(entry.getKey());
+        }
+        return keys;
+    }
+}
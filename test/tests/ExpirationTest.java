@@ -0,0 +1,241 @@
+package tests;
+
+import cachingSystem.classes.SynchronizedCache;
+import cachingSystem.classes.TimeAwareCache;
+import cachingSystem.interfaces.CacheLoader;
+import cachingSystem.interfaces.Expiry;
+import cachingSystem.interfaces.RemovalListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static tests.Assertions.assertEquals;
+import static tests.Assertions.assertTrue;
+
+/**
+ * Checks the expiration of the TimeAwareCache: a single expiration time, the lifetimes computed by
+ * an Expiry, and the reloads of the refresh policy.
+ */
+public final class ExpirationTest {
+
+    /* The expired entries are only removed once the first level of the timer wheel moved on */
+    private static final long WHEEL_TICK_MILLIS = 1100;
+
+    private ExpirationTest() {
+
+    }
+
+    public static void register(TestRunner runner) {
+        runner.test("expire after write", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                TimeAwareCache<String, String> cache = new TimeAwareCache<>();
+                cache.setCacheListener(Fixtures.<String, String>silentListener());
+                List<String> expired = recordExpirations(cache);
+                cache.setExpirePolicy(100);
+
+                cache.put("a", "1");
+                assertEquals("1", cache.get("a"), "value before the deadline");
+                Thread.sleep(250);
+                assertEquals(null, cache.get("a"), "value after the deadline");
+
+                Thread.sleep(WHEEL_TICK_MILLIS);
+                cache.cleanUp();
+                assertEquals(0, cache.size(), "size after the clean up");
+                assertEquals(1, expired.size(), "expired entries");
+            }
+        });
+
+        runner.test("per-entry expiry", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                TimeAwareCache<String, String> cache = new TimeAwareCache<>();
+                cache.setCacheListener(Fixtures.<String, String>silentListener());
+                cache.setExpiry(new Expiry<String, String>() {
+                    @Override
+                    public long expireAfterCreate(String key, String value, long currentTime) {
+                        return key.startsWith("short") ? 100 : Long.MAX_VALUE;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, String value, long currentTime,
+                                                long currentDuration) {
+                        return key.startsWith("sliding") ? 300 : currentDuration;
+                    }
+                });
+
+                cache.put("short", "s");
+                cache.put("sliding", "r");
+                cache.put("forever", "f");
+                for (int i = 0; i < 5; i++) {
+                    Thread.sleep(100);
+                    assertEquals("r", cache.get("sliding"), "value kept alive by its reads");
+                }
+
+                assertEquals(null, cache.get("short"), "value of the short-lived key");
+
+                Thread.sleep(500);
+                assertEquals(null, cache.get("sliding"), "value no longer read");
+                assertEquals("f", cache.get("forever"), "value that never expires");
+
+                Thread.sleep(WHEEL_TICK_MILLIS);
+                cache.cleanUp();
+                assertEquals(1, cache.size(), "size after the clean up");
+            }
+        });
+
+        runner.test("refresh reloads once in the background", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                checkRefresh();
+            }
+        });
+
+        runner.test("refresh without a wrapper", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                checkRefreshWithoutWrapper();
+            }
+        });
+
+        runner.test("refresh then expiry", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                checkRefreshThenExpiry();
+            }
+        });
+    }
+
+    private static void checkRefresh() throws Exception {
+        TimeAwareCache<String, String> timeAwareCache = new TimeAwareCache<>();
+        SynchronizedCache<String, String> cache = new SynchronizedCache<>(timeAwareCache);
+        cache.setCacheListener(Fixtures.<String, String>silentListener());
+        timeAwareCache.setExpirePolicy(60_000);
+
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loadStarted = new CountDownLatch(1);
+        CountDownLatch finishLoad = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            timeAwareCache.setRefreshPolicy(100, new CacheLoader<String, String>() {
+                @Override
+                public String load(String key) throws Exception {
+                    loads.incrementAndGet();
+                    loadStarted.countDown();
+                    finishLoad.await();
+                    return "new";
+                }
+            }, executor);
+
+            cache.put("a", "old");
+            assertEquals("old", cache.get("a"), "value before the refresh time");
+            Thread.sleep(200);
+
+            /* The reload is blocked, so every read gets the old value and no other reload starts */
+            for (int i = 0; i < 10; i++) {
+                assertEquals("old", cache.get("a"), "value while reloading");
+            }
+            assertTrue(loadStarted.await(5, TimeUnit.SECONDS), "reload not started");
+            finishLoad.countDown();
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            while (!"new".equals(cache.get("a")) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals("new", cache.get("a"), "value after the reload");
+            assertEquals(1, loads.get(), "reloads");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * The reload only hands its value back, and the next read puts it, so the cache itself is
+     * never written by the reloading thread.
+     */
+    private static void checkRefreshWithoutWrapper() throws Exception {
+        TimeAwareCache<String, String> cache = new TimeAwareCache<>();
+        cache.setCacheListener(Fixtures.<String, String>silentListener());
+        cache.setExpirePolicy(60_000);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            cache.setRefreshPolicy(100, new CacheLoader<String, String>() {
+                @Override
+                public String load(String key) {
+                    return "new";
+                }
+            }, executor);
+
+            cache.put("a", "old");
+            Thread.sleep(200);
+            assertEquals("old", cache.get("a"), "value read when the reload starts");
+
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS), "reload not finished");
+            assertEquals(1, cache.size(), "size after the reload");
+            assertEquals("old", cache.getEldestEntry().getValue(), "value before the next read");
+            assertEquals("new", cache.get("a"), "value of the next read");
+            assertEquals("new", cache.getEldestEntry().getValue(), "value after the next read");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * A reload that completed long ago neither brings back an entry that expired since, nor
+     * extends the lifetime of its value past the time it was loaded.
+     */
+    private static void checkRefreshThenExpiry() throws Exception {
+        TimeAwareCache<String, String> cache = new TimeAwareCache<>();
+        cache.setCacheListener(Fixtures.<String, String>silentListener());
+        cache.setExpirePolicy(300);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            cache.setRefreshPolicy(50, new CacheLoader<String, String>() {
+                @Override
+                public String load(String key) {
+                    return key + "-reloaded";
+                }
+            }, executor);
+
+            cache.put("unread", "v0");
+            cache.put("read", "v0");
+            Thread.sleep(100);
+            assertEquals("v0", cache.get("unread"), "value read when the reload starts");
+            assertEquals("v0", cache.get("read"), "value read when the reload starts");
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS), "reloads not finished");
+            long reloaded = System.currentTimeMillis();
+
+            /* Put by a read well after the reload, but expiring as if put when it completed */
+            Thread.sleep(100);
+            assertEquals("read-reloaded", cache.get("read"), "value of the next read");
+            Thread.sleep(Math.max(0, reloaded + 350 - System.currentTimeMillis()));
+            assertEquals(null, cache.get("read"), "value past the lifetime of the reload");
+
+            assertEquals(null, cache.get("unread"), "value of the expired entry");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static List<String> recordExpirations(TimeAwareCache<String, String> cache) {
+        List<String> expired = new ArrayList<>();
+        cache.setRemovalListener(new RemovalListener<String, String>() {
+            @Override
+            public void onRemoval(String key, String value, RemovalCause cause) {
+                if (cause == RemovalCause.EXPIRED) {
+                    expired.add(key);
+                }
+            }
+        });
+        return expired;
+    }
+}
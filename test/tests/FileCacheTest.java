@@ -0,0 +1,277 @@
+package tests;
+
+import cachingSystem.FileCache;
+import observerPattern.classes.StatsListener;
+import observerPattern.interfaces.CacheListener;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+
+import static tests.Assertions.assertEquals;
+import static tests.Assertions.assertTrue;
+
+/**
+ * Reads files through a FileCache much smaller than the set of files, from several threads, and
+ * checks every read against the file on the disk. Files are evicted while other threads decode
+ * them, so contents freed too early show up as the contents of another file.
+ */
+public final class FileCacheTest {
+
+    private static final int THREADS = 8;
+    private static final int FILES = 16;
+    private static final int CAPACITY = 2;
+    private static final long DURATION_MILLIS = 500;
+
+    private FileCacheTest() {
+
+    }
+
+    public static void register(TestRunner runner) {
+        for (FileCache.Storage storage : FileCache.Storage.values()) {
+            for (FileCache.Strategy strategy : Arrays.asList(FileCache.Strategy.LRU,
+                    FileCache.Strategy.CONCURRENT_LRU, FileCache.Strategy.BUFFERED_LRU,
+                    FileCache.Strategy.CLOCK_PRO)) {
+                runner.test("concurrent reads " + storage + " " + strategy,
+                        new TestRunner.TestCase() {
+                            @Override
+                            public void run() throws Exception {
+                                checkConcurrentReads(strategy, storage, false);
+                            }
+                        });
+            }
+        }
+
+        for (FileCache.Storage storage : Arrays.asList(FileCache.Storage.HEAP,
+                FileCache.Storage.OFF_HEAP, FileCache.Storage.COMPRESSED)) {
+            runner.test("concurrent reads with a disk tier " + storage, new TestRunner.TestCase() {
+                @Override
+                public void run() throws Exception {
+                    checkConcurrentReads(FileCache.Strategy.LRU, storage, true);
+                }
+            });
+        }
+
+        /* Larger than a slab, so that each file gets its own buffer, freed on eviction */
+        runner.test("concurrent buffer reads OFF_HEAP large files", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                checkConcurrentBufferReads(FileCache.Storage.OFF_HEAP, 3 << 19);
+            }
+        });
+        /* Small enough to share a slab, so that a freed block is reused by the next file */
+        runner.test("concurrent buffer reads OFF_HEAP small files", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                checkConcurrentBufferReads(FileCache.Storage.OFF_HEAP, 64 << 10);
+            }
+        });
+
+        /* Each mapping is unmapped as soon as the last reference to it is dropped */
+        runner.test("concurrent buffer reads MAPPED", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                checkConcurrentBufferReads(FileCache.Storage.MAPPED, 270 << 10);
+            }
+        });
+
+        runner.test("puts decoded only for listeners reading them", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                checkListenerDecoding();
+            }
+        });
+    }
+
+    /**
+     * Read each file once through a compressed cache without a hot set, so that every decoding of
+     * the contents inflates them, first with a stats listener only, then with a listener reading
+     * the contents of the puts as well.
+     */
+    private static void checkListenerDecoding() throws Exception {
+        Path directory = Files.createTempDirectory("file-cache-test");
+        FileCache cache = FileCache.createCacheWithCapacity(
+                FileCache.Strategy.LRU, FILES, FileCache.Storage.COMPRESSED);
+        try {
+            List<String> paths = new ArrayList<>();
+            List<String> contents = new ArrayList<>();
+            createFiles(directory, paths, contents);
+            cache.setCompression(64, 0);
+            cache.addListener(new StatsListener<String, String>());
+
+            for (String path : paths) {
+                cache.getFileContents(path);
+            }
+            assertEquals((long) FILES, cache.getCompressionStats().getDecodes(),
+                    "decodes without a listener reading the contents");
+
+            Map<String, String> put = new ConcurrentHashMap<>();
+            cache.addListener(new CacheListener<String, String>() {
+                @Override
+                public void onHit(String key) {
+
+                }
+
+                @Override
+                public void onMiss(String key) {
+
+                }
+
+                @Override
+                public void onPut(String key, String value) {
+                    put.put(key, value);
+                }
+            });
+            cache.removeFileContents(paths.get(0));
+            assertEquals(contents.get(0), cache.getFileContents(paths.get(0)), "contents read");
+            assertEquals(contents.get(0), put.get(paths.get(0)), "contents put");
+        } finally {
+            cache.close();
+            Fixtures.deleteRecursively(directory);
+        }
+    }
+
+    private static void checkConcurrentReads(FileCache.Strategy strategy,
+                                             FileCache.Storage storage,
+                                             boolean diskTier) throws Exception {
+        Path directory = Files.createTempDirectory("file-cache-test");
+        FileCache cache = FileCache.createCacheWithCapacity(strategy, CAPACITY, storage);
+        try {
+            if (diskTier) {
+                cache.enableDiskTier(directory.resolve("tier").toString(), 1 << 20);
+            }
+            List<String> paths = new ArrayList<>();
+            List<String> contents = new ArrayList<>();
+            createFiles(directory, paths, contents);
+
+            Queue<String> errors = new ConcurrentLinkedQueue<>();
+            long[] reads = new long[THREADS];
+            long end = System.currentTimeMillis() + DURATION_MILLIS;
+            CountDownLatch start = new CountDownLatch(1);
+            Thread[] threads = new Thread[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                threads[t] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Random random = new Random(thread);
+                        try {
+                            start.await();
+                        } catch (InterruptedException e) {
+                            return;
+                        }
+
+                        while (System.currentTimeMillis() < end && errors.isEmpty()) {
+                            int file = random.nextInt(FILES);
+                            try {
+                                String read = cache.getFileContents(paths.get(file));
+                                if (!contents.get(file).equals(read)) {
+                                    errors.add("wrong contents for " + paths.get(file));
+                                }
+                            } catch (RuntimeException e) {
+                                errors.add(e.toString());
+                            }
+                            reads[thread]++;
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+
+            start.countDown();
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertTrue(errors.isEmpty(), errors.size() + " bad reads, first: " + errors.peek());
+            assertTrue(Arrays.stream(reads).sum() > 0, "no reads");
+        } finally {
+            cache.close();
+            Fixtures.deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * Read files as buffers through a cache holding a single file, from several threads, so that
+     * each file is evicted while other threads still read its buffer.
+     */
+    private static void checkConcurrentBufferReads(FileCache.Storage storage, int fileSize)
+            throws Exception {
+        Path directory = Files.createTempDirectory("file-cache-test");
+        FileCache cache = FileCache.createCacheWithCapacity(
+                FileCache.Strategy.CONCURRENT_LRU, 1, storage);
+        try {
+            List<String> paths = new ArrayList<>();
+            List<ByteBuffer> contents = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                byte[] bytes = new byte[fileSize];
+                Arrays.fill(bytes, (byte) ('a' + i));
+                Path file = directory.resolve("file-" + i + ".bin");
+                Files.write(file, bytes);
+                paths.add(file.toString());
+                contents.add(ByteBuffer.wrap(bytes));
+            }
+
+            Queue<String> errors = new ConcurrentLinkedQueue<>();
+            long end = System.currentTimeMillis() + DURATION_MILLIS;
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                int thread = t;
+                threads[t] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Random random = new Random(thread);
+                        while (System.currentTimeMillis() < end && errors.isEmpty()) {
+                            int file = random.nextInt(paths.size());
+                            try (FileCache.FileBuffer buffer =
+                                         cache.getFileBuffer(paths.get(file))) {
+                                Thread.yield();
+                                if (!contents.get(file).equals(buffer.getBuffer())) {
+                                    errors.add("wrong contents for " + paths.get(file));
+                                }
+                            } catch (RuntimeException e) {
+                                errors.add(e.toString());
+                            }
+                        }
+                    }
+                });
+                threads[t].start();
+            }
+
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertTrue(errors.isEmpty(), errors.size() + " bad reads, first: " + errors.peek());
+        } finally {
+            cache.close();
+            Fixtures.deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * Create files of the same size, so that a freed block is reused by the next file loaded.
+     */
+    private static void createFiles(Path directory, List<String> paths, List<String> contents)
+            throws IOException {
+        for (int i = 0; i < FILES; i++) {
+            StringBuilder text = new StringBuilder();
+            for (int line = 0; line < 64; line++) {
+                text.append(String.format("file %02d line %02d\n", i, line));
+            }
+            Path file = directory.resolve("file-" + i + ".txt");
+            Files.write(file, text.toString().getBytes(StandardCharsets.UTF_8));
+            paths.add(file.toString());
+            contents.add(text.toString());
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package tests;
+
+import cachingSystem.FileCache;
+import cachingSystem.classes.ObservableCache;
+import cachingSystem.interfaces.CacheStalePolicy;
+import cachingSystem.interfaces.Weigher;
+import dataStructures.classes.Pair;
+import observerPattern.interfaces.CacheListener;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * The caches and values shared by the tests.
+ */
+public final class Fixtures {
+
+    private Fixtures() {
+
+    }
+
+    /**
+     * The value stored for a key in the tests: it can be checked against the key, and its length
+     * varies from one key to another so that the weights vary too.
+     */
+    public static String valueOf(int key) {
+        StringBuilder value = new StringBuilder("value-").append(key);
+        for (int i = 0; i < key % 5; i++) {
+            value.append('.');
+        }
+        return value.toString();
+    }
+
+    public static <K, V> CacheListener<K, V> silentListener() {
+        return new CacheListener<K, V>() {
+            @Override
+            public void onHit(K key) {
+
+            }
+
+            @Override
+            public void onMiss(K key) {
+
+            }
+
+            @Override
+            public void onPut(K key, V value) {
+
+            }
+        };
+    }
+
+    /**
+     * Create the cache of a strategy holding at most a given number of entries, as FileCache does.
+     */
+    public static ObservableCache<Integer, String> withCapacity(
+            FileCache.Strategy strategy, int capacity) {
+        ObservableCache<Integer, String> cache = FileCache.createDataCache(strategy, capacity);
+        return boundBySize(cache, capacity);
+    }
+
+    public static <K, V> ObservableCache<K, V> boundBySize(ObservableCache<K, V> cache,
+                                                            int capacity) {
+        cache.setCacheListener(Fixtures.<K, V>silentListener());
+        cache.setStalePolicy(new CacheStalePolicy<K, V>() {
+            @Override
+            public boolean shouldRemoveEldestEntry(Pair<K, V> entry) {
+                return cache.size() > capacity;
+            }
+        });
+        return cache;
+    }
+
+    /**
+     * Create the cache of a strategy bounded by the total length of its values.
+     */
+    public static ObservableCache<Integer, String> withMaximumWeight(
+            FileCache.Strategy strategy, long maximumWeight) {
+        ObservableCache<Integer, String> cache = FileCache.createDataCache(
+                strategy, (int) (maximumWeight / valueOf(0).length()));
+        cache.setCacheListener(Fixtures.<Integer, String>silentListener());
+        cache.setWeigher(new Weigher<Integer, String>() {
+            @Override
+            public int weigh(Integer key, String value) {
+                return value.length();
+            }
+        });
+        cache.setStalePolicy(new CacheStalePolicy<Integer, String>() {
+            @Override
+            public boolean shouldRemoveEldestEntry(Pair<Integer, String> entry) {
+                return cache.getTotalWeight() > maximumWeight;
+            }
+        });
+        return cache;
+    }
+
+    public static void deleteRecursively(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        Files.walkFileTree(directory, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes)
+                    throws IOException {
+                Files.delete(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e)
+                    throws IOException {
+                Files.delete(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
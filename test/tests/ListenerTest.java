@@ -0,0 +1,119 @@
+package tests;
+
+import observerPattern.classes.AsyncBroadcastListener;
+import observerPattern.interfaces.CacheListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static tests.Assertions.assertEquals;
+import static tests.Assertions.assertTrue;
+
+/**
+ * Checks the asynchronous dispatch of the events: no event is lost when the buffer is full and the
+ * publishers block, and the dispatch thread sleeps while there are no events.
+ */
+public final class ListenerTest {
+
+    private static final int THREADS = 4;
+    private static final int EVENTS_PER_THREAD = 50_000;
+
+    private ListenerTest() {
+
+    }
+
+    public static void register(TestRunner runner) {
+        runner.test("async dispatch delivers every event", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                AsyncBroadcastListener<Integer, Integer> listener = new AsyncBroadcastListener<>(
+                        64, AsyncBroadcastListener.OverflowPolicy.BLOCK);
+                AtomicLong received = new AtomicLong();
+                listener.addListener(countingListener(received));
+
+                Thread[] threads = new Thread[THREADS];
+                for (int t = 0; t < THREADS; t++) {
+                    threads[t] = new Thread(new Runnable() {
+                        @Override
+                        public void run() {
+                            for (int i = 0; i < EVENTS_PER_THREAD; i++) {
+                                listener.onHit(i);
+                                if (i % 1000 == 0) {
+                                    /* Let the dispatch thread run out of events and sleep */
+                                    Thread.yield();
+                                }
+                            }
+                        }
+                    });
+                    threads[t].start();
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+
+                listener.flush();
+                assertEquals((long) THREADS * EVENTS_PER_THREAD, received.get(), "events");
+                listener.close();
+            }
+        });
+
+        runner.test("async dispatch sleeps while idle", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                AsyncBroadcastListener<Integer, Integer> listener = new AsyncBroadcastListener<>(
+                        64, AsyncBroadcastListener.OverflowPolicy.DROP);
+                AtomicLong received = new AtomicLong();
+                listener.addListener(countingListener(received));
+                try {
+                    listener.onHit(1);
+                    listener.flush();
+                    Thread.sleep(200);
+
+                    Thread dispatch = findDispatchThread();
+                    assertEquals(Thread.State.WAITING, dispatch.getState(),
+                            "state of the idle dispatch thread");
+
+                    /* An event published while the thread sleeps wakes it up */
+                    listener.onHit(2);
+                    long deadline = System.currentTimeMillis() + 5_000;
+                    while (received.get() < 2 && System.currentTimeMillis() < deadline) {
+                        Thread.sleep(1);
+                    }
+                    assertEquals(2L, received.get(), "events");
+                } finally {
+                    listener.close();
+                }
+            }
+        });
+    }
+
+    private static CacheListener<Integer, Integer> countingListener(AtomicLong received) {
+        return new CacheListener<Integer, Integer>() {
+            @Override
+            public void onHit(Integer key) {
+                received.incrementAndGet();
+            }
+
+            @Override
+            public void onMiss(Integer key) {
+
+            }
+
+            @Override
+            public void onPut(Integer key, Integer value) {
+
+            }
+        };
+    }
+
+    private static Thread findDispatchThread() {
+        Thread found = null;
+        for (Thread thread : Thread.getAllStackTraces().keySet()) {
+            if (thread.getName().equals("cache-listener-dispatch") && thread.isAlive()) {
+                assertTrue(found == null, "more than one dispatch thread running");
+                found = thread;
+            }
+        }
+        assertTrue(found != null, "no dispatch thread");
+        return found;
+    }
+}
@@ -0,0 +1,344 @@
+package tests;
+
+import cachingSystem.FileCache;
+import cachingSystem.classes.CacheLoadException;
+import cachingSystem.classes.CacheSnapshot;
+import cachingSystem.classes.DiskTier;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static tests.Assertions.assertEquals;
+import static tests.Assertions.assertTrue;
+import static tests.Assertions.fail;
+
+/**
+ * Checks what the caches write to the disk: the snapshots, read back as they were written and
+ * restored into a new FileCache of every strategy and storage, and the records of the disk tier.
+ */
+public final class PersistenceTest {
+
+    private static final int FILES = 20;
+    private static final int CAPACITY = 10;
+
+    private PersistenceTest() {
+
+    }
+
+    public static void register(TestRunner runner) {
+        runner.test("snapshot round trip", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                checkSnapshotRoundTrip();
+            }
+        });
+
+        runner.test("disk tier round trip", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                checkDiskTier();
+            }
+        });
+
+        for (FileCache.Strategy strategy : FileCache.Strategy.values()) {
+            for (FileCache.Storage storage : FileCache.Storage.values()) {
+                runner.test("FileCache snapshot " + strategy + " " + storage,
+                        new TestRunner.TestCase() {
+                            @Override
+                            public void run() throws Exception {
+                                checkFileCacheSnapshot(strategy, storage);
+                            }
+                        });
+            }
+        }
+
+        runner.test("FileCache snapshot leaves out deleted files", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                checkSnapshotOfDeletedFile();
+            }
+        });
+
+        runner.test("FileCache disk tier", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                checkFileCacheDiskTier();
+            }
+        });
+
+        runner.test("FileCache disk tier leaves out deleted files", new TestRunner.TestCase() {
+            @Override
+            public void run() throws Exception {
+                checkDiskTierOfDeletedFile();
+            }
+        });
+
+        for (FileCache.Storage storage : Arrays.asList(FileCache.Storage.HEAP,
+                FileCache.Storage.OFF_HEAP, FileCache.Storage.COMPRESSED)) {
+            runner.test("FileCache disk tier keeps put contents " + storage,
+                    new TestRunner.TestCase() {
+                        @Override
+                        public void run() throws Exception {
+                            checkDiskTierPutContents(storage);
+                        }
+                    });
+        }
+    }
+
+    private static void checkSnapshotRoundTrip() throws IOException {
+        Path directory = Files.createTempDirectory("snapshot-test");
+        try {
+            Path file = directory.resolve("cache.snapshot");
+            List<CacheSnapshot.Entry> written = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                ByteBuffer contents = i % 10 == 0 ? null : ByteBuffer.wrap(
+                        Fixtures.valueOf(i).getBytes(StandardCharsets.UTF_8));
+                written.add(new CacheSnapshot.Entry("key-" + i + "-\u00e9", i * 1000L, i, contents));
+            }
+            CacheSnapshot.write(file, written);
+
+            List<CacheSnapshot.Entry> read = CacheSnapshot.map(file).getEntries();
+            assertEquals(written.size(), read.size(), "entries");
+            for (int i = 0; i < read.size(); i++) {
+                CacheSnapshot.Entry entry = read.get(i);
+                assertEquals(written.get(i).getKey(), entry.getKey(), "key");
+                assertEquals(i * 1000L, entry.getModifiedMillis(), "modification time");
+                assertEquals((long) i, entry.getSize(), "size");
+                assertEquals(written.get(i).getContents(), entry.getContents(), "contents");
+            }
+
+            byte[] bytes = Files.readAllBytes(file);
+            Files.write(file, Arrays.copyOf(bytes, bytes.length / 2));
+            try {
+                CacheSnapshot.map(file);
+                fail("a truncated snapshot was read");
+            } catch (IOException expected) {
+                /* The truncation is reported */
+            }
+        } finally {
+            Fixtures.deleteRecursively(directory);
+        }
+    }
+
+    private static void checkDiskTier() throws IOException {
+        Path directory = Files.createTempDirectory("disk-tier-test");
+        DiskTier tier = new DiskTier(directory, 1 << 20, 4096);
+        try {
+            for (int i = 0; i < 200; i++) {
+                tier.put(entry(i));
+            }
+            /* Rewriting a key replaces its record */
+            for (int i = 0; i < 200; i += 2) {
+                tier.put(entry(i));
+            }
+            assertEquals(200, tier.size(), "entries");
+
+            tier.remove("key-1");
+            assertEquals(null, tier.take("key-1"), "removed entry");
+            for (int i = 2; i < 200; i++) {
+                CacheSnapshot.Entry entry = tier.take("key-" + i);
+                assertTrue(entry != null, "entry " + i + " lost");
+                assertEquals(entry(i).getContents(), entry.getContents(), "contents of " + i);
+                assertEquals(null, tier.take("key-" + i), "entry taken twice");
+            }
+            assertEquals(1, tier.size(), "entries left");
+        } finally {
+            tier.close();
+            Fixtures.deleteRecursively(directory);
+        }
+    }
+
+    private static CacheSnapshot.Entry entry(int i) {
+        return new CacheSnapshot.Entry("key-" + i, i, i,
+                ByteBuffer.wrap(Fixtures.valueOf(i).getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static void checkFileCacheSnapshot(FileCache.Strategy strategy,
+                                               FileCache.Storage storage) throws IOException {
+        Path directory = Files.createTempDirectory("file-cache-test");
+        try {
+            List<Path> files = createFiles(directory);
+            Path snapshot = directory.resolve("cache.snapshot");
+
+            FileCache cache = FileCache.createCacheWithCapacity(strategy, CAPACITY, storage);
+            for (Path file : files) {
+                cache.getFileContents(file.toString());
+            }
+            int saved = cache.saveSnapshot(snapshot.toString());
+            cache.close();
+            assertEquals(CAPACITY, saved, "files saved");
+
+            /* A file that changed since the snapshot is not restored */
+            Path changed = Paths.get(CacheSnapshot.map(snapshot).getEntries().get(0).getKey());
+            Files.write(changed, "changed contents".getBytes(StandardCharsets.UTF_8));
+
+            FileCache restored = FileCache.createCacheWithCapacity(strategy, CAPACITY, storage);
+            try {
+                assertEquals(CAPACITY - 1, restored.loadSnapshot(snapshot.toString()),
+                        "files restored");
+                for (Path file : files) {
+                    assertEquals(new String(Files.readAllBytes(file), StandardCharsets.UTF_8),
+                            restored.getFileContents(file.toString()), "contents of " + file);
+                }
+            } finally {
+                restored.close();
+            }
+        } finally {
+            Fixtures.deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * A file deleted while cached is not saved as if its contents had been put in the cache, so a
+     * new cache does not serve it; the contents that really were put are kept.
+     */
+    private static void checkSnapshotOfDeletedFile() throws IOException {
+        Path directory = Files.createTempDirectory("file-cache-test");
+        try {
+            List<Path> files = createFiles(directory);
+            Path snapshot = directory.resolve("cache.snapshot");
+            String putPath = directory.resolve("put").toString();
+
+            FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, FILES + 1);
+            for (Path file : files) {
+                cache.getFileContents(file.toString());
+            }
+            cache.putFileContents(putPath, "put contents");
+            Files.delete(files.get(0));
+            assertEquals(FILES, cache.saveSnapshot(snapshot.toString()), "files saved");
+            cache.close();
+
+            FileCache restored = FileCache.createCacheWithCapacity(
+                    FileCache.Strategy.LRU, FILES + 1);
+            try {
+                assertEquals(FILES, restored.loadSnapshot(snapshot.toString()), "files restored");
+                assertEquals("put contents", restored.getFileContents(putPath), "put contents");
+                assertFailsToLoad(restored, files.get(0));
+            } finally {
+                restored.close();
+            }
+        } finally {
+            Fixtures.deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * A file deleted after it was evicted to the disk tier, written to it or not yet, is not
+     * served from the tier.
+     */
+    private static void checkDiskTierOfDeletedFile() throws Exception {
+        Path directory = Files.createTempDirectory("file-cache-test");
+        try {
+            List<Path> files = createFiles(directory);
+            FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, 1);
+            cache.enableDiskTier(directory.resolve("tier").toString(), 1 << 20);
+            try {
+                cache.getFileContents(files.get(1).toString());
+                cache.getFileContents(files.get(2).toString());
+                /* Let the first one reach the disk */
+                Thread.sleep(100);
+                cache.getFileContents(files.get(3).toString());
+
+                Files.delete(files.get(1));
+                Files.delete(files.get(2));
+                assertFailsToLoad(cache, files.get(1));
+                assertFailsToLoad(cache, files.get(2));
+            } finally {
+                cache.close();
+            }
+        } finally {
+            Fixtures.deleteRecursively(directory);
+        }
+    }
+
+    private static void assertFailsToLoad(FileCache cache, Path file) {
+        try {
+            cache.getFileContents(file.toString());
+            fail("the deleted file " + file + " was served");
+        } catch (CacheLoadException expected) {
+            /* Read from the disk, where it no longer is */
+        }
+    }
+
+    private static void checkFileCacheDiskTier() throws IOException {
+        Path directory = Files.createTempDirectory("file-cache-test");
+        try {
+            List<Path> files = createFiles(directory);
+            FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, 2);
+            cache.enableDiskTier(directory.resolve("tier").toString(), 1 << 20);
+            try {
+                for (int round = 0; round < 3; round++) {
+                    for (Path file : files) {
+                        assertEquals(new String(Files.readAllBytes(file), StandardCharsets.UTF_8),
+                                cache.getFileContents(file.toString()), "contents of " + file);
+                    }
+                }
+            } finally {
+                cache.close();
+            }
+        } finally {
+            Fixtures.deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * Put contents for paths that are not files, so that the only copy of an evicted one is in the
+     * disk tier, or still waiting to be written to it.
+     */
+    private static void checkDiskTierPutContents(FileCache.Storage storage) throws Exception {
+        Path directory = Files.createTempDirectory("file-cache-test");
+        FileCache cache = FileCache.createCacheWithCapacity(FileCache.Strategy.LRU, 2, storage);
+        try {
+            cache.enableDiskTier(directory.resolve("tier").toString(), 1 << 20);
+            for (int i = 0; i < FILES; i++) {
+                cache.putFileContents(directory.resolve("put-" + i).toString(), contentsOf(i));
+            }
+
+            for (int round = 0; round < 2; round++) {
+                for (int i = 0; i < FILES; i++) {
+                    assertEquals(contentsOf(i),
+                            cache.getFileContents(directory.resolve("put-" + i).toString()),
+                            "contents of " + i);
+                }
+                /* Let the evicted contents reach the disk */
+                Thread.sleep(100);
+            }
+        } finally {
+            cache.close();
+            Fixtures.deleteRecursively(directory);
+        }
+    }
+
+    private static String contentsOf(int i) {
+        StringBuilder contents = new StringBuilder();
+        for (int line = 0; line < i * 20; line++) {
+            contents.append("put ").append(i).append(" line ").append(line).append('\n');
+        }
+        return contents.toString();
+    }
+
+    /**
+     * Create files of different sizes, some large enough to be compressed.
+     */
+    private static List<Path> createFiles(Path directory) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            StringBuilder contents = new StringBuilder();
+            for (int line = 0; line < i * 20; line++) {
+                contents.append("{\"file\": ").append(i).append(", \"line\": ").append(line)
+                        .append("}\n");
+            }
+            Path file = directory.resolve("file-" + i + ".json");
+            Files.write(file, contents.toString().getBytes(StandardCharsets.UTF_8));
+            files.add(file);
+        }
+        return files;
+    }
+}
@@ -0,0 +1,71 @@
+package tests;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the tests of the caching system and exits with a non-zero status if any of them fails. The
+ * tests are plain methods registered by each test class, so the runner needs no library.
+ *
+ * Usage: TestRunner [name filter]
+ */
+public final class TestRunner {
+
+    /**
+     * A single test, failing by throwing.
+     */
+    public interface TestCase {
+        void run() throws Exception;
+    }
+
+    private final String filter;
+    private final List<String> failures = new ArrayList<>();
+    private int passed;
+
+    private TestRunner(String filter) {
+        this.filter = filter;
+    }
+
+    public static void main(String[] args) {
+        TestRunner runner = new TestRunner(args.length > 0 ? args[0] : null);
+
+        ConcurrencyTest.register(runner);
+        EvictionOrderTest.register(runner);
+        DataStructuresTest.register(runner);
+        ExpirationTest.register(runner);
+        PersistenceTest.register(runner);
+        FileCacheTest.register(runner);
+        ListenerTest.register(runner);
+
+        System.out.println(String.format("%d passed, %d failed", runner.passed,
+                runner.failures.size()));
+        for (String failure : runner.failures) {
+            System.out.println("FAILED " + failure);
+        }
+        System.exit(runner.failures.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Run a test, unless its name does not contain the filter.
+     *
+     * @param name the name of the test
+     * @param testCase the test
+     */
+    public void test(String name, TestCase testCase) {
+        if (filter != null && !name.contains(filter)) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            testCase.run();
+            passed++;
+            System.out.println(String.format("ok   %-60s %6d ms", name,
+                    (System.nanoTime() - start) / 1_000_000));
+        } catch (Throwable t) {
+            failures.add(name + ": " + t);
+            System.out.println("FAIL " + name);
+            t.printStackTrace(System.out);
+        }
+    }
+}